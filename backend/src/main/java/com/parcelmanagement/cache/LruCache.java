@@ -0,0 +1,208 @@
+package com.parcelmanagement.cache;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded in-memory cache with least-recently-used eviction and optional expiry.
+ * Entries are spread over independently locked segments so concurrent callers rarely
+ * contend; each segment evicts its own least recently used entry once it is full.
+ * With a time to live, entries older than it are treated as absent and dropped when read.
+ */
+public class LruCache<K, V> {
+    
+    private static final int SEGMENTS = 16;
+    
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Segment<K, V>[] segments;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    
+    public LruCache(int maxSize) {
+        this(maxSize, 0);
+    }
+    
+    /**
+     * @param ttlMillis how long an entry stays valid after it was put; 0 keeps entries until evicted
+     */
+    public LruCache(int maxSize, long ttlMillis) {
+        if (maxSize < SEGMENTS) {
+            throw new IllegalArgumentException("Cache size must be at least " + SEGMENTS);
+        }
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("Time to live must not be negative");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        @SuppressWarnings("unchecked")
+        Segment<K, V>[] segments = (Segment<K, V>[]) new Segment<?, ?>[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(maxSize / SEGMENTS, evictions);
+        }
+        this.segments = segments;
+    }
+    
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        V value = null;
+        synchronized (segment) {
+            Node<V> entry = segment.get(key);
+            if (entry != null) {
+                if (ttlNanos > 0 && System.nanoTime() - entry.createdAt > ttlNanos) {
+                    segment.remove(key);
+                    expirations.increment();
+                } else {
+                    value = entry.value;
+                }
+            }
+        }
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+    
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        Node<V> entry = new Node<>(value, ttlNanos > 0 ? System.nanoTime() : 0);
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+    
+    /**
+     * Puts the value unless the key already has a live entry, atomically.
+     * @return the value of the live entry, or null when the given value was put
+     */
+    public V putIfAbsent(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = ttlNanos > 0 ? System.nanoTime() : 0;
+        synchronized (segment) {
+            Node<V> entry = segment.get(key);
+            if (entry != null) {
+                if (ttlNanos == 0 || now - entry.createdAt <= ttlNanos) {
+                    hits.increment();
+                    return entry.value;
+                }
+                expirations.increment();
+            }
+            segment.put(key, new Node<>(value, now));
+        }
+        misses.increment();
+        return null;
+    }
+    
+    /**
+     * Removes the key, atomically.
+     * @return the value of the live entry that was removed, or null when there was none
+     */
+    public V remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        Node<V> entry;
+        synchronized (segment) {
+            entry = segment.remove(key);
+        }
+        if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.createdAt > ttlNanos) {
+            expirations.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+    
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+    
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+    
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+    
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.sum());
+        if (ttlNanos > 0) {
+            stats.put("expirations", expirations.sum());
+            stats.put("ttlMillis", ttlNanos / 1_000_000);
+        }
+        stats.put("hitRatio", requests == 0 ? 0.0 : (double) hitCount / requests);
+        return stats;
+    }
+    
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (SEGMENTS - 1)];
+    }
+    
+    private static final class Node<V> {
+        
+        private final V value;
+        private final long createdAt;
+        
+        Node(V value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+    
+    private static final class Segment<K, V> extends LinkedHashMap<K, Node<V>> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final int capacity;
+        private final LongAdder evictions;
+        
+        Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+        
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Node<V>> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.parcelmanagement.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the pooled id sequences past ids that were handed out by the old
+ * auto-increment columns, so existing databases keep working after the switch.
+ */
+@Component
+public class IdSequenceInitializer implements ApplicationRunner {
+    
+    private static final int ALLOCATION_SIZE = 50;
+    
+    private static final String[][] SEQUENCES = {
+            {"parcels_seq", "parcels"},
+            {"locations_seq", "locations"},
+            {"tracking_seq", "tracking"}
+    };
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        for (String[] sequence : SEQUENCES) {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + sequence[1], Long.class);
+            long floor = maxId + ALLOCATION_SIZE + 1;
+            jdbcTemplate.update("UPDATE " + sequence[0] + " SET next_val = ? WHERE next_val < ?", floor, floor);
+        }
+    }
+}
\ No newline at end of file
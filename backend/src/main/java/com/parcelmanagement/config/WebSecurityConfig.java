@@ -3,6 +3,7 @@ package com.parcelmanagement.config;
 import com.parcelmanagement.security.AuthEntryPointJwt;
 import com.parcelmanagement.security.AuthTokenFilter;
 import com.parcelmanagement.service.UserDetailsServiceImpl;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -64,9 +65,13 @@ public class WebSecurityConfig {
             .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(authz -> authz
+                // Completing a streamed response re-dispatches it; the original request was already authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
                 .requestMatchers("/api/tracking/public/**").permitAll()
+                .requestMatchers("/api/tracking/stream/user", "/api/tracking/stream/ticket").authenticated()
+                .requestMatchers("/api/tracking/stream/**").permitAll()
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 .requestMatchers("/api/staff/**").hasAnyRole("ADMIN", "STAFF")
                 .anyRequest().authenticated()
@@ -0,0 +1,367 @@
+package com.parcelmanagement.controller;
+
+import com.parcelmanagement.service.CanonicalAddressService;
+import com.parcelmanagement.service.EtaService;
+import com.parcelmanagement.service.InvoiceBatchService;
+import com.parcelmanagement.service.InvoiceChangeFeed;
+import com.parcelmanagement.service.InvoiceOverdueSweeper;
+import com.parcelmanagement.service.LocationCompactionService;
+import com.parcelmanagement.service.ParcelStatusCounterService;
+import com.parcelmanagement.service.PricingService;
+import com.parcelmanagement.service.ScanDeduplicator;
+import com.parcelmanagement.service.ScanIngestionService;
+import com.parcelmanagement.service.StatementReconciliationService;
+import com.parcelmanagement.service.TaxService;
+import com.parcelmanagement.service.TrackingArchiveService;
+import com.parcelmanagement.service.TrackingEventHub;
+import com.parcelmanagement.service.TrackingExportService;
+import com.parcelmanagement.service.TrackingHeadService;
+import com.parcelmanagement.service.TrackingResponseCache;
+import com.parcelmanagement.service.ReceiverCompactionService;
+import com.parcelmanagement.service.ReceiverResolver;
+import com.parcelmanagement.service.RevenueRollupService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "*", maxAge = 3600)
+@PreAuthorize("hasRole('ADMIN')")
+@SecurityRequirement(name = "bearerAuth")
+@Tag(name = "Administration", description = "Maintenance jobs and internal metrics (Admin only)")
+public class AdminController {
+    
+    @Autowired
+    private ReceiverResolver receiverResolver;
+    
+    @Autowired
+    private ReceiverCompactionService receiverCompactionService;
+    
+    @Autowired
+    private CanonicalAddressService canonicalAddressService;
+    
+    @Autowired
+    private LocationCompactionService locationCompactionService;
+    
+    @Autowired
+    private PricingService pricingService;
+    
+    @Autowired
+    private TaxService taxService;
+    
+    @Autowired
+    private EtaService etaService;
+    
+    @Autowired
+    private ParcelStatusCounterService statusCounterService;
+    
+    @Autowired
+    private TrackingResponseCache trackingResponseCache;
+    
+    @Autowired
+    private TrackingEventHub trackingEventHub;
+    
+    @Autowired
+    private ScanIngestionService scanIngestionService;
+    
+    @Autowired
+    private ScanDeduplicator scanDeduplicator;
+    
+    @Autowired
+    private TrackingHeadService trackingHeadService;
+    
+    @Autowired
+    private TrackingArchiveService trackingArchiveService;
+    
+    @Autowired
+    private TrackingExportService trackingExportService;
+    
+    @Autowired
+    private InvoiceBatchService invoiceBatchService;
+    
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+    
+    @Autowired
+    private InvoiceOverdueSweeper invoiceOverdueSweeper;
+    
+    @Autowired
+    private InvoiceChangeFeed invoiceChangeFeed;
+    
+    @Autowired
+    private StatementReconciliationService reconciliationService;
+    
+    @GetMapping("/receivers/cache")
+    @Operation(summary = "Receiver cache statistics", description = "Size, hit/miss and eviction counters of the receiver identity cache")
+    public ResponseEntity<Map<String, Object>> getReceiverCacheStats() {
+        return ResponseEntity.ok(receiverResolver.cacheStats());
+    }
+    
+    @PostMapping("/receivers/compact")
+    @Operation(summary = "Compact duplicate receivers", description = "Merge auto-created receivers that share an email or phone and repoint their parcels")
+    public ResponseEntity<?> compactReceivers() {
+        try {
+            return ResponseEntity.ok(receiverCompactionService.compact());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping("/locations/cache")
+    @Operation(summary = "Location cache statistics", description = "Size, hit/miss and eviction counters of the canonical address cache")
+    public ResponseEntity<Map<String, Object>> getLocationCacheStats() {
+        return ResponseEntity.ok(canonicalAddressService.cacheStats());
+    }
+    
+    @PostMapping("/locations/compact")
+    @Operation(summary = "Compact duplicate locations", description = "Hash legacy locations, merge duplicates and repoint their parcels")
+    public ResponseEntity<?> compactLocations() {
+        try {
+            return ResponseEntity.ok(locationCompactionService.compact());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping("/pricing")
+    @Operation(summary = "Rate table statistics", description = "Size and load time of the compiled rate card table")
+    public ResponseEntity<Map<String, Object>> getPricingStats() {
+        return ResponseEntity.ok(pricingService.stats());
+    }
+    
+    @PostMapping("/pricing/reload")
+    @Operation(summary = "Reload rate cards", description = "Recompile the rate card table from the database and swap it in")
+    public ResponseEntity<?> reloadPricing() {
+        try {
+            return ResponseEntity.ok(pricingService.reload());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping("/tax")
+    @Operation(summary = "Tax table statistics", description = "Size and load time of the compiled tax rule table")
+    public ResponseEntity<Map<String, Object>> getTaxStats() {
+        return ResponseEntity.ok(taxService.stats());
+    }
+    
+    @PostMapping("/tax/reload")
+    @Operation(summary = "Reload tax rules", description = "Recompile the tax rule table from the database and swap it in")
+    public ResponseEntity<?> reloadTaxRules() {
+        try {
+            return ResponseEntity.ok(taxService.reload());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping("/eta")
+    @Operation(summary = "ETA model statistics", description = "Lanes, samples and snapshot time of the transit time sketches")
+    public ResponseEntity<Map<String, Object>> getEtaStats() {
+        return ResponseEntity.ok(etaService.stats());
+    }
+    
+    @PostMapping("/eta/rebuild")
+    @Operation(summary = "Rebuild ETA model", description = "Replay the tracking history into fresh transit time sketches")
+    public ResponseEntity<?> rebuildEta() {
+        try {
+            return ResponseEntity.ok(etaService.rebuild());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @PostMapping("/parcels/stats/reconcile")
+    @Operation(summary = "Reconcile status counters", description = "Recount parcels per status and correct the counters")
+    public ResponseEntity<?> reconcileStatusCounters() {
+        try {
+            return ResponseEntity.ok(statusCounterService.reconcile());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping("/tracking/cache")
+    @Operation(summary = "Tracking cache statistics", description = "Hit ratio, size, expirations and load time of the public tracking response cache")
+    public ResponseEntity<Map<String, Object>> getTrackingCacheStats() {
+        return ResponseEntity.ok(trackingResponseCache.stats());
+    }
+    
+    @GetMapping("/tracking/streams")
+    @Operation(summary = "Tracking stream statistics", description = "Open Server-Sent Event subscribers and delivered, evicted event counts")
+    public ResponseEntity<Map<String, Object>> getTrackingStreamStats() {
+        return ResponseEntity.ok(trackingEventHub.stats());
+    }
+    
+    @GetMapping("/tracking/scans")
+    @Operation(summary = "Scan ingestion statistics", description = "Scan queue depth, written and refused scans and recent write throughput")
+    public ResponseEntity<Map<String, Object>> getScanIngestionStats() {
+        return ResponseEntity.ok(scanIngestionService.stats());
+    }
+    
+    @GetMapping("/tracking/dedup")
+    @Operation(summary = "Scan deduplication statistics", description = "Checked scans, dropped duplicates and dedup window occupancy")
+    public ResponseEntity<Map<String, Object>> getScanDedupStats() {
+        return ResponseEntity.ok(scanDeduplicator.stats());
+    }
+    
+    @PostMapping("/tracking/heads/rebuild")
+    @Operation(summary = "Rebuild tracking heads", description = "Reconstruct the latest tracking update of every parcel from the tracking history")
+    public ResponseEntity<?> rebuildTrackingHeads() {
+        try {
+            return ResponseEntity.ok(trackingHeadService.rebuild());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping("/tracking/archive")
+    @Operation(summary = "Tracking archive statistics", description = "Parcels and tracking rows moved to the monthly archive tables")
+    public ResponseEntity<Map<String, Object>> getTrackingArchiveStats() {
+        return ResponseEntity.ok(trackingArchiveService.stats());
+    }
+    
+    @PostMapping("/tracking/archive")
+    @Operation(summary = "Archive tracking history", description = "Move the tracking rows of settled parcels older than the configured age to the monthly archive tables")
+    public ResponseEntity<?> archiveTracking() {
+        try {
+            return ResponseEntity.ok(trackingArchiveService.archive());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping("/tracking/export")
+    @Operation(summary = "Export tracking events", description = "Stream tracking events with from <= timestamp < to as CSV or NDJSON, gzip compressed unless gzip=false")
+    public ResponseEntity<?> exportTrackingEvents(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                  @RequestParam(defaultValue = "csv") String format,
+                                                  @RequestParam(defaultValue = "true") boolean gzip) {
+        TrackingExportService.Format exportFormat;
+        try {
+            exportFormat = TrackingExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Format must be csv or ndjson");
+            return ResponseEntity.badRequest().body(error);
+        }
+        if (!from.isBefore(to)) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "from must be before to");
+            return ResponseEntity.badRequest().body(error);
+        }
+        
+        String extension = exportFormat == TrackingExportService.Format.CSV ? ".csv" : ".ndjson";
+        MediaType contentType = exportFormat == TrackingExportService.Format.CSV 
+                ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON;
+        if (gzip) {
+            extension += ".gz";
+            contentType = new MediaType("application", "gzip");
+        }
+        
+        StreamingResponseBody body = out -> trackingExportService.export(from, to, exportFormat, gzip, out);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, 
+                        "attachment; filename=\"tracking-events-" + from.toLocalDate() + extension + "\"")
+                .body(body);
+    }
+    
+    @GetMapping("/tracking/export/stats")
+    @Operation(summary = "Tracking export statistics", description = "Exported rows and the throughput of the last export in rows per second")
+    public ResponseEntity<Map<String, Object>> getTrackingExportStats() {
+        return ResponseEntity.ok(trackingExportService.stats());
+    }
+    
+    @GetMapping("/invoices/batch")
+    @Operation(summary = "Batch invoicing progress", description = "Partitions and invoices of the latest batch invoicing run")
+    public ResponseEntity<Map<String, Object>> getInvoiceBatchProgress() {
+        return ResponseEntity.ok(invoiceBatchService.progress());
+    }
+    
+    @PostMapping("/invoices/batch")
+    @Operation(summary = "Run batch invoicing", description = "Invoice every delivered parcel without an invoice in the background, resuming an unfinished run first")
+    public ResponseEntity<?> runInvoiceBatch(@RequestParam(required = false) Integer partitions) {
+        try {
+            return ResponseEntity.accepted().body(invoiceBatchService.start(partitions));
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @PostMapping("/invoices/revenue/rebuild")
+    @Operation(summary = "Rebuild revenue rollups", description = "Recompute the daily revenue buckets from the paid invoices")
+    public ResponseEntity<?> rebuildRevenueRollups() {
+        try {
+            return ResponseEntity.ok(revenueRollupService.rebuild());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping("/invoices/overdue-sweeper")
+    @Operation(summary = "Overdue sweeper statistics", description = "Sweeps run and skipped and invoices marked overdue by this node")
+    public ResponseEntity<Map<String, Object>> getOverdueSweeperStats() {
+        return ResponseEntity.ok(invoiceOverdueSweeper.stats());
+    }
+    
+    @PostMapping("/invoices/overdue-sweeper")
+    @Operation(summary = "Sweep overdue invoices", description = "Mark every pending invoice past its due date as overdue now")
+    public ResponseEntity<?> sweepOverdueInvoices() {
+        try {
+            return ResponseEntity.ok(invoiceOverdueSweeper.sweep());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping("/invoices/reconciliation")
+    @Operation(summary = "Statement reconciliation statistics", description = "Bank statements reconciled, lines read and invoices paid by this node")
+    public ResponseEntity<Map<String, Object>> getReconciliationStats() {
+        return ResponseEntity.ok(reconciliationService.stats());
+    }
+    
+    @GetMapping("/invoices/changes")
+    @Operation(summary = "Invoice change feed", description = "Bulk invoice status transitions after the given entry id, oldest first")
+    public ResponseEntity<List<Map<String, Object>>> getInvoiceChanges(@RequestParam(defaultValue = "0") long after,
+                                                                       @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(invoiceChangeFeed.read(after, Math.max(1, Math.min(limit, 1000))));
+    }
+}
\ No newline at end of file
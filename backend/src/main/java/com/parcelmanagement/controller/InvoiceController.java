@@ -1,23 +1,32 @@
 package com.parcelmanagement.controller;
 
+import com.parcelmanagement.dto.CursorPageDto;
+import com.parcelmanagement.dto.InvoiceResponseDto;
 import com.parcelmanagement.entity.Invoice;
 import com.parcelmanagement.entity.Parcel;
 import com.parcelmanagement.entity.User;
 import com.parcelmanagement.service.InvoiceService;
 import com.parcelmanagement.service.ParcelService;
+import com.parcelmanagement.service.StatementReconciliationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/invoices")
@@ -32,6 +41,15 @@ public class InvoiceController {
     @Autowired
     private ParcelService parcelService;
     
+    @Autowired
+    private StatementReconciliationService reconciliationService;
+    
+    @Value("${parcel.listing.default-page-size:50}")
+    private int defaultPageSize;
+    
+    @Value("${parcel.listing.max-page-size:500}")
+    private int maxPageSize;
+    
     @PostMapping("/generate/{parcelId}")
     @Operation(summary = "Generate invoice", description = "Generate invoice for a parcel")
     public ResponseEntity<?> generateInvoice(@PathVariable Long parcelId, Authentication authentication) {
@@ -55,7 +73,7 @@ public class InvoiceController {
             }
             
             Invoice invoice = invoiceService.generateInvoice(parcel);
-            return ResponseEntity.ok(invoice);
+            return ResponseEntity.ok(invoiceService.findDtoById(invoice.getId()).orElseThrow());
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -66,7 +84,7 @@ public class InvoiceController {
     @GetMapping("/{invoiceNumber}")
     @Operation(summary = "Get invoice by number", description = "Get invoice details by invoice number")
     public ResponseEntity<?> getInvoiceByNumber(@PathVariable String invoiceNumber, Authentication authentication) {
-        Optional<Invoice> invoiceOpt = invoiceService.findByInvoiceNumber(invoiceNumber);
+        Optional<InvoiceResponseDto> invoiceOpt = invoiceService.findDtoByInvoiceNumber(invoiceNumber);
         
         if (invoiceOpt.isEmpty()) {
             Map<String, String> error = new HashMap<>();
@@ -74,13 +92,13 @@ public class InvoiceController {
             return ResponseEntity.notFound().build();
         }
         
-        Invoice invoice = invoiceOpt.get();
+        InvoiceResponseDto invoice = invoiceOpt.get();
         User currentUser = (User) authentication.getPrincipal();
         
         // Check if user has permission to view this invoice
         if (!currentUser.getRole().equals(User.UserRole.ADMIN) && 
             !currentUser.getRole().equals(User.UserRole.STAFF) &&
-            !invoice.getParcel().getSender().getId().equals(currentUser.getId())) {
+            !invoice.getSenderId().equals(currentUser.getId())) {
             return ResponseEntity.forbidden().build();
         }
         
@@ -108,7 +126,7 @@ public class InvoiceController {
             return ResponseEntity.forbidden().build();
         }
         
-        Optional<Invoice> invoiceOpt = invoiceService.findByParcel(parcel);
+        Optional<InvoiceResponseDto> invoiceOpt = invoiceService.findDtoByParcelId(parcel.getId());
         
         if (invoiceOpt.isEmpty()) {
             Map<String, String> error = new HashMap<>();
@@ -120,11 +138,12 @@ public class InvoiceController {
     }
     
     @GetMapping("/my-invoices")
-    @Operation(summary = "Get user's invoices", description = "Get all invoices for the authenticated user")
-    public ResponseEntity<List<Invoice>> getUserInvoices(Authentication authentication) {
+    @Operation(summary = "Get user's invoices", description = "Keyset page of the authenticated user's invoices, newest first; pass the returned cursor for the next page")
+    public ResponseEntity<?> getUserInvoices(@RequestParam(required = false) String cursor,
+                                             @RequestParam(required = false) Integer limit,
+                                             Authentication authentication) {
         User currentUser = (User) authentication.getPrincipal();
-        List<Invoice> invoices = invoiceService.findBySenderId(currentUser.getId());
-        return ResponseEntity.ok(invoices);
+        return page(() -> invoiceService.findPageBySenderId(currentUser.getId(), cursor, resolveLimit(limit)));
     }
     
     @PutMapping("/{invoiceId}/payment")
@@ -140,7 +159,21 @@ public class InvoiceController {
             Optional<Invoice> invoiceOpt = invoiceService.findByInvoiceNumber(invoiceId.toString());
             
             Invoice updatedInvoice = invoiceService.updatePaymentStatus(invoiceId, paymentStatus, paymentMethod);
-            return ResponseEntity.ok(updatedInvoice);
+            return ResponseEntity.ok(invoiceService.findDtoById(updatedInvoice.getId()).orElseThrow());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @PostMapping(value = "/reconcile", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @Operation(summary = "Reconcile bank statement", description = "Stream a CSV bank statement with invoice_number, amount and optional value_date columns, mark the invoices it pays in full as PAID and report unmatched lines and partial payments. Credits are not carried over between statements, so an invoice paid across several statements is never settled here (Admin/Staff only)")
+    public ResponseEntity<?> reconcileStatement(InputStream statement, 
+                                                @RequestParam(defaultValue = "false") boolean gzip) {
+        try {
+            return ResponseEntity.ok(reconciliationService.reconcile(statement, gzip));
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -150,25 +183,72 @@ public class InvoiceController {
     
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
-    @Operation(summary = "Get all invoices", description = "Get all invoices (Admin/Staff only)")
-    public ResponseEntity<List<Invoice>> getAllInvoices() {
-        List<Invoice> invoices = invoiceService.findAll();
-        return ResponseEntity.ok(invoices);
+    @Operation(summary = "Get all invoices", description = "Keyset page of all invoices, newest first; pass the returned cursor for the next page, or use /all/stream for every invoice (Admin/Staff only)")
+    public ResponseEntity<?> getAllInvoices(@RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer limit) {
+        return page(() -> invoiceService.findPage(cursor, resolveLimit(limit)));
+    }
+    
+    @GetMapping(value = "/all/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @Operation(summary = "Stream all invoices", description = "Stream all invoices as newline-delimited JSON (Admin/Staff only)")
+    public ResponseEntity<StreamingResponseBody> streamAllInvoices() {
+        StreamingResponseBody body = out -> invoiceService.streamAll(out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
     
     @GetMapping("/status/{status}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
-    @Operation(summary = "Get invoices by payment status", description = "Get all invoices with specific payment status (Admin/Staff only)")
-    public ResponseEntity<List<Invoice>> getInvoicesByStatus(@PathVariable Invoice.PaymentStatus status) {
-        List<Invoice> invoices = invoiceService.findByPaymentStatus(status);
-        return ResponseEntity.ok(invoices);
+    @Operation(summary = "Get invoices by payment status", description = "Keyset page of the invoices with a specific payment status, newest first; pass the returned cursor for the next page, or use /status/{status}/stream for every invoice (Admin/Staff only)")
+    public ResponseEntity<?> getInvoicesByStatus(@PathVariable Invoice.PaymentStatus status,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer limit) {
+        return page(() -> invoiceService.findPageByPaymentStatus(status, cursor, resolveLimit(limit)));
+    }
+    
+    @GetMapping(value = "/status/{status}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @Operation(summary = "Stream invoices by payment status", description = "Stream invoices with specific payment status as newline-delimited JSON (Admin/Staff only)")
+    public ResponseEntity<StreamingResponseBody> streamInvoicesByStatus(@PathVariable Invoice.PaymentStatus status) {
+        StreamingResponseBody body = out -> invoiceService.streamByPaymentStatus(status, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
     
     @GetMapping("/overdue")
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
-    @Operation(summary = "Get overdue invoices", description = "Get all overdue invoices (Admin/Staff only)")
-    public ResponseEntity<List<Invoice>> getOverdueInvoices() {
-        List<Invoice> invoices = invoiceService.findOverdueInvoices();
-        return ResponseEntity.ok(invoices);
+    @Operation(summary = "Get overdue invoices", description = "Keyset page of the invoices past their due date, newest first; pass the returned cursor for the next page (Admin/Staff only)")
+    public ResponseEntity<?> getOverdueInvoices(@RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) Integer limit) {
+        return page(() -> invoiceService.findOverduePage(cursor, resolveLimit(limit)));
+    }
+    
+    @GetMapping("/revenue")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @Operation(summary = "Get revenue by date range", description = "Paid revenue with startDate <= paid date <= endDate, in total and per payment method (Admin/Staff only)")
+    public ResponseEntity<?> getRevenue(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        if (endDate.isBefore(startDate)) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "endDate must not be before startDate");
+            return ResponseEntity.badRequest().body(error);
+        }
+        return ResponseEntity.ok(invoiceService.getRevenueByDateRange(startDate, endDate));
+    }
+    
+    private int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
+    
+    private ResponseEntity<?> page(Supplier<CursorPageDto<InvoiceResponseDto>> query) {
+        try {
+            return ResponseEntity.ok(query.get());
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
     }
 }
\ No newline at end of file
@@ -1,24 +1,33 @@
 package com.parcelmanagement.controller;
 
+import com.parcelmanagement.dto.BatchBookingResultDto;
+import com.parcelmanagement.dto.CursorPageDto;
+import com.parcelmanagement.dto.OverdueParcelDto;
 import com.parcelmanagement.dto.ParcelBookingDto;
 import com.parcelmanagement.dto.ParcelResponseDto;
 import com.parcelmanagement.entity.Parcel;
 import com.parcelmanagement.entity.User;
+import com.parcelmanagement.service.OverdueParcelDetector;
 import com.parcelmanagement.service.ParcelService;
+import com.parcelmanagement.service.ParcelStatusCounterService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/parcels")
@@ -30,6 +39,21 @@ public class ParcelController {
     @Autowired
     private ParcelService parcelService;
     
+    @Autowired
+    private ParcelStatusCounterService statusCounterService;
+    
+    @Autowired
+    private OverdueParcelDetector overdueDetector;
+    
+    @Value("${parcel.booking.max-batch-size:20000}")
+    private int maxBatchSize;
+    
+    @Value("${parcel.listing.default-page-size:50}")
+    private int defaultPageSize;
+    
+    @Value("${parcel.listing.max-page-size:500}")
+    private int maxPageSize;
+    
     @PostMapping("/book")
     @Operation(summary = "Book a new parcel", description = "Create a new parcel booking")
     public ResponseEntity<?> bookParcel(@Valid @RequestBody ParcelBookingDto bookingDto, 
@@ -47,30 +71,74 @@ public class ParcelController {
         }
     }
     
+    @PostMapping("/book/batch")
+    @Operation(summary = "Book parcels in bulk", description = "Book a list of parcels in batched transactions, reporting the result of each row; a failing row does not fail the others")
+    public ResponseEntity<?> bookParcels(@RequestBody List<ParcelBookingDto> bookingDtos, 
+                                        Authentication authentication) {
+        if (bookingDtos.isEmpty() || bookingDtos.size() > maxBatchSize) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Batch must contain between 1 and " + maxBatchSize + " parcels");
+            return ResponseEntity.badRequest().body(error);
+        }
+        
+        try {
+            User currentUser = (User) authentication.getPrincipal();
+            List<BatchBookingResultDto> results = parcelService.bookParcels(bookingDtos, currentUser.getId());
+            
+            long succeeded = results.stream().filter(BatchBookingResultDto::isSuccess).count();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("total", results.size());
+            response.put("succeeded", succeeded);
+            response.put("failed", results.size() - succeeded);
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
     @GetMapping("/my-parcels")
     @Operation(summary = "Get user's parcels", description = "Get all parcels for the authenticated user")
-    public ResponseEntity<List<ParcelResponseDto>> getUserParcels(Authentication authentication) {
+    public ResponseEntity<?> getUserParcels(@RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer limit,
+                                            Authentication authentication) {
         User currentUser = (User) authentication.getPrincipal();
-        List<Parcel> parcels = parcelService.findByUserId(currentUser.getId());
-        List<ParcelResponseDto> response = parcelService.convertToDtoList(parcels);
+        if (isPaged(cursor, limit)) {
+            return page(() -> parcelService.findPageByUserId(currentUser.getId(), cursor, resolveLimit(limit)));
+        }
+        
+        List<ParcelResponseDto> response = parcelService.findDtosByUserId(currentUser.getId());
         return ResponseEntity.ok(response);
     }
     
     @GetMapping("/sent")
     @Operation(summary = "Get sent parcels", description = "Get all parcels sent by the authenticated user")
-    public ResponseEntity<List<ParcelResponseDto>> getSentParcels(Authentication authentication) {
+    public ResponseEntity<?> getSentParcels(@RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer limit,
+                                            Authentication authentication) {
         User currentUser = (User) authentication.getPrincipal();
-        List<Parcel> parcels = parcelService.findBySender(currentUser);
-        List<ParcelResponseDto> response = parcelService.convertToDtoList(parcels);
+        if (isPaged(cursor, limit)) {
+            return page(() -> parcelService.findPageBySenderId(currentUser.getId(), cursor, resolveLimit(limit)));
+        }
+        
+        List<ParcelResponseDto> response = parcelService.findDtosBySenderId(currentUser.getId());
         return ResponseEntity.ok(response);
     }
     
     @GetMapping("/received")
     @Operation(summary = "Get received parcels", description = "Get all parcels received by the authenticated user")
-    public ResponseEntity<List<ParcelResponseDto>> getReceivedParcels(Authentication authentication) {
+    public ResponseEntity<?> getReceivedParcels(@RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) Integer limit,
+                                                Authentication authentication) {
         User currentUser = (User) authentication.getPrincipal();
-        List<Parcel> parcels = parcelService.findByReceiver(currentUser);
-        List<ParcelResponseDto> response = parcelService.convertToDtoList(parcels);
+        if (isPaged(cursor, limit)) {
+            return page(() -> parcelService.findPageByReceiverId(currentUser.getId(), cursor, resolveLimit(limit)));
+        }
+        
+        List<ParcelResponseDto> response = parcelService.findDtosByReceiverId(currentUser.getId());
         return ResponseEntity.ok(response);
     }
     
@@ -118,21 +186,71 @@ public class ParcelController {
         }
     }
     
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @Operation(summary = "Parcel counts by status", description = "Current number of parcels in each status (Admin/Staff only)")
+    public ResponseEntity<Map<String, Object>> getParcelStats() {
+        return ResponseEntity.ok(statusCounterService.stats());
+    }
+    
+    @GetMapping("/overdue")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @Operation(summary = "Get overdue parcels", description = "Active parcels past their estimated delivery date, oldest first (Admin/Staff only)")
+    public ResponseEntity<List<OverdueParcelDto>> getOverdueParcels() {
+        return ResponseEntity.ok(overdueDetector.getOverdueParcels());
+    }
+    
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
-    @Operation(summary = "Get all parcels", description = "Get all parcels (Admin/Staff only)")
-    public ResponseEntity<List<ParcelResponseDto>> getAllParcels() {
-        List<Parcel> parcels = parcelService.findAll();
-        List<ParcelResponseDto> response = parcelService.convertToDtoList(parcels);
-        return ResponseEntity.ok(response);
+    @Operation(summary = "Get all parcels", description = "Keyset page of all parcels, newest first; pass the returned cursor for the next page, or use /all/stream for every parcel (Admin/Staff only)")
+    public ResponseEntity<?> getAllParcels(@RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer limit) {
+        return page(() -> parcelService.findPage(cursor, resolveLimit(limit)));
+    }
+    
+    @GetMapping(value = "/all/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @Operation(summary = "Stream all parcels", description = "Stream all parcels as newline-delimited JSON (Admin/Staff only)")
+    public ResponseEntity<StreamingResponseBody> streamAllParcels() {
+        StreamingResponseBody body = out -> parcelService.streamAll(out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
     
     @GetMapping("/status/{status}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
-    @Operation(summary = "Get parcels by status", description = "Get all parcels with specific status (Admin/Staff only)")
-    public ResponseEntity<List<ParcelResponseDto>> getParcelsByStatus(@PathVariable Parcel.ParcelStatus status) {
-        List<Parcel> parcels = parcelService.findByStatus(status);
-        List<ParcelResponseDto> response = parcelService.convertToDtoList(parcels);
-        return ResponseEntity.ok(response);
+    @Operation(summary = "Get parcels by status", description = "Keyset page of the parcels with a specific status, newest first; pass the returned cursor for the next page, or use /status/{status}/stream for every parcel (Admin/Staff only)")
+    public ResponseEntity<?> getParcelsByStatus(@PathVariable Parcel.ParcelStatus status,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) Integer limit) {
+        return page(() -> parcelService.findPageByStatus(status, cursor, resolveLimit(limit)));
+    }
+    
+    @GetMapping(value = "/status/{status}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @Operation(summary = "Stream parcels by status", description = "Stream parcels with specific status as newline-delimited JSON (Admin/Staff only)")
+    public ResponseEntity<StreamingResponseBody> streamParcelsByStatus(@PathVariable Parcel.ParcelStatus status) {
+        StreamingResponseBody body = out -> parcelService.streamByStatus(status, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    private boolean isPaged(String cursor, Integer limit) {
+        return cursor != null || limit != null;
+    }
+    
+    private int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
+    
+    private ResponseEntity<?> page(Supplier<CursorPageDto<ParcelResponseDto>> query) {
+        try {
+            return ResponseEntity.ok(query.get());
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
     }
 }
\ No newline at end of file
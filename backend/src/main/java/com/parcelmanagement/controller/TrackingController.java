@@ -1,17 +1,28 @@
 package com.parcelmanagement.controller;
 
+import com.parcelmanagement.dto.ParcelTrackingSummaryDto;
+import com.parcelmanagement.dto.ScanDto;
 import com.parcelmanagement.dto.TrackingResponseDto;
 import com.parcelmanagement.dto.TrackingUpdateDto;
 import com.parcelmanagement.entity.Parcel;
 import com.parcelmanagement.entity.Tracking;
 import com.parcelmanagement.entity.User;
+import com.parcelmanagement.security.StreamTicketService;
 import com.parcelmanagement.service.ParcelService;
+import com.parcelmanagement.service.ScanDeduplicator;
+import com.parcelmanagement.service.ScanIngestionService;
+import com.parcelmanagement.service.TrackingEventHub;
+import com.parcelmanagement.service.TrackingResponseCache;
 import com.parcelmanagement.service.TrackingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -34,25 +45,86 @@ public class TrackingController {
     @Autowired
     private ParcelService parcelService;
     
+    @Autowired
+    private TrackingResponseCache trackingResponseCache;
+    
+    @Autowired
+    private TrackingEventHub trackingEventHub;
+    
+    @Autowired
+    private StreamTicketService streamTicketService;
+    
+    @Autowired
+    private ScanIngestionService scanIngestionService;
+    
+    @Autowired
+    private ScanDeduplicator scanDeduplicator;
+    
+    @Value("${parcel.scans.max-request-size:5000}")
+    private int maxScansPerRequest;
+    
     @GetMapping("/public/{trackingNumber}")
     @Operation(summary = "Track parcel by tracking number", description = "Get tracking history for a parcel by tracking number (public)")
     public ResponseEntity<?> trackParcel(@PathVariable String trackingNumber) {
-        Optional<Parcel> parcelOpt = parcelService.findByTrackingNumber(trackingNumber);
+        // Rendered JSON is cached until the parcel's next tracking update
+        byte[] response = trackingResponseCache.get(trackingNumber, trackingService::renderPublicTracking);
         
-        if (parcelOpt.isEmpty()) {
-            Map<String, String> error = new HashMap<>();
-            error.put("error", "Parcel not found with tracking number: " + trackingNumber);
+        if (response == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(response);
+    }
+    
+    @GetMapping("/public/{trackingNumber}/latest")
+    @Operation(summary = "Latest tracking update", description = "Get the current status, location and time of a parcel by tracking number (public)")
+    public ResponseEntity<?> getLatestTracking(@PathVariable String trackingNumber) {
+        return trackingService.getTrackingSummary(trackingNumber)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping("/stream/{trackingNumber}")
+    @Operation(summary = "Stream tracking updates", description = "Server-Sent Events with every new tracking update of a parcel (public)")
+    public ResponseEntity<?> streamParcelTracking(@PathVariable String trackingNumber) {
+        if (!parcelService.existsByTrackingNumber(trackingNumber)) {
             return ResponseEntity.notFound().build();
         }
         
-        List<Tracking> trackings = trackingService.getTrackingHistory(trackingNumber);
-        List<TrackingResponseDto> response = trackingService.convertToDtoList(trackings);
+        try {
+            return ResponseEntity.ok(trackingEventHub.subscribeToParcel(trackingNumber));
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+        }
+    }
+    
+    @PostMapping("/stream/ticket")
+    @SecurityRequirement(name = "bearerAuth")
+    @Operation(summary = "Issue stream ticket", description = "Short-lived, single-use ticket for opening the user's tracking stream from an EventSource, which cannot send the Authorization header")
+    public ResponseEntity<?> issueStreamTicket(Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
         
-        Map<String, Object> result = new HashMap<>();
-        result.put("parcel", parcelService.convertToDto(parcelOpt.get()));
-        result.put("trackingHistory", response);
+        Map<String, Object> response = new HashMap<>();
+        response.put("ticket", streamTicketService.issue(currentUser.getUsername()));
+        response.put("expiresInMs", streamTicketService.getTicketTtlMillis());
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/stream/user")
+    @SecurityRequirement(name = "bearerAuth")
+    @Operation(summary = "Stream user's tracking updates", description = "Server-Sent Events with tracking updates of all parcels the user sends or receives; authenticate with the Authorization header or a ticket from POST /stream/ticket")
+    public ResponseEntity<?> streamUserTracking(Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
         
-        return ResponseEntity.ok(result);
+        try {
+            return ResponseEntity.ok(trackingEventHub.subscribeToUser(currentUser.getId()));
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+        }
     }
     
     @GetMapping("/parcel/{parcelId}")
@@ -78,8 +150,7 @@ public class TrackingController {
             return ResponseEntity.forbidden().build();
         }
         
-        List<Tracking> trackings = trackingService.getTrackingHistoryByParcelId(parcelId);
-        List<TrackingResponseDto> response = trackingService.convertToDtoList(trackings);
+        List<TrackingResponseDto> response = trackingService.getTrackingHistoryByParcelId(parcelId);
         
         return ResponseEntity.ok(response);
     }
@@ -91,6 +162,15 @@ public class TrackingController {
     public ResponseEntity<?> addTrackingUpdate(@PathVariable Long parcelId,
                                               @Valid @RequestBody TrackingUpdateDto updateDto,
                                               Authentication authentication) {
+        String scanKey = ScanDeduplicator.key(parcelId, updateDto.getScanId(), updateDto.getStatus(), 
+                updateDto.getLocation(), updateDto.getScannedAt());
+        if (!scanDeduplicator.firstSeen(scanKey)) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("duplicate", true);
+            response.put("message", "Tracking update was already recorded");
+            return ResponseEntity.ok(response);
+        }
+        
         try {
             User currentUser = (User) authentication.getPrincipal();
             
@@ -105,27 +185,70 @@ public class TrackingController {
             TrackingResponseDto response = trackingService.convertToDto(tracking);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
+            scanDeduplicator.forget(scanKey);
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
             return ResponseEntity.badRequest().body(error);
         }
     }
     
-    @GetMapping("/user/parcels")
+    @GetMapping("/user/latest")
     @SecurityRequirement(name = "bearerAuth")
-    @Operation(summary = "Get user's parcel tracking", description = "Get tracking for all user's parcels")
-    public ResponseEntity<Map<String, Object>> getUserParcelTracking(Authentication authentication) {
+    @Operation(summary = "Get user's parcel statuses", description = "Get the latest tracking update of each of the user's parcels, most recently updated first")
+    public ResponseEntity<List<ParcelTrackingSummaryDto>> getUserLatestTracking(Authentication authentication) {
         User currentUser = (User) authentication.getPrincipal();
-        List<Parcel> userParcels = parcelService.findByUserId(currentUser.getId());
+        return ResponseEntity.ok(trackingService.getUserTrackingSummaries(currentUser.getId()));
+    }
+    
+    @PostMapping("/scans")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @SecurityRequirement(name = "bearerAuth")
+    @Operation(summary = "Ingest hub scans", description = "Queue a list of hub scans for batched writing; answers 429 when the queue is full (Admin/Staff only)")
+    public ResponseEntity<?> ingestScans(@RequestBody List<ScanDto> scans, Authentication authentication) {
+        if (scans.isEmpty() || scans.size() > maxScansPerRequest) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Request must contain between 1 and " + maxScansPerRequest + " scans");
+            return ResponseEntity.badRequest().body(error);
+        }
+        
+        String violations = scanIngestionService.validate(scans);
+        if (violations != null) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", violations);
+            return ResponseEntity.badRequest().body(error);
+        }
         
-        Map<String, Object> result = new HashMap<>();
+        // Scanner retries are dropped here; a refused submission is forgotten so its resend is accepted
+        List<ScanDto> freshScans = scanDeduplicator.filterScans(scans);
+        User currentUser = (User) authentication.getPrincipal();
+        if (!freshScans.isEmpty() && !scanIngestionService.submit(freshScans, currentUser.getId())) {
+            scanDeduplicator.forgetScans(freshScans);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Scan queue is full, retry later");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(error);
+        }
         
-        for (Parcel parcel : userParcels) {
-            List<Tracking> trackings = trackingService.getTrackingHistoryByParcel(parcel);
-            List<TrackingResponseDto> trackingDtos = trackingService.convertToDtoList(trackings);
-            result.put(parcel.getTrackingNumber(), trackingDtos);
+        Map<String, Object> response = new HashMap<>();
+        response.put("accepted", freshScans.size());
+        response.put("duplicates", scans.size() - freshScans.size());
+        response.put("queueDepth", scanIngestionService.getQueueDepth());
+        return ResponseEntity.accepted().body(response);
+    }
+    
+    @GetMapping("/user/parcels")
+    @SecurityRequirement(name = "bearerAuth")
+    @Operation(summary = "Get user's parcel tracking", description = "Get tracking for all user's parcels, optionally only the latest updates of each parcel")
+    public ResponseEntity<?> getUserParcelTracking(@RequestParam(required = false) Integer latest, 
+                                                   Authentication authentication) {
+        if (latest != null && latest < 1) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "latest must be at least 1");
+            return ResponseEntity.badRequest().body(error);
         }
         
-        return ResponseEntity.ok(result);
+        User currentUser = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(trackingService.getUserTrackingOverview(currentUser.getId(), latest));
     }
 }
\ No newline at end of file
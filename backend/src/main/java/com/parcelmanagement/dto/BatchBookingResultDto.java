@@ -0,0 +1,45 @@
+package com.parcelmanagement.dto;
+
+public class BatchBookingResultDto {
+    
+    private int index;
+    private boolean success;
+    private Long parcelId;
+    private String trackingNumber;
+    private String error;
+    
+    // Constructors
+    public BatchBookingResultDto() {}
+    
+    public BatchBookingResultDto(int index, boolean success, Long parcelId, String trackingNumber, String error) {
+        this.index = index;
+        this.success = success;
+        this.parcelId = parcelId;
+        this.trackingNumber = trackingNumber;
+        this.error = error;
+    }
+    
+    public static BatchBookingResultDto success(int index, Long parcelId, String trackingNumber) {
+        return new BatchBookingResultDto(index, true, parcelId, trackingNumber, null);
+    }
+    
+    public static BatchBookingResultDto failure(int index, String error) {
+        return new BatchBookingResultDto(index, false, null, null, error);
+    }
+    
+    // Getters and Setters
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+    
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+    
+    public Long getParcelId() { return parcelId; }
+    public void setParcelId(Long parcelId) { this.parcelId = parcelId; }
+    
+    public String getTrackingNumber() { return trackingNumber; }
+    public void setTrackingNumber(String trackingNumber) { this.trackingNumber = trackingNumber; }
+    
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
\ No newline at end of file
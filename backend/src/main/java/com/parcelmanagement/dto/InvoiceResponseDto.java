@@ -0,0 +1,115 @@
+package com.parcelmanagement.dto;
+
+import com.parcelmanagement.entity.Invoice;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class InvoiceResponseDto {
+    
+    private Long id;
+    private String invoiceNumber;
+    
+    // Parcel Information
+    private Long parcelId;
+    private String trackingNumber;
+    
+    // Sender Information
+    private Long senderId;
+    private String senderName;
+    private String senderEmail;
+    
+    // Amounts
+    private BigDecimal baseAmount;
+    private BigDecimal taxAmount;
+    private BigDecimal discountAmount;
+    private BigDecimal totalAmount;
+    
+    private Invoice.PaymentStatus paymentStatus;
+    private Invoice.PaymentMethod paymentMethod;
+    private LocalDateTime issuedDate;
+    private LocalDateTime dueDate;
+    private LocalDateTime paidDate;
+    private String notes;
+    
+    // Constructors
+    public InvoiceResponseDto() {}
+    
+    // Used by the InvoiceRepository constructor-projection queries
+    public InvoiceResponseDto(Long id, String invoiceNumber, Long parcelId, String trackingNumber, 
+                              Long senderId, String senderName, String senderEmail, 
+                              BigDecimal baseAmount, BigDecimal taxAmount, BigDecimal discountAmount, 
+                              BigDecimal totalAmount, Invoice.PaymentStatus paymentStatus, 
+                              Invoice.PaymentMethod paymentMethod, LocalDateTime issuedDate, 
+                              LocalDateTime dueDate, LocalDateTime paidDate, String notes) {
+        this.id = id;
+        this.invoiceNumber = invoiceNumber;
+        this.parcelId = parcelId;
+        this.trackingNumber = trackingNumber;
+        this.senderId = senderId;
+        this.senderName = senderName;
+        this.senderEmail = senderEmail;
+        this.baseAmount = baseAmount;
+        this.taxAmount = taxAmount;
+        this.discountAmount = discountAmount;
+        this.totalAmount = totalAmount;
+        this.paymentStatus = paymentStatus;
+        this.paymentMethod = paymentMethod;
+        this.issuedDate = issuedDate;
+        this.dueDate = dueDate;
+        this.paidDate = paidDate;
+        this.notes = notes;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getInvoiceNumber() { return invoiceNumber; }
+    public void setInvoiceNumber(String invoiceNumber) { this.invoiceNumber = invoiceNumber; }
+    
+    public Long getParcelId() { return parcelId; }
+    public void setParcelId(Long parcelId) { this.parcelId = parcelId; }
+    
+    public String getTrackingNumber() { return trackingNumber; }
+    public void setTrackingNumber(String trackingNumber) { this.trackingNumber = trackingNumber; }
+    
+    public Long getSenderId() { return senderId; }
+    public void setSenderId(Long senderId) { this.senderId = senderId; }
+    
+    public String getSenderName() { return senderName; }
+    public void setSenderName(String senderName) { this.senderName = senderName; }
+    
+    public String getSenderEmail() { return senderEmail; }
+    public void setSenderEmail(String senderEmail) { this.senderEmail = senderEmail; }
+    
+    public BigDecimal getBaseAmount() { return baseAmount; }
+    public void setBaseAmount(BigDecimal baseAmount) { this.baseAmount = baseAmount; }
+    
+    public BigDecimal getTaxAmount() { return taxAmount; }
+    public void setTaxAmount(BigDecimal taxAmount) { this.taxAmount = taxAmount; }
+    
+    public BigDecimal getDiscountAmount() { return discountAmount; }
+    public void setDiscountAmount(BigDecimal discountAmount) { this.discountAmount = discountAmount; }
+    
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+    
+    public Invoice.PaymentStatus getPaymentStatus() { return paymentStatus; }
+    public void setPaymentStatus(Invoice.PaymentStatus paymentStatus) { this.paymentStatus = paymentStatus; }
+    
+    public Invoice.PaymentMethod getPaymentMethod() { return paymentMethod; }
+    public void setPaymentMethod(Invoice.PaymentMethod paymentMethod) { this.paymentMethod = paymentMethod; }
+    
+    public LocalDateTime getIssuedDate() { return issuedDate; }
+    public void setIssuedDate(LocalDateTime issuedDate) { this.issuedDate = issuedDate; }
+    
+    public LocalDateTime getDueDate() { return dueDate; }
+    public void setDueDate(LocalDateTime dueDate) { this.dueDate = dueDate; }
+    
+    public LocalDateTime getPaidDate() { return paidDate; }
+    public void setPaidDate(LocalDateTime paidDate) { this.paidDate = paidDate; }
+    
+    public String getNotes() { return notes; }
+    public void setNotes(String notes) { this.notes = notes; }
+}
\ No newline at end of file
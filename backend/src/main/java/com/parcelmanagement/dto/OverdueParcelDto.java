@@ -0,0 +1,34 @@
+package com.parcelmanagement.dto;
+
+import java.time.LocalDateTime;
+
+public class OverdueParcelDto {
+    
+    private Long parcelId;
+    private String trackingNumber;
+    private LocalDateTime estimatedDeliveryDate;
+    private LocalDateTime detectedAt;
+    
+    // Constructors
+    public OverdueParcelDto() {}
+    
+    public OverdueParcelDto(Long parcelId, String trackingNumber, LocalDateTime estimatedDeliveryDate, LocalDateTime detectedAt) {
+        this.parcelId = parcelId;
+        this.trackingNumber = trackingNumber;
+        this.estimatedDeliveryDate = estimatedDeliveryDate;
+        this.detectedAt = detectedAt;
+    }
+    
+    // Getters and Setters
+    public Long getParcelId() { return parcelId; }
+    public void setParcelId(Long parcelId) { this.parcelId = parcelId; }
+    
+    public String getTrackingNumber() { return trackingNumber; }
+    public void setTrackingNumber(String trackingNumber) { this.trackingNumber = trackingNumber; }
+    
+    public LocalDateTime getEstimatedDeliveryDate() { return estimatedDeliveryDate; }
+    public void setEstimatedDeliveryDate(LocalDateTime estimatedDeliveryDate) { this.estimatedDeliveryDate = estimatedDeliveryDate; }
+    
+    public LocalDateTime getDetectedAt() { return detectedAt; }
+    public void setDetectedAt(LocalDateTime detectedAt) { this.detectedAt = detectedAt; }
+}
\ No newline at end of file
@@ -38,6 +38,36 @@ public class ParcelResponseDto {
     // Constructors
     public ParcelResponseDto() {}
     
+    // Used by the ParcelRepository constructor-projection queries
+    public ParcelResponseDto(Long id, String trackingNumber, String description, Double weight, 
+                             BigDecimal declaredValue, BigDecimal shippingCost, Parcel.ParcelStatus status, 
+                             Parcel.Priority priority, String senderName, String senderEmail, 
+                             String receiverName, String receiverPhone, String receiverEmail, 
+                             String pickupLocation, String deliveryLocation, String specialInstructions, 
+                             LocalDateTime estimatedDeliveryDate, LocalDateTime actualDeliveryDate, 
+                             LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.trackingNumber = trackingNumber;
+        this.description = description;
+        this.weight = weight;
+        this.declaredValue = declaredValue;
+        this.shippingCost = shippingCost;
+        this.status = status;
+        this.priority = priority;
+        this.senderName = senderName;
+        this.senderEmail = senderEmail;
+        this.receiverName = receiverName;
+        this.receiverPhone = receiverPhone;
+        this.receiverEmail = receiverEmail;
+        this.pickupLocation = pickupLocation;
+        this.deliveryLocation = deliveryLocation;
+        this.specialInstructions = specialInstructions;
+        this.estimatedDeliveryDate = estimatedDeliveryDate;
+        this.actualDeliveryDate = actualDeliveryDate;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+    
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -0,0 +1,76 @@
+package com.parcelmanagement.dto;
+
+import com.parcelmanagement.entity.Parcel;
+
+import java.time.LocalDateTime;
+
+/**
+ * The parcel fields a status transition reads, loaded in one query instead of the full entity.
+ */
+public class ParcelStatusSnapshot {
+    
+    private Long id;
+    private String trackingNumber;
+    private Parcel.ParcelStatus status;
+    private Long version;
+    private Parcel.Priority priority;
+    private LocalDateTime createdAt;
+    private LocalDateTime estimatedDeliveryDate;
+    private Long senderId;
+    private Long receiverId;
+    private String pickupCity;
+    private String deliveryCity;
+    
+    // Constructors
+    public ParcelStatusSnapshot() {}
+    
+    public ParcelStatusSnapshot(Long id, String trackingNumber, Parcel.ParcelStatus status, Long version, 
+                                Parcel.Priority priority, LocalDateTime createdAt, LocalDateTime estimatedDeliveryDate, 
+                                Long senderId, Long receiverId, String pickupCity, String deliveryCity) {
+        this.id = id;
+        this.trackingNumber = trackingNumber;
+        this.status = status;
+        this.version = version;
+        this.priority = priority;
+        this.createdAt = createdAt;
+        this.estimatedDeliveryDate = estimatedDeliveryDate;
+        this.senderId = senderId;
+        this.receiverId = receiverId;
+        this.pickupCity = pickupCity;
+        this.deliveryCity = deliveryCity;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getTrackingNumber() { return trackingNumber; }
+    public void setTrackingNumber(String trackingNumber) { this.trackingNumber = trackingNumber; }
+    
+    public Parcel.ParcelStatus getStatus() { return status; }
+    public void setStatus(Parcel.ParcelStatus status) { this.status = status; }
+    
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
+    public Parcel.Priority getPriority() { return priority; }
+    public void setPriority(Parcel.Priority priority) { this.priority = priority; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public LocalDateTime getEstimatedDeliveryDate() { return estimatedDeliveryDate; }
+    public void setEstimatedDeliveryDate(LocalDateTime estimatedDeliveryDate) { this.estimatedDeliveryDate = estimatedDeliveryDate; }
+    
+    public Long getSenderId() { return senderId; }
+    public void setSenderId(Long senderId) { this.senderId = senderId; }
+    
+    public Long getReceiverId() { return receiverId; }
+    public void setReceiverId(Long receiverId) { this.receiverId = receiverId; }
+    
+    public String getPickupCity() { return pickupCity; }
+    public void setPickupCity(String pickupCity) { this.pickupCity = pickupCity; }
+    
+    public String getDeliveryCity() { return deliveryCity; }
+    public void setDeliveryCity(String deliveryCity) { this.deliveryCity = deliveryCity; }
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.parcelmanagement.dto;
+
+import com.parcelmanagement.entity.Parcel;
+
+import java.time.LocalDateTime;
+
+public class ParcelTrackingSummaryDto {
+    
+    private Long parcelId;
+    private String trackingNumber;
+    private Long trackingId;
+    private Parcel.ParcelStatus status;
+    private String location;
+    private String description;
+    private LocalDateTime timestamp;
+    private String updatedBy;
+    
+    // Constructors
+    public ParcelTrackingSummaryDto() {}
+    
+    public ParcelTrackingSummaryDto(Long parcelId, String trackingNumber, Long trackingId, Parcel.ParcelStatus status, 
+                                    String location, String description, LocalDateTime timestamp, String updatedBy) {
+        this.parcelId = parcelId;
+        this.trackingNumber = trackingNumber;
+        this.trackingId = trackingId;
+        this.status = status;
+        this.location = location;
+        this.description = description;
+        this.timestamp = timestamp;
+        this.updatedBy = updatedBy;
+    }
+    
+    // Getters and Setters
+    public Long getParcelId() { return parcelId; }
+    public void setParcelId(Long parcelId) { this.parcelId = parcelId; }
+    
+    public String getTrackingNumber() { return trackingNumber; }
+    public void setTrackingNumber(String trackingNumber) { this.trackingNumber = trackingNumber; }
+    
+    public Long getTrackingId() { return trackingId; }
+    public void setTrackingId(Long trackingId) { this.trackingId = trackingId; }
+    
+    public Parcel.ParcelStatus getStatus() { return status; }
+    public void setStatus(Parcel.ParcelStatus status) { this.status = status; }
+    
+    public String getLocation() { return location; }
+    public void setLocation(String location) { this.location = location; }
+    
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+    
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+    
+    public String getUpdatedBy() { return updatedBy; }
+    public void setUpdatedBy(String updatedBy) { this.updatedBy = updatedBy; }
+}
\ No newline at end of file
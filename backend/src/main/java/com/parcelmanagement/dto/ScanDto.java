@@ -0,0 +1,59 @@
+package com.parcelmanagement.dto;
+
+import com.parcelmanagement.entity.Parcel;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDateTime;
+
+public class ScanDto {
+    
+    @NotBlank(message = "Tracking number is required")
+    private String trackingNumber;
+    
+    @NotNull(message = "Status is required")
+    private Parcel.ParcelStatus status;
+    
+    @NotBlank(message = "Location is required")
+    private String location;
+    
+    private String description;
+    
+    // When the hub scanned the parcel; the time of ingestion if absent
+    private LocalDateTime timestamp;
+    
+    // Optional client-generated id that stays the same when the scanner retries
+    @Size(max = 64, message = "Scan id must be at most 64 characters")
+    private String scanId;
+    
+    // Constructors
+    public ScanDto() {}
+    
+    public ScanDto(String trackingNumber, Parcel.ParcelStatus status, String location, String description, LocalDateTime timestamp) {
+        this.trackingNumber = trackingNumber;
+        this.status = status;
+        this.location = location;
+        this.description = description;
+        this.timestamp = timestamp;
+    }
+    
+    // Getters and Setters
+    public String getTrackingNumber() { return trackingNumber; }
+    public void setTrackingNumber(String trackingNumber) { this.trackingNumber = trackingNumber; }
+    
+    public Parcel.ParcelStatus getStatus() { return status; }
+    public void setStatus(Parcel.ParcelStatus status) { this.status = status; }
+    
+    public String getLocation() { return location; }
+    public void setLocation(String location) { this.location = location; }
+    
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+    
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+    
+    public String getScanId() { return scanId; }
+    public void setScanId(String scanId) { this.scanId = scanId; }
+}
\ No newline at end of file
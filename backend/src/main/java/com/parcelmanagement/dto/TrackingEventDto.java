@@ -0,0 +1,57 @@
+package com.parcelmanagement.dto;
+
+import com.parcelmanagement.entity.Parcel;
+
+import java.time.LocalDateTime;
+
+public class TrackingEventDto {
+    
+    private Long trackingId;
+    private Long parcelId;
+    private String trackingNumber;
+    private Parcel.ParcelStatus status;
+    private String location;
+    private String description;
+    private LocalDateTime timestamp;
+    private LocalDateTime estimatedDeliveryDate;
+    
+    // Constructors
+    public TrackingEventDto() {}
+    
+    public TrackingEventDto(Long trackingId, Long parcelId, String trackingNumber, Parcel.ParcelStatus status, 
+                            String location, String description, LocalDateTime timestamp, LocalDateTime estimatedDeliveryDate) {
+        this.trackingId = trackingId;
+        this.parcelId = parcelId;
+        this.trackingNumber = trackingNumber;
+        this.status = status;
+        this.location = location;
+        this.description = description;
+        this.timestamp = timestamp;
+        this.estimatedDeliveryDate = estimatedDeliveryDate;
+    }
+    
+    // Getters and Setters
+    public Long getTrackingId() { return trackingId; }
+    public void setTrackingId(Long trackingId) { this.trackingId = trackingId; }
+    
+    public Long getParcelId() { return parcelId; }
+    public void setParcelId(Long parcelId) { this.parcelId = parcelId; }
+    
+    public String getTrackingNumber() { return trackingNumber; }
+    public void setTrackingNumber(String trackingNumber) { this.trackingNumber = trackingNumber; }
+    
+    public Parcel.ParcelStatus getStatus() { return status; }
+    public void setStatus(Parcel.ParcelStatus status) { this.status = status; }
+    
+    public String getLocation() { return location; }
+    public void setLocation(String location) { this.location = location; }
+    
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+    
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+    
+    public LocalDateTime getEstimatedDeliveryDate() { return estimatedDeliveryDate; }
+    public void setEstimatedDeliveryDate(LocalDateTime estimatedDeliveryDate) { this.estimatedDeliveryDate = estimatedDeliveryDate; }
+}
\ No newline at end of file
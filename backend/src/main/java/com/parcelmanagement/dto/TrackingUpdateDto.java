@@ -3,6 +3,9 @@ package com.parcelmanagement.dto;
 import com.parcelmanagement.entity.Parcel;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDateTime;
 
 public class TrackingUpdateDto {
     
@@ -14,6 +17,12 @@ public class TrackingUpdateDto {
     
     private String description;
     
+    // Optional; a retried update with the same scan id, or the same device time, is recorded once
+    @Size(max = 64, message = "Scan id must be at most 64 characters")
+    private String scanId;
+    
+    private LocalDateTime scannedAt;
+    
     // Constructors
     public TrackingUpdateDto() {}
     
@@ -32,4 +41,10 @@ public class TrackingUpdateDto {
     
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
+    
+    public String getScanId() { return scanId; }
+    public void setScanId(String scanId) { this.scanId = scanId; }
+    
+    public LocalDateTime getScannedAt() { return scannedAt; }
+    public void setScannedAt(LocalDateTime scannedAt) { this.scannedAt = scannedAt; }
 }
\ No newline at end of file
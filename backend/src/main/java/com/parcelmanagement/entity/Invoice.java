@@ -9,9 +9,16 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "invoices")
+@Table(name = "invoices", indexes = {
+    @Index(name = "idx_invoices_issued_date", columnList = "issued_date, id"),
+    @Index(name = "idx_invoices_status_issued_date", columnList = "payment_status, issued_date, id"),
+    @Index(name = "idx_invoices_status_paid_date", columnList = "payment_status, paid_date"),
+    @Index(name = "idx_invoices_status_due_date", columnList = "payment_status, due_date")
+})
 public class Invoice {
     
+    public static final int PAYMENT_TERM_DAYS = 30;
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -21,7 +28,7 @@ public class Invoice {
     private String invoiceNumber;
     
     @OneToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "parcel_id", nullable = false)
+    @JoinColumn(name = "parcel_id", nullable = false, unique = true)
     private Parcel parcel;
     
     @NotNull
@@ -72,7 +79,7 @@ public class Invoice {
             issuedDate = LocalDateTime.now();
         }
         if (dueDate == null) {
-            dueDate = issuedDate.plusDays(30); // 30 days payment term
+            dueDate = issuedDate.plusDays(PAYMENT_TERM_DAYS);
         }
         if (paymentStatus == null) {
             paymentStatus = PaymentStatus.PENDING;
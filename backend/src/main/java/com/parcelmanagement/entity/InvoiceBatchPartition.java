@@ -0,0 +1,106 @@
+package com.parcelmanagement.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One parcel id range of a batch invoicing run. next_parcel_id is the checkpoint: every delivered
+ * parcel below it in the range has an invoice. A worker owns the partition while its heartbeat is
+ * fresh; a stale one can be claimed by any other worker, which continues from the checkpoint.
+ * A partition claimed max-attempts times without completing is ABANDONED.
+ */
+@Entity
+@Table(name = "invoice_batch_partitions", indexes = {
+    @Index(name = "idx_invoice_batch_partitions_run", columnList = "run_id, id")
+})
+public class InvoiceBatchPartition {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+    
+    @Column(name = "range_start", nullable = false)
+    private Long rangeStart;
+    
+    @Column(name = "range_end", nullable = false)
+    private Long rangeEnd;
+    
+    @Column(name = "next_parcel_id", nullable = false)
+    private Long nextParcelId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+    
+    @Column(nullable = false)
+    private Long invoices;
+    
+    // Claims so far; the partition is abandoned once they run out
+    @Column(nullable = false)
+    private Integer attempts;
+    
+    private String owner;
+    
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+    
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED, ABANDONED
+    }
+    
+    // Constructors
+    public InvoiceBatchPartition() {}
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getRunId() { return runId; }
+    public void setRunId(Long runId) { this.runId = runId; }
+    
+    public Long getRangeStart() { return rangeStart; }
+    public void setRangeStart(Long rangeStart) { this.rangeStart = rangeStart; }
+    
+    public Long getRangeEnd() { return rangeEnd; }
+    public void setRangeEnd(Long rangeEnd) { this.rangeEnd = rangeEnd; }
+    
+    public Long getNextParcelId() { return nextParcelId; }
+    public void setNextParcelId(Long nextParcelId) { this.nextParcelId = nextParcelId; }
+    
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    
+    public Long getInvoices() { return invoices; }
+    public void setInvoices(Long invoices) { this.invoices = invoices; }
+    
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+    
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+    
+    public LocalDateTime getHeartbeatAt() { return heartbeatAt; }
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) { this.heartbeatAt = heartbeatAt; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+    
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+}
\ No newline at end of file
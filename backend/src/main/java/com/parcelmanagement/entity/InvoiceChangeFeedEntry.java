@@ -0,0 +1,59 @@
+package com.parcelmanagement.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One bulk payment status transition: the ids of the invoices it moved, ascending and stored as
+ * varint-encoded deltas. The id orders the feed for consumers that poll it.
+ */
+@Entity
+@Table(name = "invoice_change_feed", indexes = {
+    @Index(name = "idx_invoice_change_feed_created_at", columnList = "created_at")
+})
+public class InvoiceChangeFeedEntry {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "from_status", nullable = false)
+    private Invoice.PaymentStatus fromStatus;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "to_status", nullable = false)
+    private Invoice.PaymentStatus toStatus;
+    
+    @Column(name = "invoice_count", nullable = false)
+    private Integer invoiceCount;
+    
+    @Column(name = "invoice_ids", nullable = false, columnDefinition = "mediumblob")
+    private byte[] invoiceIds;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public InvoiceChangeFeedEntry() {}
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Invoice.PaymentStatus getFromStatus() { return fromStatus; }
+    public void setFromStatus(Invoice.PaymentStatus fromStatus) { this.fromStatus = fromStatus; }
+    
+    public Invoice.PaymentStatus getToStatus() { return toStatus; }
+    public void setToStatus(Invoice.PaymentStatus toStatus) { this.toStatus = toStatus; }
+    
+    public Integer getInvoiceCount() { return invoiceCount; }
+    public void setInvoiceCount(Integer invoiceCount) { this.invoiceCount = invoiceCount; }
+    
+    public byte[] getInvoiceIds() { return invoiceIds; }
+    public void setInvoiceIds(byte[] invoiceIds) { this.invoiceIds = invoiceIds; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.parcelmanagement.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cluster-wide lease of a scheduled job: the node that owns the row until expires_at is the only
+ * one running the job.
+ */
+@Entity
+@Table(name = "job_leases")
+public class JobLease {
+    
+    @Id
+    @Column(length = 64)
+    private String name;
+    
+    private String owner;
+    
+    @Column(name = "acquired_at")
+    private LocalDateTime acquiredAt;
+    
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+    
+    // Constructors
+    public JobLease() {}
+    
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+    
+    public LocalDateTime getAcquiredAt() { return acquiredAt; }
+    public void setAcquiredAt(LocalDateTime acquiredAt) { this.acquiredAt = acquiredAt; }
+    
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+}
\ No newline at end of file
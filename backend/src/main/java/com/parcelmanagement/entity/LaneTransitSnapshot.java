@@ -0,0 +1,65 @@
+package com.parcelmanagement.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persisted copy of one lane's transit time sketch, written periodically by EtaService
+ * and read back on startup instead of replaying the tracking history.
+ */
+@Entity
+@Table(name = "lane_transit_snapshots", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_lane_transit_snapshots_lane", columnNames = {"pickup_city", "delivery_city", "priority"})
+})
+public class LaneTransitSnapshot {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "pickup_city", nullable = false)
+    private String pickupCity;
+    
+    @Column(name = "delivery_city", nullable = false)
+    private String deliveryCity;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Parcel.Priority priority;
+    
+    @Column(name = "sample_count")
+    private Long sampleCount;
+    
+    // Non-empty sketch buckets as "index:count" pairs
+    @Column(columnDefinition = "TEXT")
+    private String buckets;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Constructors
+    public LaneTransitSnapshot() {}
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getPickupCity() { return pickupCity; }
+    public void setPickupCity(String pickupCity) { this.pickupCity = pickupCity; }
+    
+    public String getDeliveryCity() { return deliveryCity; }
+    public void setDeliveryCity(String deliveryCity) { this.deliveryCity = deliveryCity; }
+    
+    public Parcel.Priority getPriority() { return priority; }
+    public void setPriority(Parcel.Priority priority) { this.priority = priority; }
+    
+    public Long getSampleCount() { return sampleCount; }
+    public void setSampleCount(Long sampleCount) { this.sampleCount = sampleCount; }
+    
+    public String getBuckets() { return buckets; }
+    public void setBuckets(String buckets) { this.buckets = buckets; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
\ No newline at end of file
@@ -8,7 +8,8 @@ import jakarta.validation.constraints.NotBlank;
 public class Location {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "locations_seq")
+    @SequenceGenerator(name = "locations_seq", sequenceName = "locations_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank
@@ -29,6 +30,10 @@ public class Location {
     private Double latitude;
     private Double longitude;
     
+    // SHA-256 of the normalized address, see CanonicalAddressService
+    @Column(name = "address_hash", unique = true, length = 64)
+    private String addressHash;
+    
     // Constructors
     public Location() {}
     
@@ -65,6 +70,9 @@ public class Location {
     public Double getLongitude() { return longitude; }
     public void setLongitude(Double longitude) { this.longitude = longitude; }
     
+    public String getAddressHash() { return addressHash; }
+    public void setAddressHash(String addressHash) { this.addressHash = addressHash; }
+    
     public String getFullAddress() {
         return String.format("%s, %s, %s, %s %s", address, city, state, country, zipCode);
     }
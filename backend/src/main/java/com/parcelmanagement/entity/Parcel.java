@@ -10,11 +10,17 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "parcels")
+@Table(name = "parcels", indexes = {
+    @Index(name = "idx_parcels_created_at", columnList = "created_at, id"),
+    @Index(name = "idx_parcels_status_created_at", columnList = "status, created_at, id"),
+    @Index(name = "idx_parcels_sender_created_at", columnList = "sender_id, created_at, id"),
+    @Index(name = "idx_parcels_receiver_created_at", columnList = "receiver_id, created_at, id")
+})
 public class Parcel {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "parcels_seq")
+    @SequenceGenerator(name = "parcels_seq", sequenceName = "parcels_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank
@@ -44,11 +50,12 @@ public class Parcel {
     @JoinColumn(name = "receiver_id", nullable = false)
     private User receiver;
     
-    @ManyToOne(cascade = CascadeType.ALL)
+    // Locations are canonical and shared between parcels, so nothing cascades to them
+    @ManyToOne
     @JoinColumn(name = "pickup_location_id", nullable = false)
     private Location pickupLocation;
     
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne
     @JoinColumn(name = "delivery_location_id", nullable = false)
     private Location deliveryLocation;
     
@@ -76,6 +83,11 @@ public class Parcel {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Existing rows start at 0 when the column is added
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+    
     @OneToMany(mappedBy = "parcel", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Tracking> trackingHistory;
     
@@ -185,6 +197,9 @@ public class Parcel {
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
     
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
     public List<Tracking> getTrackingHistory() { return trackingHistory; }
     public void setTrackingHistory(List<Tracking> trackingHistory) { this.trackingHistory = trackingHistory; }
     
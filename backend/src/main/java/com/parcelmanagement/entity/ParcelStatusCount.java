@@ -0,0 +1,52 @@
+package com.parcelmanagement.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running number of parcels in a status. Every status is spread over a few slots so concurrent
+ * transitions rarely update the same row; the count of a status is the sum of its slots.
+ */
+@Entity
+@Table(name = "parcel_status_counts", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_parcel_status_counts_slot", columnNames = {"status", "slot"})
+})
+public class ParcelStatusCount {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Parcel.ParcelStatus status;
+    
+    @Column(nullable = false)
+    private Integer slot;
+    
+    @Column(name = "parcel_count", nullable = false)
+    private Long parcelCount;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Constructors
+    public ParcelStatusCount() {}
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Parcel.ParcelStatus getStatus() { return status; }
+    public void setStatus(Parcel.ParcelStatus status) { this.status = status; }
+    
+    public Integer getSlot() { return slot; }
+    public void setSlot(Integer slot) { this.slot = slot; }
+    
+    public Long getParcelCount() { return parcelCount; }
+    public void setParcelCount(Long parcelCount) { this.parcelCount = parcelCount; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
\ No newline at end of file
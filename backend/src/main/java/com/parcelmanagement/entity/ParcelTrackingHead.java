@@ -0,0 +1,75 @@
+package com.parcelmanagement.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest tracking event of a parcel, kept next to the tracking log so current-status reads
+ * are a primary key or index lookup instead of a sort over the whole history.
+ */
+@Entity
+@Table(name = "parcel_tracking_head", indexes = {
+    @Index(name = "idx_parcel_tracking_head_tracking_number", columnList = "tracking_number", unique = true)
+})
+public class ParcelTrackingHead {
+    
+    @Id
+    @Column(name = "parcel_id")
+    private Long parcelId;
+    
+    @Column(name = "tracking_number", nullable = false)
+    private String trackingNumber;
+    
+    @Column(name = "tracking_id", nullable = false)
+    private Long trackingId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Parcel.ParcelStatus status;
+    
+    @Column(nullable = false)
+    private String location;
+    
+    private String description;
+    
+    @Column(name = "updated_by")
+    private Long updatedBy;
+    
+    @Column(name = "event_time", nullable = false)
+    private LocalDateTime eventTime;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Constructors
+    public ParcelTrackingHead() {}
+    
+    // Getters and Setters
+    public Long getParcelId() { return parcelId; }
+    public void setParcelId(Long parcelId) { this.parcelId = parcelId; }
+    
+    public String getTrackingNumber() { return trackingNumber; }
+    public void setTrackingNumber(String trackingNumber) { this.trackingNumber = trackingNumber; }
+    
+    public Long getTrackingId() { return trackingId; }
+    public void setTrackingId(Long trackingId) { this.trackingId = trackingId; }
+    
+    public Parcel.ParcelStatus getStatus() { return status; }
+    public void setStatus(Parcel.ParcelStatus status) { this.status = status; }
+    
+    public String getLocation() { return location; }
+    public void setLocation(String location) { this.location = location; }
+    
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+    
+    public Long getUpdatedBy() { return updatedBy; }
+    public void setUpdatedBy(Long updatedBy) { this.updatedBy = updatedBy; }
+    
+    public LocalDateTime getEventTime() { return eventTime; }
+    public void setEventTime(LocalDateTime eventTime) { this.eventTime = eventTime; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.parcelmanagement.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One weight band of a lane's rate card. A lane is an origin and a destination zip prefix
+ * (an empty prefix matches every zip); the most specific lane with a band covering the
+ * parcel's weight prices it as baseCost + perKgCost * weight.
+ */
+@Entity
+@Table(name = "rate_cards", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_rate_cards_band", columnNames = {"origin_zip_prefix", "destination_zip_prefix", "priority", "max_weight"})
+})
+public class RateCard {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotNull
+    @Size(max = 5)
+    @Column(name = "origin_zip_prefix", nullable = false, length = 5)
+    private String originZipPrefix;
+    
+    @NotNull
+    @Size(max = 5)
+    @Column(name = "destination_zip_prefix", nullable = false, length = 5)
+    private String destinationZipPrefix;
+    
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private Parcel.Priority priority;
+    
+    // Upper bound of the weight band in kg, inclusive
+    @NotNull
+    @DecimalMin(value = "0.0", inclusive = false)
+    @Column(name = "max_weight")
+    private Double maxWeight;
+    
+    @NotNull
+    @DecimalMin(value = "0.0")
+    private BigDecimal baseCost;
+    
+    @NotNull
+    @DecimalMin(value = "0.0")
+    private BigDecimal perKgCost;
+    
+    private Boolean active;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        updatedAt = LocalDateTime.now();
+        if (active == null) {
+            active = true;
+        }
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    // Constructors
+    public RateCard() {}
+    
+    public RateCard(String originZipPrefix, String destinationZipPrefix, Parcel.Priority priority, 
+                    Double maxWeight, BigDecimal baseCost, BigDecimal perKgCost) {
+        this.originZipPrefix = originZipPrefix;
+        this.destinationZipPrefix = destinationZipPrefix;
+        this.priority = priority;
+        this.maxWeight = maxWeight;
+        this.baseCost = baseCost;
+        this.perKgCost = perKgCost;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getOriginZipPrefix() { return originZipPrefix; }
+    public void setOriginZipPrefix(String originZipPrefix) { this.originZipPrefix = originZipPrefix; }
+    
+    public String getDestinationZipPrefix() { return destinationZipPrefix; }
+    public void setDestinationZipPrefix(String destinationZipPrefix) { this.destinationZipPrefix = destinationZipPrefix; }
+    
+    public Parcel.Priority getPriority() { return priority; }
+    public void setPriority(Parcel.Priority priority) { this.priority = priority; }
+    
+    public Double getMaxWeight() { return maxWeight; }
+    public void setMaxWeight(Double maxWeight) { this.maxWeight = maxWeight; }
+    
+    public BigDecimal getBaseCost() { return baseCost; }
+    public void setBaseCost(BigDecimal baseCost) { this.baseCost = baseCost; }
+    
+    public BigDecimal getPerKgCost() { return perKgCost; }
+    public void setPerKgCost(BigDecimal perKgCost) { this.perKgCost = perKgCost; }
+    
+    public Boolean getActive() { return active; }
+    public void setActive(Boolean active) { this.active = active; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
\ No newline at end of file
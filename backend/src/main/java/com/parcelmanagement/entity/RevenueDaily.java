@@ -0,0 +1,59 @@
+package com.parcelmanagement.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Paid invoices of one day and payment method: their number and exact total. Invoices without a
+ * payment method are counted under UNSPECIFIED.
+ */
+@Entity
+@Table(name = "revenue_daily", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_revenue_daily_bucket", columnNames = {"revenue_date", "payment_method"})
+})
+public class RevenueDaily {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "revenue_date", nullable = false)
+    private LocalDate revenueDate;
+    
+    @Column(name = "payment_method", nullable = false, length = 32)
+    private String paymentMethod;
+    
+    @Column(name = "invoice_count", nullable = false)
+    private Long invoiceCount;
+    
+    @Column(name = "total_amount", nullable = false, precision = 38, scale = 2)
+    private BigDecimal totalAmount;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Constructors
+    public RevenueDaily() {}
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public LocalDate getRevenueDate() { return revenueDate; }
+    public void setRevenueDate(LocalDate revenueDate) { this.revenueDate = revenueDate; }
+    
+    public String getPaymentMethod() { return paymentMethod; }
+    public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
+    
+    public Long getInvoiceCount() { return invoiceCount; }
+    public void setInvoiceCount(Long invoiceCount) { this.invoiceCount = invoiceCount; }
+    
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
\ No newline at end of file
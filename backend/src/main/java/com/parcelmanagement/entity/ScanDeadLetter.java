@@ -0,0 +1,80 @@
+package com.parcelmanagement.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Hub scan that was accepted but could not be written, kept with the error so it can be
+ * inspected and replayed by hand.
+ */
+@Entity
+@Table(name = "scan_dead_letters", indexes = {
+        @Index(name = "idx_scan_dead_letters_tracking_number", columnList = "tracking_number")
+})
+public class ScanDeadLetter {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "tracking_number", nullable = false)
+    private String trackingNumber;
+    
+    @Enumerated(EnumType.STRING)
+    private Parcel.ParcelStatus status;
+    
+    private String location;
+    
+    @Column(length = 1000)
+    private String description;
+    
+    @Column(name = "scanned_at")
+    private LocalDateTime scannedAt;
+    
+    @Column(name = "scan_id", length = 64)
+    private String scanId;
+    
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(length = 1000)
+    private String error;
+    
+    @Column(name = "failed_at", nullable = false)
+    private LocalDateTime failedAt;
+    
+    // Constructors
+    public ScanDeadLetter() {}
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getTrackingNumber() { return trackingNumber; }
+    public void setTrackingNumber(String trackingNumber) { this.trackingNumber = trackingNumber; }
+    
+    public Parcel.ParcelStatus getStatus() { return status; }
+    public void setStatus(Parcel.ParcelStatus status) { this.status = status; }
+    
+    public String getLocation() { return location; }
+    public void setLocation(String location) { this.location = location; }
+    
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+    
+    public LocalDateTime getScannedAt() { return scannedAt; }
+    public void setScannedAt(LocalDateTime scannedAt) { this.scannedAt = scannedAt; }
+    
+    public String getScanId() { return scanId; }
+    public void setScanId(String scanId) { this.scanId = scanId; }
+    
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    
+    public LocalDateTime getFailedAt() { return failedAt; }
+    public void setFailedAt(LocalDateTime failedAt) { this.failedAt = failedAt; }
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+package com.parcelmanagement.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Tax rate of one jurisdiction: a country, optionally a state of it and a zip prefix, spelled as
+ * in the delivery locations (an empty value matches every country, state or zip). The most
+ * specific rule matching a parcel's delivery location taxes its invoice; base amounts below the
+ * threshold are not taxed, and an exempt rule taxes nothing.
+ */
+@Entity
+@Table(name = "tax_rules", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_tax_rules_jurisdiction", columnNames = {"country", "state", "zip_prefix"})
+})
+public class TaxRule {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotNull
+    @Size(max = 64)
+    @Column(nullable = false, length = 64)
+    private String country;
+    
+    @NotNull
+    @Size(max = 64)
+    @Column(nullable = false, length = 64)
+    private String state;
+    
+    @NotNull
+    @Size(max = 5)
+    @Column(name = "zip_prefix", nullable = false, length = 5)
+    private String zipPrefix;
+    
+    // Percent of the base amount, e.g. 8.875
+    @NotNull
+    @DecimalMin(value = "0.0")
+    @DecimalMax(value = "100.0")
+    @Column(precision = 7, scale = 4)
+    private BigDecimal rate;
+    
+    @DecimalMin(value = "0.0")
+    @Column(name = "threshold_amount")
+    private BigDecimal thresholdAmount;
+    
+    private Boolean exempt;
+    
+    private Boolean active;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        updatedAt = LocalDateTime.now();
+        if (exempt == null) {
+            exempt = false;
+        }
+        if (active == null) {
+            active = true;
+        }
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    // Constructors
+    public TaxRule() {}
+    
+    public TaxRule(String country, String state, String zipPrefix, BigDecimal rate) {
+        this.country = country;
+        this.state = state;
+        this.zipPrefix = zipPrefix;
+        this.rate = rate;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getCountry() { return country; }
+    public void setCountry(String country) { this.country = country; }
+    
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+    
+    public String getZipPrefix() { return zipPrefix; }
+    public void setZipPrefix(String zipPrefix) { this.zipPrefix = zipPrefix; }
+    
+    public BigDecimal getRate() { return rate; }
+    public void setRate(BigDecimal rate) { this.rate = rate; }
+    
+    public BigDecimal getThresholdAmount() { return thresholdAmount; }
+    public void setThresholdAmount(BigDecimal thresholdAmount) { this.thresholdAmount = thresholdAmount; }
+    
+    public Boolean getExempt() { return exempt; }
+    public void setExempt(Boolean exempt) { this.exempt = exempt; }
+    
+    public Boolean getActive() { return active; }
+    public void setActive(Boolean active) { this.active = active; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
\ No newline at end of file
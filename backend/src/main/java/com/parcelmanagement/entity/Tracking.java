@@ -7,11 +7,15 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tracking")
+@Table(name = "tracking", indexes = {
+    @Index(name = "idx_tracking_parcel_timestamp", columnList = "parcel_id, timestamp, id"),
+    @Index(name = "idx_tracking_timestamp", columnList = "timestamp, id")
+})
 public class Tracking {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tracking_seq")
+    @SequenceGenerator(name = "tracking_seq", sequenceName = "tracking_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
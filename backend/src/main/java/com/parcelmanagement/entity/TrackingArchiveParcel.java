@@ -0,0 +1,37 @@
+package com.parcelmanagement.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Locator for archived tracking history: the monthly archive table (tracking_archive_yyyyMM)
+ * that holds the moved tracking rows of a parcel.
+ */
+@Entity
+@Table(name = "tracking_archive_parcels")
+public class TrackingArchiveParcel {
+    
+    @Id
+    @Column(name = "parcel_id")
+    private Long parcelId;
+    
+    @Column(name = "archive_month", nullable = false)
+    private Integer archiveMonth;
+    
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+    
+    // Constructors
+    public TrackingArchiveParcel() {}
+    
+    // Getters and Setters
+    public Long getParcelId() { return parcelId; }
+    public void setParcelId(Long parcelId) { this.parcelId = parcelId; }
+    
+    public Integer getArchiveMonth() { return archiveMonth; }
+    public void setArchiveMonth(Integer archiveMonth) { this.archiveMonth = archiveMonth; }
+    
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(LocalDateTime archivedAt) { this.archivedAt = archivedAt; }
+}
\ No newline at end of file
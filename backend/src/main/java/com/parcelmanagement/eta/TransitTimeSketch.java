@@ -0,0 +1,134 @@
+package com.parcelmanagement.eta;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Streaming quantile sketch of transit times in minutes. Samples are counted in logarithmic
+ * buckets, so memory is fixed, recording is lock-free and quantiles are within a few percent
+ * of the exact value however many samples have been seen.
+ */
+public class TransitTimeSketch {
+    
+    // Bucket i covers (GAMMA^(i-1), GAMMA^i] minutes; bucket 0 is anything up to one minute
+    private static final double GAMMA = 1.05;
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    
+    // Transit times beyond 180 days all land in the last bucket
+    private static final long MAX_MINUTES = 180L * 24 * 60;
+    
+    public static final int BUCKETS = 1 + (int) Math.ceil(Math.log(MAX_MINUTES) / LOG_GAMMA);
+    
+    private static final long[] UPPER_BOUNDS = new long[BUCKETS];
+    
+    static {
+        for (int i = 0; i < BUCKETS; i++) {
+            UPPER_BOUNDS[i] = (long) Math.ceil(Math.pow(GAMMA, i));
+        }
+    }
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    
+    public void record(long minutes) {
+        counts.incrementAndGet(bucketOf(minutes));
+        total.incrementAndGet();
+        dirty.set(true);
+    }
+    
+    public long count() {
+        return total.get();
+    }
+    
+    /**
+     * Quantile q of the transit time among samples that took longer than elapsedMinutes,
+     * i.e. the estimate for a parcel that has already been on its way that long.
+     * Returns -1 when no sample took that long.
+     */
+    public long quantile(double q, long elapsedMinutes) {
+        int first = bucketOf(elapsedMinutes);
+        long remaining = 0;
+        for (int i = first; i < BUCKETS; i++) {
+            remaining += counts.get(i);
+        }
+        if (remaining == 0) {
+            return -1;
+        }
+        
+        long target = Math.max(1, (long) Math.ceil(q * remaining));
+        long seen = 0;
+        for (int i = first; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.max(UPPER_BOUNDS[i], elapsedMinutes);
+            }
+        }
+        return Math.max(UPPER_BOUNDS[BUCKETS - 1], elapsedMinutes);
+    }
+    
+    public void merge(TransitTimeSketch other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count > 0) {
+                counts.addAndGet(i, count);
+                total.addAndGet(count);
+            }
+        }
+        dirty.set(true);
+    }
+    
+    /**
+     * Clears the dirty flag and reports whether it was set; samples recorded afterwards
+     * mark the sketch dirty again.
+     */
+    public boolean markClean() {
+        return dirty.getAndSet(false);
+    }
+    
+    /**
+     * Non-empty buckets as "index:count" pairs separated by commas.
+     */
+    public String encode() {
+        StringBuilder encoded = new StringBuilder();
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = counts.get(i);
+            if (count > 0) {
+                if (encoded.length() > 0) {
+                    encoded.append(',');
+                }
+                encoded.append(i).append(':').append(count);
+            }
+        }
+        return encoded.toString();
+    }
+    
+    public static TransitTimeSketch decode(String encoded) {
+        TransitTimeSketch sketch = new TransitTimeSketch();
+        if (encoded != null && !encoded.isBlank()) {
+            for (String pair : encoded.split(",")) {
+                int separator = pair.indexOf(':');
+                int bucket = Integer.parseInt(pair.substring(0, separator).trim());
+                long count = Long.parseLong(pair.substring(separator + 1).trim());
+                if (bucket >= 0 && bucket < BUCKETS && count > 0) {
+                    sketch.counts.addAndGet(bucket, count);
+                    sketch.total.addAndGet(count);
+                }
+            }
+        }
+        return sketch;
+    }
+    
+    private static int bucketOf(long minutes) {
+        if (minutes <= 1) {
+            return 0;
+        }
+        int bucket = (int) Math.ceil(Math.log(minutes) / LOG_GAMMA);
+        // Guard against floating point landing one bucket off at the boundaries
+        if (bucket > 0 && UPPER_BOUNDS[Math.min(bucket, BUCKETS - 1)] < minutes && bucket < BUCKETS - 1) {
+            bucket++;
+        }
+        return Math.min(bucket, BUCKETS - 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.parcelmanagement.event;
+
+import com.parcelmanagement.dto.OverdueParcelDto;
+
+/**
+ * Published once when an active parcel passes its estimated delivery date.
+ */
+public class ParcelOverdueEvent {
+    
+    private final OverdueParcelDto parcel;
+    
+    public ParcelOverdueEvent(OverdueParcelDto parcel) {
+        this.parcel = parcel;
+    }
+    
+    public OverdueParcelDto getParcel() {
+        return parcel;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,228 @@
+package com.parcelmanagement.pricing;
+
+import com.parcelmanagement.entity.Parcel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable, compiled form of the rate cards. Lanes are keyed by their zip prefixes packed into
+ * ints and kept in a sorted long[]; the weight bands of every lane and priority sit in parallel
+ * primitive arrays, so a quote is a handful of binary searches and long arithmetic in cents.
+ */
+public final class RateTable {
+    
+    public static final long NO_RATE = -1;
+    
+    public static final int MAX_PREFIX_LENGTH = 5;
+    
+    // Prefix characters are 0-9 and A-Z, encoded as 1..36 so that prefixes of different length never collide
+    private static final int RADIX = 37;
+    
+    private static final int PRIORITIES = Parcel.Priority.values().length;
+    
+    public static final RateTable EMPTY = new Builder().build();
+    
+    private final long[] laneKeys;
+    private final int[] bandOffsets;
+    private final long[] bandMaxGrams;
+    private final long[] bandBaseCents;
+    private final long[] bandPerKgCents;
+    
+    // Bit n is set when some lane has a prefix of length n, so lookups only try lengths that exist
+    private final int originLengths;
+    private final int destinationLengths;
+    
+    private RateTable(long[] laneKeys, int[] bandOffsets, long[] bandMaxGrams, long[] bandBaseCents, 
+                      long[] bandPerKgCents, int originLengths, int destinationLengths) {
+        this.laneKeys = laneKeys;
+        this.bandOffsets = bandOffsets;
+        this.bandMaxGrams = bandMaxGrams;
+        this.bandBaseCents = bandBaseCents;
+        this.bandPerKgCents = bandPerKgCents;
+        this.originLengths = originLengths;
+        this.destinationLengths = destinationLengths;
+    }
+    
+    /**
+     * Price in cents from the most specific matching lane (longest origin prefix first, then
+     * longest destination prefix), or NO_RATE when no lane has a band covering the weight.
+     */
+    public long quote(String originZip, String destinationZip, long weightGrams, Parcel.Priority priority) {
+        for (int originLength = MAX_PREFIX_LENGTH; originLength >= 0; originLength--) {
+            if ((originLengths & (1 << originLength)) == 0) {
+                continue;
+            }
+            int originCode = prefixCode(originZip, originLength);
+            if (originCode < 0) {
+                continue;
+            }
+            for (int destinationLength = MAX_PREFIX_LENGTH; destinationLength >= 0; destinationLength--) {
+                if ((destinationLengths & (1 << destinationLength)) == 0) {
+                    continue;
+                }
+                int destinationCode = prefixCode(destinationZip, destinationLength);
+                if (destinationCode < 0) {
+                    continue;
+                }
+                int lane = Arrays.binarySearch(laneKeys, laneKey(originCode, destinationCode));
+                if (lane < 0) {
+                    continue;
+                }
+                int band = findBand(lane * PRIORITIES + priority.ordinal(), weightGrams);
+                if (band >= 0) {
+                    return bandBaseCents[band] + (weightGrams * bandPerKgCents[band] + 999) / 1000;
+                }
+            }
+        }
+        return NO_RATE;
+    }
+    
+    public int lanes() {
+        return laneKeys.length;
+    }
+    
+    public int bands() {
+        return bandMaxGrams.length;
+    }
+    
+    private int findBand(int slot, long weightGrams) {
+        int low = bandOffsets[slot];
+        int high = bandOffsets[slot + 1] - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (bandMaxGrams[mid] >= weightGrams) {
+                found = mid;
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return found;
+    }
+    
+    private static long laneKey(int originCode, int destinationCode) {
+        return ((long) originCode << 32) | destinationCode;
+    }
+    
+    /**
+     * Packs the first length alphanumeric characters of the zip into an int, ignoring spaces,
+     * dashes and case; -1 when the zip has fewer than length such characters.
+     */
+    static int prefixCode(String zip, int length) {
+        int code = 0;
+        int taken = 0;
+        if (zip != null) {
+            for (int i = 0; i < zip.length() && taken < length; i++) {
+                int value = charValue(zip.charAt(i));
+                if (value > 0) {
+                    code = code * RADIX + value;
+                    taken++;
+                }
+            }
+        }
+        return taken == length ? code : -1;
+    }
+    
+    static int prefixLength(String prefix) {
+        int length = 0;
+        if (prefix != null) {
+            for (int i = 0; i < prefix.length(); i++) {
+                if (charValue(prefix.charAt(i)) > 0) {
+                    length++;
+                }
+            }
+        }
+        return length;
+    }
+    
+    private static int charValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 1;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 11;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 11;
+        }
+        return 0;
+    }
+    
+    public static class Builder {
+        
+        // laneKey, priority, maxGrams, baseCents, perKgCents
+        private final List<long[]> rows = new ArrayList<>();
+        
+        /**
+         * Adds one weight band; returns false (and ignores the band) when a prefix is longer than
+         * MAX_PREFIX_LENGTH or an amount is negative.
+         */
+        public boolean add(String originPrefix, String destinationPrefix, Parcel.Priority priority, 
+                           long maxGrams, long baseCents, long perKgCents) {
+            int originLength = prefixLength(originPrefix);
+            int destinationLength = prefixLength(destinationPrefix);
+            if (originLength > MAX_PREFIX_LENGTH || destinationLength > MAX_PREFIX_LENGTH 
+                    || priority == null || maxGrams <= 0 || baseCents < 0 || perKgCents < 0) {
+                return false;
+            }
+            long key = laneKey(prefixCode(originPrefix, originLength), prefixCode(destinationPrefix, destinationLength));
+            rows.add(new long[]{key, priority.ordinal(), maxGrams, baseCents, perKgCents});
+            return true;
+        }
+        
+        public RateTable build() {
+            rows.sort(Comparator.<long[]>comparingLong(row -> row[0])
+                    .thenComparingLong(row -> row[1])
+                    .thenComparingLong(row -> row[2]));
+            
+            int laneCount = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                if (i == 0 || rows.get(i)[0] != rows.get(i - 1)[0]) {
+                    laneCount++;
+                }
+            }
+            
+            long[] laneKeys = new long[laneCount];
+            int[] bandOffsets = new int[laneCount * PRIORITIES + 1];
+            long[] maxGrams = new long[rows.size()];
+            long[] baseCents = new long[rows.size()];
+            long[] perKgCents = new long[rows.size()];
+            int originLengths = 0;
+            int destinationLengths = 0;
+            
+            int lane = -1;
+            for (int i = 0; i < rows.size(); i++) {
+                long[] row = rows.get(i);
+                if (lane < 0 || laneKeys[lane] != row[0]) {
+                    lane++;
+                    laneKeys[lane] = row[0];
+                    originLengths |= 1 << encodedLength((int) (row[0] >>> 32));
+                    destinationLengths |= 1 << encodedLength((int) row[0]);
+                }
+                // Counted per slot here, turned into start offsets below
+                bandOffsets[lane * PRIORITIES + (int) row[1] + 1]++;
+                maxGrams[i] = row[2];
+                baseCents[i] = row[3];
+                perKgCents[i] = row[4];
+            }
+            for (int slot = 1; slot < bandOffsets.length; slot++) {
+                bandOffsets[slot] += bandOffsets[slot - 1];
+            }
+            
+            return new RateTable(laneKeys, bandOffsets, maxGrams, baseCents, perKgCents, originLengths, destinationLengths);
+        }
+        
+        private static int encodedLength(int code) {
+            int length = 0;
+            while (code > 0) {
+                code /= RADIX;
+                length++;
+            }
+            return length;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.parcelmanagement.pricing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable, compiled form of the tax rules. Jurisdictions are looked up by country and state in
+ * immutable maps; the zip prefixes of a jurisdiction are packed into ints like RateTable's lanes
+ * and kept in a sorted int[], and the rates and thresholds of all rules sit in parallel primitive
+ * arrays, so the tax on an amount is two map lookups, a few binary searches and long arithmetic in cents.
+ */
+public final class TaxTable {
+    
+    public static final long NO_RULE = -1;
+    
+    // Rates are held in parts per million of the base amount, so 100% is one million
+    public static final long MAX_RATE_PPM = 1_000_000;
+    
+    // An empty country or state in a rule matches every country or state
+    private static final String ANY = "";
+    
+    public static final TaxTable EMPTY = new Builder().build();
+    
+    private final Map<String, Map<String, Zones>> jurisdictions;
+    private final long[] ratePpm;
+    private final long[] thresholdCents;
+    
+    private TaxTable(Map<String, Map<String, Zones>> jurisdictions, long[] ratePpm, long[] thresholdCents) {
+        this.jurisdictions = jurisdictions;
+        this.ratePpm = ratePpm;
+        this.thresholdCents = thresholdCents;
+    }
+    
+    /**
+     * Tax in cents on the base amount from the most specific matching rule (the country and state,
+     * then the country as a whole, then the catch-all rule; longest zip prefix first within each),
+     * or NO_RULE when no rule matches. Amounts below the rule's threshold are not taxed.
+     */
+    public long taxCents(String country, String state, String zip, long baseCents) {
+        String countryKey = normalize(country);
+        String stateKey = normalize(state);
+        
+        int rule = -1;
+        Map<String, Zones> states = jurisdictions.get(countryKey);
+        if (states != null) {
+            rule = find(states.get(stateKey), zip);
+            if (rule < 0) {
+                rule = find(states.get(ANY), zip);
+            }
+        }
+        if (rule < 0 && !countryKey.isEmpty()) {
+            states = jurisdictions.get(ANY);
+            if (states != null) {
+                rule = find(states.get(ANY), zip);
+            }
+        }
+        if (rule < 0) {
+            return NO_RULE;
+        }
+        if (baseCents < thresholdCents[rule]) {
+            return 0;
+        }
+        return (baseCents * ratePpm[rule] + MAX_RATE_PPM / 2) / MAX_RATE_PPM;
+    }
+    
+    public int rules() {
+        return ratePpm.length;
+    }
+    
+    public int jurisdictions() {
+        int count = 0;
+        for (Map<String, Zones> states : jurisdictions.values()) {
+            count += states.size();
+        }
+        return count;
+    }
+    
+    private static int find(Zones zones, String zip) {
+        if (zones == null) {
+            return -1;
+        }
+        for (int length = RateTable.MAX_PREFIX_LENGTH; length >= 0; length--) {
+            if ((zones.lengths & (1 << length)) == 0) {
+                continue;
+            }
+            int code = RateTable.prefixCode(zip, length);
+            if (code < 0) {
+                continue;
+            }
+            int zone = Arrays.binarySearch(zones.prefixCodes, code);
+            if (zone >= 0) {
+                return zones.rules[zone];
+            }
+        }
+        return -1;
+    }
+    
+    // Returns the value itself when it is already trimmed and upper case
+    static String normalize(String value) {
+        return value == null ? ANY : value.trim().toUpperCase(Locale.ROOT);
+    }
+    
+    private static final class Zones {
+        
+        private final int[] prefixCodes;
+        private final int[] rules;
+        
+        // Bit n is set when some zone has a prefix of length n, so lookups only try lengths that exist
+        private final int lengths;
+        
+        Zones(int[] prefixCodes, int[] rules, int lengths) {
+            this.prefixCodes = prefixCodes;
+            this.rules = rules;
+            this.lengths = lengths;
+        }
+    }
+    
+    public static class Builder {
+        
+        // country -> state -> zip prefix code -> {ratePpm, thresholdCents, prefix length}
+        private final Map<String, Map<String, TreeMap<Integer, long[]>>> rows = new HashMap<>();
+        
+        /**
+         * Adds one rule; returns false (and ignores the rule) when the zip prefix is longer than
+         * RateTable.MAX_PREFIX_LENGTH, the rate is outside 0..100%, the threshold is negative, a state
+         * is given without a country, or a rule for the same jurisdiction and prefix was added before.
+         */
+        public boolean add(String country, String state, String zipPrefix, long ratePpm, long thresholdCents) {
+            int zipLength = RateTable.prefixLength(zipPrefix);
+            String countryKey = normalize(country);
+            String stateKey = normalize(state);
+            if (zipLength > RateTable.MAX_PREFIX_LENGTH || ratePpm < 0 || ratePpm > MAX_RATE_PPM
+                    || thresholdCents < 0 || (countryKey.isEmpty() && !stateKey.isEmpty())) {
+                return false;
+            }
+            TreeMap<Integer, long[]> zones = rows.computeIfAbsent(countryKey, key -> new HashMap<>())
+                    .computeIfAbsent(stateKey, key -> new TreeMap<>());
+            return zones.putIfAbsent(RateTable.prefixCode(zipPrefix, zipLength),
+                    new long[]{ratePpm, thresholdCents, zipLength}) == null;
+        }
+        
+        public TaxTable build() {
+            List<long[]> rules = new ArrayList<>();
+            Map<String, Map<String, Zones>> jurisdictions = new HashMap<>();
+            for (Map.Entry<String, Map<String, TreeMap<Integer, long[]>>> country : rows.entrySet()) {
+                Map<String, Zones> states = new HashMap<>();
+                for (Map.Entry<String, TreeMap<Integer, long[]>> state : country.getValue().entrySet()) {
+                    int[] prefixCodes = new int[state.getValue().size()];
+                    int[] zoneRules = new int[prefixCodes.length];
+                    int lengths = 0;
+                    int zone = 0;
+                    for (Map.Entry<Integer, long[]> prefix : state.getValue().entrySet()) {
+                        prefixCodes[zone] = prefix.getKey();
+                        zoneRules[zone] = rules.size();
+                        lengths |= 1 << (int) prefix.getValue()[2];
+                        rules.add(prefix.getValue());
+                        zone++;
+                    }
+                    states.put(state.getKey(), new Zones(prefixCodes, zoneRules, lengths));
+                }
+                jurisdictions.put(country.getKey(), Map.copyOf(states));
+            }
+            
+            long[] ratePpm = new long[rules.size()];
+            long[] thresholdCents = new long[rules.size()];
+            for (int i = 0; i < rules.size(); i++) {
+                ratePpm[i] = rules.get(i)[0];
+                thresholdCents[i] = rules.get(i)[1];
+            }
+            return new TaxTable(Map.copyOf(jurisdictions), ratePpm, thresholdCents);
+        }
+    }
+}
\ No newline at end of file
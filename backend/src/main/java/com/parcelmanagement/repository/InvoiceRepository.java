@@ -1,15 +1,24 @@
 package com.parcelmanagement.repository;
 
+import com.parcelmanagement.dto.InvoiceResponseDto;
 import com.parcelmanagement.entity.Invoice;
 import com.parcelmanagement.entity.Parcel;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
@@ -18,6 +27,10 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     
     Optional<Invoice> findByParcel(Parcel parcel);
     
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Invoice i WHERE i.id = :id")
+    Optional<Invoice> findByIdForUpdate(@Param("id") Long id);
+    
     List<Invoice> findByPaymentStatus(Invoice.PaymentStatus paymentStatus);
     
     @Query("SELECT i FROM Invoice i WHERE i.parcel.sender.id = :senderId")
@@ -26,9 +39,85 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     @Query("SELECT i FROM Invoice i WHERE i.issuedDate BETWEEN :startDate AND :endDate")
     List<Invoice> findByIssuedDateBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
-    @Query("SELECT i FROM Invoice i WHERE i.dueDate < :currentDate AND i.paymentStatus = 'PENDING'")
+    @Query("SELECT i FROM Invoice i WHERE i.dueDate < :currentDate AND i.paymentStatus IN ('PENDING', 'OVERDUE')")
     List<Invoice> findOverdueInvoices(@Param("currentDate") LocalDateTime currentDate);
     
     @Query("SELECT SUM(i.totalAmount) FROM Invoice i WHERE i.paymentStatus = 'PAID' AND i.paidDate BETWEEN :startDate AND :endDate")
-    Double getTotalRevenueByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    BigDecimal getTotalRevenueByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    // Builds InvoiceResponseDto rows in one joined query, so listings never touch the lazy parcel association
+    String INVOICE_DTO_SELECT = "SELECT new com.parcelmanagement.dto.InvoiceResponseDto(" +
+            "i.id, i.invoiceNumber, p.id, p.trackingNumber, s.id, CONCAT(s.firstName, ' ', s.lastName), s.email, " +
+            "i.baseAmount, i.taxAmount, i.discountAmount, i.totalAmount, i.paymentStatus, i.paymentMethod, " +
+            "i.issuedDate, i.dueDate, i.paidDate, i.notes) " +
+            "FROM Invoice i JOIN i.parcel p JOIN p.sender s ";
+    
+    // PENDING covers invoices that fell due since the last overdue sweep
+    String OVERDUE = "i.dueDate < :currentDate AND i.paymentStatus IN ('PENDING', 'OVERDUE') ";
+    
+    @Query(INVOICE_DTO_SELECT + "WHERE i.invoiceNumber = :invoiceNumber")
+    Optional<InvoiceResponseDto> findDtoByInvoiceNumber(@Param("invoiceNumber") String invoiceNumber);
+    
+    @Query(INVOICE_DTO_SELECT + "WHERE i.id = :id")
+    Optional<InvoiceResponseDto> findDtoById(@Param("id") Long id);
+    
+    @Query(INVOICE_DTO_SELECT + "WHERE p.id = :parcelId")
+    Optional<InvoiceResponseDto> findDtoByParcelId(@Param("parcelId") Long parcelId);
+    
+    // Keyset pages ordered by (issuedDate DESC, id DESC). First pages have their own queries, and the
+    // leading issuedDate <= bound gives MySQL a range on the issued date indexes for the next ones.
+    String KEYSET_AFTER_CURSOR = "i.issuedDate <= :cursorTime AND (i.issuedDate < :cursorTime OR i.id < :cursorId) ";
+    
+    String KEYSET_ORDER = "ORDER BY i.issuedDate DESC, i.id DESC";
+    
+    @Query(INVOICE_DTO_SELECT + KEYSET_ORDER)
+    List<InvoiceResponseDto> findFirstPage(Pageable pageable);
+    
+    @Query(INVOICE_DTO_SELECT + "WHERE " + KEYSET_AFTER_CURSOR + KEYSET_ORDER)
+    List<InvoiceResponseDto> findPage(@Param("cursorTime") LocalDateTime cursorTime, 
+                                      @Param("cursorId") Long cursorId, 
+                                      Pageable pageable);
+    
+    @Query(INVOICE_DTO_SELECT + "WHERE i.paymentStatus = :paymentStatus " + KEYSET_ORDER)
+    List<InvoiceResponseDto> findFirstPageByPaymentStatus(@Param("paymentStatus") Invoice.PaymentStatus paymentStatus, 
+                                                          Pageable pageable);
+    
+    @Query(INVOICE_DTO_SELECT + "WHERE i.paymentStatus = :paymentStatus AND " + KEYSET_AFTER_CURSOR + KEYSET_ORDER)
+    List<InvoiceResponseDto> findPageByPaymentStatus(@Param("paymentStatus") Invoice.PaymentStatus paymentStatus, 
+                                                     @Param("cursorTime") LocalDateTime cursorTime, 
+                                                     @Param("cursorId") Long cursorId, 
+                                                     Pageable pageable);
+    
+    @Query(INVOICE_DTO_SELECT + "WHERE s.id = :senderId " + KEYSET_ORDER)
+    List<InvoiceResponseDto> findFirstPageBySenderId(@Param("senderId") Long senderId, Pageable pageable);
+    
+    @Query(INVOICE_DTO_SELECT + "WHERE s.id = :senderId AND " + KEYSET_AFTER_CURSOR + KEYSET_ORDER)
+    List<InvoiceResponseDto> findPageBySenderId(@Param("senderId") Long senderId, 
+                                                @Param("cursorTime") LocalDateTime cursorTime, 
+                                                @Param("cursorId") Long cursorId, 
+                                                Pageable pageable);
+    
+    @Query(INVOICE_DTO_SELECT + "WHERE " + OVERDUE + KEYSET_ORDER)
+    List<InvoiceResponseDto> findFirstOverduePage(@Param("currentDate") LocalDateTime currentDate, Pageable pageable);
+    
+    @Query(INVOICE_DTO_SELECT + "WHERE " + OVERDUE + "AND " + KEYSET_AFTER_CURSOR + KEYSET_ORDER)
+    List<InvoiceResponseDto> findOverduePage(@Param("currentDate") LocalDateTime currentDate, 
+                                             @Param("cursorTime") LocalDateTime cursorTime, 
+                                             @Param("cursorId") Long cursorId, 
+                                             Pageable pageable);
+    
+    // Forward-only streams; Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering the result set
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(INVOICE_DTO_SELECT)
+    Stream<InvoiceResponseDto> streamAll();
+    
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(INVOICE_DTO_SELECT + "WHERE i.paymentStatus = :paymentStatus")
+    Stream<InvoiceResponseDto> streamByPaymentStatus(@Param("paymentStatus") Invoice.PaymentStatus paymentStatus);
 }
\ No newline at end of file
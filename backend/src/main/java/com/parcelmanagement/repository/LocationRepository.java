@@ -6,7 +6,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface LocationRepository extends JpaRepository<Location, Long> {
@@ -24,4 +26,9 @@ public interface LocationRepository extends JpaRepository<Location, Long> {
     
     @Query("SELECT l FROM Location l WHERE l.address LIKE %:address%")
     List<Location> findByAddressContaining(@Param("address") String address);
+    
+    Optional<Location> findByAddressHash(String addressHash);
+    
+    @Query("SELECT l.addressHash, l.id FROM Location l WHERE l.addressHash IN :hashes")
+    List<Object[]> findIdsByAddressHashIn(@Param("hashes") Collection<String> hashes);
 }
\ No newline at end of file
@@ -1,21 +1,32 @@
 package com.parcelmanagement.repository;
 
+import com.parcelmanagement.dto.ParcelResponseDto;
+import com.parcelmanagement.dto.ParcelStatusSnapshot;
 import com.parcelmanagement.entity.Parcel;
 import com.parcelmanagement.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ParcelRepository extends JpaRepository<Parcel, Long> {
     
     Optional<Parcel> findByTrackingNumber(String trackingNumber);
     
+    boolean existsByTrackingNumber(String trackingNumber);
+    
     List<Parcel> findBySender(User sender);
     
     List<Parcel> findByReceiver(User receiver);
@@ -41,4 +52,129 @@ public interface ParcelRepository extends JpaRepository<Parcel, Long> {
     
     @Query("SELECT p FROM Parcel p WHERE p.estimatedDeliveryDate < :date AND p.status NOT IN ('DELIVERED', 'CANCELLED')")
     List<Parcel> findOverdueParcels(@Param("date") LocalDateTime date);
+    
+    @Modifying
+    @Query(value = "UPDATE parcels SET receiver_id = :survivorId WHERE receiver_id IN (:duplicateIds)", nativeQuery = true)
+    int repointReceiver(@Param("survivorId") Long survivorId, @Param("duplicateIds") List<Long> duplicateIds);
+    
+    @Modifying
+    @Query(value = "UPDATE parcels SET pickup_location_id = :survivorId WHERE pickup_location_id IN (:duplicateIds)", nativeQuery = true)
+    int repointPickupLocation(@Param("survivorId") Long survivorId, @Param("duplicateIds") List<Long> duplicateIds);
+    
+    @Modifying
+    @Query(value = "UPDATE parcels SET delivery_location_id = :survivorId WHERE delivery_location_id IN (:duplicateIds)", nativeQuery = true)
+    int repointDeliveryLocation(@Param("survivorId") Long survivorId, @Param("duplicateIds") List<Long> duplicateIds);
+    
+    @Query("SELECT new com.parcelmanagement.dto.ParcelStatusSnapshot(" +
+           "p.id, p.trackingNumber, p.status, p.version, p.priority, p.createdAt, p.estimatedDeliveryDate, " +
+           "p.sender.id, p.receiver.id, pl.city, dl.city) " +
+           "FROM Parcel p JOIN p.pickupLocation pl JOIN p.deliveryLocation dl WHERE p.id = :id")
+    Optional<ParcelStatusSnapshot> findStatusSnapshot(@Param("id") Long id);
+    
+    // Locking read of the committed status; only used to retry a transition that lost a race. The
+    // zero-row UPDATE already holds this row's lock under REPEATABLE READ, so it takes no new one.
+    @Query(value = "SELECT status, version FROM parcels WHERE id = :id FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockStatusAndVersion(@Param("id") Long id);
+    
+    // Applies a status transition in one statement; 0 rows means the parcel changed since it was read.
+    // The persistence context is left alone, so callers refresh a parcel they already hold.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Parcel p SET p.status = :status, p.version = p.version + 1, p.updatedAt = :now, " +
+           "p.estimatedDeliveryDate = COALESCE(:estimatedDeliveryDate, p.estimatedDeliveryDate), " +
+           "p.actualDeliveryDate = COALESCE(p.actualDeliveryDate, :deliveredAt) " +
+           "WHERE p.id = :id AND p.version = :version AND p.status IN :allowedStatuses")
+    int applyStatusTransition(@Param("id") Long id, 
+                              @Param("version") Long version, 
+                              @Param("allowedStatuses") Collection<Parcel.ParcelStatus> allowedStatuses, 
+                              @Param("status") Parcel.ParcelStatus status, 
+                              @Param("estimatedDeliveryDate") LocalDateTime estimatedDeliveryDate, 
+                              @Param("deliveredAt") LocalDateTime deliveredAt, 
+                              @Param("now") LocalDateTime now);
+    
+    // Builds ParcelResponseDto rows in one joined query, matching ParcelService.convertToDto and Location.getFullAddress
+    String PARCEL_DTO_SELECT = "SELECT new com.parcelmanagement.dto.ParcelResponseDto(" +
+            "p.id, p.trackingNumber, p.description, p.weight, p.declaredValue, p.shippingCost, p.status, p.priority, " +
+            "CONCAT(s.firstName, ' ', s.lastName), s.email, p.receiverName, p.receiverPhone, p.receiverEmail, " +
+            "CONCAT(pl.address, ', ', pl.city, ', ', pl.state, ', ', pl.country, ' ', pl.zipCode), " +
+            "CONCAT(dl.address, ', ', dl.city, ', ', dl.state, ', ', dl.country, ' ', dl.zipCode), " +
+            "p.specialInstructions, p.estimatedDeliveryDate, p.actualDeliveryDate, p.createdAt, p.updatedAt) " +
+            "FROM Parcel p JOIN p.sender s JOIN p.pickupLocation pl JOIN p.deliveryLocation dl ";
+    
+    @Query(PARCEL_DTO_SELECT + "WHERE p.trackingNumber = :trackingNumber")
+    Optional<ParcelResponseDto> findDtoByTrackingNumber(@Param("trackingNumber") String trackingNumber);
+    
+    @Query(PARCEL_DTO_SELECT + "WHERE p.sender.id = :userId OR p.receiver.id = :userId")
+    List<ParcelResponseDto> findDtosByUserId(@Param("userId") Long userId);
+    
+    @Query(PARCEL_DTO_SELECT + "WHERE p.sender.id = :senderId")
+    List<ParcelResponseDto> findDtosBySenderId(@Param("senderId") Long senderId);
+    
+    @Query(PARCEL_DTO_SELECT + "WHERE p.receiver.id = :receiverId")
+    List<ParcelResponseDto> findDtosByReceiverId(@Param("receiverId") Long receiverId);
+    
+    // Keyset pages ordered by (createdAt DESC, id DESC). First pages have their own queries, and the
+    // leading createdAt <= bound gives MySQL a range on the createdAt index for the next ones.
+    String KEYSET_AFTER_CURSOR = "p.createdAt <= :cursorTime AND (p.createdAt < :cursorTime OR p.id < :cursorId) ";
+    
+    String KEYSET_ORDER = "ORDER BY p.createdAt DESC, p.id DESC";
+    
+    @Query(PARCEL_DTO_SELECT + KEYSET_ORDER)
+    List<ParcelResponseDto> findFirstPage(Pageable pageable);
+    
+    @Query(PARCEL_DTO_SELECT + "WHERE " + KEYSET_AFTER_CURSOR + KEYSET_ORDER)
+    List<ParcelResponseDto> findPage(@Param("cursorTime") LocalDateTime cursorTime, 
+                                     @Param("cursorId") Long cursorId, 
+                                     Pageable pageable);
+    
+    @Query(PARCEL_DTO_SELECT + "WHERE p.status = :status " + KEYSET_ORDER)
+    List<ParcelResponseDto> findFirstPageByStatus(@Param("status") Parcel.ParcelStatus status, Pageable pageable);
+    
+    @Query(PARCEL_DTO_SELECT + "WHERE p.status = :status AND " + KEYSET_AFTER_CURSOR + KEYSET_ORDER)
+    List<ParcelResponseDto> findPageByStatus(@Param("status") Parcel.ParcelStatus status, 
+                                             @Param("cursorTime") LocalDateTime cursorTime, 
+                                             @Param("cursorId") Long cursorId, 
+                                             Pageable pageable);
+    
+    @Query(PARCEL_DTO_SELECT + "WHERE (p.sender.id = :userId OR p.receiver.id = :userId) " + KEYSET_ORDER)
+    List<ParcelResponseDto> findFirstPageByUserId(@Param("userId") Long userId, Pageable pageable);
+    
+    @Query(PARCEL_DTO_SELECT + "WHERE (p.sender.id = :userId OR p.receiver.id = :userId) AND " + 
+           KEYSET_AFTER_CURSOR + KEYSET_ORDER)
+    List<ParcelResponseDto> findPageByUserId(@Param("userId") Long userId, 
+                                             @Param("cursorTime") LocalDateTime cursorTime, 
+                                             @Param("cursorId") Long cursorId, 
+                                             Pageable pageable);
+    
+    @Query(PARCEL_DTO_SELECT + "WHERE p.sender.id = :senderId " + KEYSET_ORDER)
+    List<ParcelResponseDto> findFirstPageBySenderId(@Param("senderId") Long senderId, Pageable pageable);
+    
+    @Query(PARCEL_DTO_SELECT + "WHERE p.sender.id = :senderId AND " + KEYSET_AFTER_CURSOR + KEYSET_ORDER)
+    List<ParcelResponseDto> findPageBySenderId(@Param("senderId") Long senderId, 
+                                               @Param("cursorTime") LocalDateTime cursorTime, 
+                                               @Param("cursorId") Long cursorId, 
+                                               Pageable pageable);
+    
+    @Query(PARCEL_DTO_SELECT + "WHERE p.receiver.id = :receiverId " + KEYSET_ORDER)
+    List<ParcelResponseDto> findFirstPageByReceiverId(@Param("receiverId") Long receiverId, Pageable pageable);
+    
+    @Query(PARCEL_DTO_SELECT + "WHERE p.receiver.id = :receiverId AND " + KEYSET_AFTER_CURSOR + KEYSET_ORDER)
+    List<ParcelResponseDto> findPageByReceiverId(@Param("receiverId") Long receiverId, 
+                                                 @Param("cursorTime") LocalDateTime cursorTime, 
+                                                 @Param("cursorId") Long cursorId, 
+                                                 Pageable pageable);
+    
+    // Forward-only streams; Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering the result set
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(PARCEL_DTO_SELECT)
+    Stream<ParcelResponseDto> streamAll();
+    
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(PARCEL_DTO_SELECT + "WHERE p.status = :status")
+    Stream<ParcelResponseDto> streamByStatus(@Param("status") Parcel.ParcelStatus status);
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.parcelmanagement.repository;
+
+import com.parcelmanagement.dto.ParcelTrackingSummaryDto;
+import com.parcelmanagement.entity.ParcelTrackingHead;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ParcelTrackingHeadRepository extends JpaRepository<ParcelTrackingHead, Long> {
+    
+    // Builds ParcelTrackingSummaryDto rows with the updater's name joined in, matching TrackingRepository.TRACKING_DTO_SELECT
+    String SUMMARY_DTO_SELECT = "SELECT new com.parcelmanagement.dto.ParcelTrackingSummaryDto(" +
+            "h.parcelId, h.trackingNumber, h.trackingId, h.status, h.location, h.description, h.eventTime, " +
+            "CASE WHEN u.id IS NULL THEN 'System' ELSE CONCAT(u.firstName, ' ', u.lastName) END) " +
+            "FROM ParcelTrackingHead h LEFT JOIN User u ON u.id = h.updatedBy ";
+    
+    @Query(SUMMARY_DTO_SELECT + "WHERE h.trackingNumber = :trackingNumber")
+    Optional<ParcelTrackingSummaryDto> findSummaryByTrackingNumber(@Param("trackingNumber") String trackingNumber);
+    
+    @Query(SUMMARY_DTO_SELECT + "JOIN Parcel p ON p.id = h.parcelId " +
+           "WHERE p.sender.id = :userId OR p.receiver.id = :userId ORDER BY h.eventTime DESC")
+    List<ParcelTrackingSummaryDto> findSummariesByUserId(@Param("userId") Long userId);
+    
+    // Every parcel the user sends or receives; parcels without a head yet come with a null tracking id
+    @Query("SELECT new com.parcelmanagement.dto.ParcelTrackingSummaryDto(" +
+           "p.id, p.trackingNumber, h.trackingId, h.status, h.location, h.description, h.eventTime, " +
+           "CASE WHEN u.id IS NULL THEN 'System' ELSE CONCAT(u.firstName, ' ', u.lastName) END) " +
+           "FROM Parcel p LEFT JOIN ParcelTrackingHead h ON h.parcelId = p.id LEFT JOIN User u ON u.id = h.updatedBy " +
+           "WHERE p.sender.id = :userId OR p.receiver.id = :userId ORDER BY p.trackingNumber")
+    List<ParcelTrackingSummaryDto> findLatestByUserId(@Param("userId") Long userId);
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.parcelmanagement.repository;
 
+import com.parcelmanagement.dto.TrackingResponseDto;
 import com.parcelmanagement.entity.Parcel;
 import com.parcelmanagement.entity.Tracking;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -23,6 +24,30 @@ public interface TrackingRepository extends JpaRepository<Tracking, Long> {
     @Query("SELECT t FROM Tracking t WHERE t.parcel.id = :parcelId ORDER BY t.timestamp DESC")
     List<Tracking> findByParcelIdOrderByTimestampDesc(@Param("parcelId") Long parcelId);
     
+    // Builds TrackingResponseDto rows with the updater's name joined in, matching TrackingService.convertToDto
+    String TRACKING_DTO_SELECT = "SELECT new com.parcelmanagement.dto.TrackingResponseDto(" +
+            "t.id, t.status, t.location, t.description, t.timestamp, " +
+            "CASE WHEN u.id IS NULL THEN 'System' ELSE CONCAT(u.firstName, ' ', u.lastName) END) " +
+            "FROM Tracking t LEFT JOIN t.updatedBy u ";
+    
+    @Query(TRACKING_DTO_SELECT + "WHERE t.parcel.id = :parcelId ORDER BY t.timestamp DESC")
+    List<TrackingResponseDto> findDtosByParcelId(@Param("parcelId") Long parcelId);
+    
+    // Tracking rows of every parcel the user sends or receives, newest first per parcel and cut to the latest
+    // :latest rows in the database; parcels without tracking yield one row with a null tracking id
+    @Query(value = "SELECT ranked.tracking_number, ranked.id, ranked.status, ranked.location, ranked.description, " +
+            "ranked.timestamp, ranked.updated_by_name FROM (" +
+            "SELECT p.tracking_number, t.id, t.status, t.location, t.description, t.timestamp, " +
+            "CASE WHEN u.id IS NULL THEN 'System' ELSE CONCAT(u.first_name, ' ', u.last_name) END AS updated_by_name, " +
+            "ROW_NUMBER() OVER (PARTITION BY p.id ORDER BY t.timestamp DESC, t.id DESC) AS position " +
+            "FROM parcels p " +
+            "LEFT JOIN tracking t ON t.parcel_id = p.id " +
+            "LEFT JOIN users u ON u.id = t.updated_by " +
+            "WHERE p.sender_id = :userId OR p.receiver_id = :userId) ranked " +
+            "WHERE ranked.position <= :latest " +
+            "ORDER BY ranked.tracking_number, ranked.position", nativeQuery = true)
+    List<Object[]> findOverviewRowsByUserId(@Param("userId") Long userId, @Param("latest") int latest);
+    
     @Query("SELECT t FROM Tracking t WHERE t.timestamp BETWEEN :startDate AND :endDate ORDER BY t.timestamp DESC")
     List<Tracking> findByTimestampBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
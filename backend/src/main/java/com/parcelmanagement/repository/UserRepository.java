@@ -2,6 +2,7 @@ package com.parcelmanagement.repository;
 
 import com.parcelmanagement.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -27,4 +28,17 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     @Query("SELECT u FROM User u WHERE u.firstName LIKE %:name% OR u.lastName LIKE %:name%")
     List<User> findByNameContaining(@Param("name") String name);
+    
+    @Modifying
+    @Query(value = "DELETE FROM users WHERE id IN (:ids) " +
+                   "AND NOT EXISTS (SELECT 1 FROM parcels p WHERE p.sender_id = users.id) " +
+                   "AND NOT EXISTS (SELECT 1 FROM parcels p WHERE p.receiver_id = users.id) " +
+                   "AND NOT EXISTS (SELECT 1 FROM tracking t WHERE t.updated_by = users.id)", nativeQuery = true)
+    int deleteUnreferencedReceivers(@Param("ids") List<Long> ids);
+    
+    // Skipped when another row already owns the email
+    @Modifying
+    @Query(value = "UPDATE users u LEFT JOIN users other ON other.email = :email AND other.id <> u.id " +
+                   "SET u.email = :email WHERE u.id = :id AND other.id IS NULL", nativeQuery = true)
+    int adoptIdentityEmail(@Param("id") Long id, @Param("email") String email);
 }
\ No newline at end of file
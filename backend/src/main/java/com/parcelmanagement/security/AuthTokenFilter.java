@@ -19,20 +19,29 @@ import java.io.IOException;
 @Component
 public class AuthTokenFilter extends OncePerRequestFilter {
     
+    private static final String USER_STREAM_PATH = "/api/tracking/stream/user";
+    
     @Autowired
     private JwtUtils jwtUtils;
     
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
     
+    @Autowired
+    private StreamTicketService streamTicketService;
+    
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         try {
+            String username = null;
             String jwt = parseJwt(request);
             if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-                
+                username = jwtUtils.getUserNameFromJwtToken(jwt);
+            } else if (USER_STREAM_PATH.equals(request.getRequestURI())) {
+                username = redeemStreamTicket(request);
+            }
+            if (username != null) {
                 UserDetails userDetails = userDetailsService.loadUserByUsername(username);
                 UsernamePasswordAuthenticationToken authentication = 
                     new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -56,4 +65,10 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         
         return null;
     }
+    
+    // Browsers cannot set headers on an EventSource, so the user's event stream takes a single-use ticket instead
+    private String redeemStreamTicket(HttpServletRequest request) {
+        String ticket = request.getParameter("ticket");
+        return StringUtils.hasText(ticket) ? streamTicketService.redeem(ticket) : null;
+    }
 }
\ No newline at end of file
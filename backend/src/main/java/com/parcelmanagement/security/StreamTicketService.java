@@ -0,0 +1,55 @@
+package com.parcelmanagement.security;
+
+import com.parcelmanagement.cache.LruCache;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Short-lived, single-use tickets that open a user's tracking event stream. Browsers cannot
+ * set an Authorization header on an EventSource, so the client trades its JWT for a ticket in
+ * an authenticated POST and puts only the ticket in the stream URL; the session token never
+ * shows up in request lines or access logs.
+ */
+@Component
+public class StreamTicketService {
+    
+    private static final int TICKET_BYTES = 32;
+    
+    private final SecureRandom random = new SecureRandom();
+    
+    @Value("${parcel.tracking.stream.ticket-ttl-ms:30000}")
+    private long ticketTtlMillis;
+    
+    @Value("${parcel.tracking.stream.max-subscribers:25000}")
+    private int maxTickets;
+    
+    private LruCache<String, String> usernames;
+    
+    @PostConstruct
+    void init() {
+        usernames = new LruCache<>(maxTickets, ticketTtlMillis);
+    }
+    
+    public String issue(String username) {
+        byte[] bytes = new byte[TICKET_BYTES];
+        random.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        usernames.put(ticket, username);
+        return ticket;
+    }
+    
+    /**
+     * Username the ticket was issued to, or null when it is unknown, expired or already used.
+     */
+    public String redeem(String ticket) {
+        return usernames.remove(ticket);
+    }
+    
+    public long getTicketTtlMillis() {
+        return ticketTtlMillis;
+    }
+}
\ No newline at end of file
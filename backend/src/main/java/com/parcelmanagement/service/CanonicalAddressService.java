@@ -0,0 +1,138 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.cache.LruCache;
+import com.parcelmanagement.entity.Location;
+import com.parcelmanagement.repository.LocationRepository;
+import com.parcelmanagement.util.AfterCommit;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Keeps one Location row per distinct address. Addresses are normalized (trimmed,
+ * whitespace collapsed, upper-cased), hashed, and looked up through a near cache in front
+ * of the unique index on locations.address_hash; only unseen addresses are inserted, in the
+ * caller's transaction.
+ */
+@Service
+public class CanonicalAddressService {
+    
+    private static final char FIELD_SEPARATOR = '\u001F';
+    
+    private static final String INSERT_LOCATION =
+            "INSERT INTO locations (id, address, city, state, country, zip_code, address_hash) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE id = id";
+    
+    private static final String LOCK_LOCATION =
+            "SELECT id FROM locations WHERE address_hash = ? FOR SHARE";
+    
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+    
+    @Autowired
+    private LocationRepository locationRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Value("${parcel.locations.cache-size:200000}")
+    private int cacheSize;
+    
+    private LruCache<String, Long> locationIds;
+    
+    @PostConstruct
+    void init() {
+        locationIds = new LruCache<>(cacheSize);
+    }
+    
+    public Location resolve(String address, String city, String state, String country, String zipCode) {
+        String hash = addressHash(address, city, state, country, zipCode);
+        
+        Long cachedId = locationIds.get(hash);
+        if (cachedId != null) {
+            return locationRepository.getReferenceById(cachedId);
+        }
+        
+        Long id = locationRepository.findByAddressHash(hash)
+                .map(Location::getId)
+                .orElseGet(() -> create(hash, address, city, state, country, zipCode));
+        // A location inserted by this transaction only exists once it commits
+        AfterCommit.run(() -> locationIds.put(hash, id));
+        return locationRepository.getReferenceById(id);
+    }
+    
+    public Map<String, Object> cacheStats() {
+        return locationIds.stats();
+    }
+    
+    public void clearCache() {
+        locationIds.clear();
+    }
+    
+    public static String addressHash(String address, String city, String state, String country, String zipCode) {
+        StringBuilder canonical = new StringBuilder(128);
+        appendNormalized(canonical, address);
+        appendNormalized(canonical, city);
+        appendNormalized(canonical, state);
+        appendNormalized(canonical, country);
+        appendNormalized(canonical, zipCode);
+        
+        byte[] digest = SHA_256.get().digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest);
+    }
+    
+    private static void appendNormalized(StringBuilder canonical, String value) {
+        if (value != null) {
+            boolean pendingSpace = false;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    pendingSpace = true;
+                    continue;
+                }
+                if (pendingSpace && canonical.length() > 0 && canonical.charAt(canonical.length() - 1) != FIELD_SEPARATOR) {
+                    canonical.append(' ');
+                }
+                pendingSpace = false;
+                canonical.append(Character.toUpperCase(c));
+            }
+        }
+        canonical.append(FIELD_SEPARATOR);
+    }
+    
+    private Long create(String hash, String address, String city, String state, String country, String zipCode) {
+        // A concurrent booking may insert the same address; the insert then waits for it and changes nothing
+        jdbcTemplate.update(INSERT_LOCATION, nextLocationId(), address.trim(), city.trim(), state.trim(), 
+                country.trim(), zipCode.trim(), hash);
+        // A locking read sees the committed row even when this transaction's snapshot predates it
+        return jdbcTemplate.queryForObject(LOCK_LOCATION, Long.class, hash);
+    }
+    
+    // Draws from the same pooled locations_seq generator Hibernate uses for Location, so ids never collide
+    private Long nextLocationId() {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Location.class);
+        return (Long) ((IdentifierGenerator) persister.getGenerator()).generate(session, null);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,243 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.entity.Parcel;
+import com.parcelmanagement.eta.TransitTimeSketch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Estimates delivery dates from observed transit times. Every delivery feeds a quantile sketch
+ * for its lane (pickup city, delivery city, priority) and for its priority as a whole; estimates
+ * read the configured quantile from the lane, falling back to the priority when the lane has too
+ * few samples and to the fixed 1/2/5 day promise when both do. Sketches live in memory and are
+ * snapshotted to lane_transit_snapshots; the tracking history is only replayed when there is no
+ * snapshot yet or on request.
+ */
+@Service
+public class EtaService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EtaService.class);
+    
+    private static final char KEY_SEPARATOR = '\u001F';
+    
+    private static final String LOAD_SNAPSHOTS =
+            "SELECT pickup_city, delivery_city, priority, buckets FROM lane_transit_snapshots";
+    
+    private static final String UPSERT_SNAPSHOT =
+            "INSERT INTO lane_transit_snapshots (pickup_city, delivery_city, priority, sample_count, buckets, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "sample_count = VALUES(sample_count), buckets = VALUES(buckets), updated_at = VALUES(updated_at)";
+    
+    // Booking to first DELIVERED scan of every delivered parcel
+    // Archived parcels no longer have tracking rows; archiving keeps their delivery time on the parcel
+    private static final String DELIVERED_TRANSIT_TIMES =
+            "SELECT pl.city AS pickup_city, dl.city AS delivery_city, p.priority, " +
+            "TIMESTAMPDIFF(MINUTE, p.created_at, COALESCE(MIN(t.timestamp), p.actual_delivery_date)) AS minutes " +
+            "FROM parcels p " +
+            "JOIN locations pl ON pl.id = p.pickup_location_id " +
+            "JOIN locations dl ON dl.id = p.delivery_location_id " +
+            "LEFT JOIN tracking t ON t.parcel_id = p.id AND t.status = 'DELIVERED' " +
+            "WHERE t.id IS NOT NULL OR p.actual_delivery_date IS NOT NULL " +
+            "GROUP BY p.id, pl.city, dl.city, p.priority, p.created_at, p.actual_delivery_date";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${parcel.eta.quantile:0.9}")
+    private double quantile;
+    
+    @Value("${parcel.eta.min-samples:20}")
+    private long minSamples;
+    
+    private volatile Model model = new Model();
+    
+    private volatile LocalDateTime lastSnapshotAt;
+    
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    
+    public LocalDateTime estimate(String pickupCity, String deliveryCity, Parcel.Priority priority, LocalDateTime bookedAt) {
+        Parcel.Priority effectivePriority = priority != null ? priority : Parcel.Priority.STANDARD;
+        long elapsedMinutes = Math.max(0, Duration.between(bookedAt, LocalDateTime.now()).toMinutes());
+        
+        Model current = model;
+        Lane lane = current.lanes.get(laneKey(normalizeCity(pickupCity), normalizeCity(deliveryCity), effectivePriority));
+        long minutes = lane != null ? quantile(lane.sketch, elapsedMinutes) : -1;
+        if (minutes < 0) {
+            minutes = quantile(current.byPriority[effectivePriority.ordinal()], elapsedMinutes);
+        }
+        if (minutes >= 0) {
+            return bookedAt.plusMinutes(minutes);
+        }
+        return bookedAt.plusDays(defaultTransitDays(effectivePriority));
+    }
+    
+    public void recordDelivery(String pickupCity, String deliveryCity, Parcel.Priority priority, 
+                               LocalDateTime bookedAt, LocalDateTime deliveredAt) {
+        long minutes = Math.max(0, Duration.between(bookedAt, deliveredAt).toMinutes());
+        model.record(normalizeCity(pickupCity), normalizeCity(deliveryCity), 
+                priority != null ? priority : Parcel.Priority.STANDARD, minutes);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Model loaded = new Model();
+        jdbcTemplate.query(LOAD_SNAPSHOTS, rs -> {
+            Parcel.Priority priority = Parcel.Priority.valueOf(rs.getString("priority"));
+            TransitTimeSketch sketch = TransitTimeSketch.decode(rs.getString("buckets"));
+            // Loaded state is already persisted
+            sketch.markClean();
+            loaded.lanes.put(laneKey(rs.getString("pickup_city"), rs.getString("delivery_city"), priority),
+                    new Lane(rs.getString("pickup_city"), rs.getString("delivery_city"), priority, sketch));
+            loaded.byPriority[priority.ordinal()].merge(sketch);
+        });
+        
+        if (loaded.lanes.isEmpty()) {
+            rebuild();
+        } else {
+            model = loaded;
+            logger.info("Loaded transit time snapshots for {} lanes", loaded.lanes.size());
+        }
+    }
+    
+    /**
+     * Replaces the in-memory sketches with ones built from the full tracking history.
+     */
+    public Map<String, Object> rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new RuntimeException("ETA rebuild is already running");
+        }
+        
+        try {
+            Model rebuilt = new Model();
+            JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+            streaming.setFetchSize(Integer.MIN_VALUE);
+            streaming.query(DELIVERED_TRANSIT_TIMES, rs -> {
+                String priority = rs.getString("priority");
+                rebuilt.record(normalizeCity(rs.getString("pickup_city")), normalizeCity(rs.getString("delivery_city")),
+                        priority != null ? Parcel.Priority.valueOf(priority) : Parcel.Priority.STANDARD,
+                        Math.max(0, rs.getLong("minutes")));
+            });
+            model = rebuilt;
+            snapshot();
+            
+            logger.info("Rebuilt transit time sketches for {} lanes", rebuilt.lanes.size());
+            return stats();
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+    
+    @Scheduled(initialDelayString = "${parcel.eta.snapshot-interval-ms:300000}", 
+               fixedDelayString = "${parcel.eta.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        
+        List<Object[]> dirtyLanes = new ArrayList<>();
+        for (Lane lane : model.lanes.values()) {
+            if (lane.sketch.markClean()) {
+                dirtyLanes.add(new Object[]{lane.pickupCity, lane.deliveryCity, lane.priority.name(), 
+                        lane.sketch.count(), lane.sketch.encode(), updatedAt});
+            }
+        }
+        if (!dirtyLanes.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SNAPSHOT, dirtyLanes);
+            logger.debug("Snapshotted transit times of {} lanes", dirtyLanes.size());
+        }
+        lastSnapshotAt = now;
+    }
+    
+    public Map<String, Object> stats() {
+        Model current = model;
+        long samples = 0;
+        for (TransitTimeSketch sketch : current.byPriority) {
+            samples += sketch.count();
+        }
+        
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("lanes", current.lanes.size());
+        stats.put("samples", samples);
+        stats.put("quantile", quantile);
+        stats.put("minSamples", minSamples);
+        stats.put("lastSnapshotAt", lastSnapshotAt);
+        return stats;
+    }
+    
+    private long quantile(TransitTimeSketch sketch, long elapsedMinutes) {
+        if (sketch.count() < minSamples) {
+            return -1;
+        }
+        return sketch.quantile(quantile, elapsedMinutes);
+    }
+    
+    private static long defaultTransitDays(Parcel.Priority priority) {
+        switch (priority) {
+            case OVERNIGHT:
+                return 1;
+            case EXPRESS:
+                return 2;
+            default:
+                return 5;
+        }
+    }
+    
+    private static String normalizeCity(String city) {
+        return city == null ? "" : city.trim().toUpperCase(Locale.ROOT);
+    }
+    
+    private static String laneKey(String pickupCity, String deliveryCity, Parcel.Priority priority) {
+        return pickupCity + KEY_SEPARATOR + deliveryCity + KEY_SEPARATOR + priority.ordinal();
+    }
+    
+    private static class Lane {
+        
+        private final String pickupCity;
+        private final String deliveryCity;
+        private final Parcel.Priority priority;
+        private final TransitTimeSketch sketch;
+        
+        Lane(String pickupCity, String deliveryCity, Parcel.Priority priority, TransitTimeSketch sketch) {
+            this.pickupCity = pickupCity;
+            this.deliveryCity = deliveryCity;
+            this.priority = priority;
+            this.sketch = sketch;
+        }
+    }
+    
+    private static class Model {
+        
+        private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+        private final TransitTimeSketch[] byPriority = new TransitTimeSketch[Parcel.Priority.values().length];
+        
+        Model() {
+            for (int i = 0; i < byPriority.length; i++) {
+                byPriority[i] = new TransitTimeSketch();
+            }
+        }
+        
+        void record(String pickupCity, String deliveryCity, Parcel.Priority priority, long minutes) {
+            lanes.computeIfAbsent(laneKey(pickupCity, deliveryCity, priority), 
+                    key -> new Lane(pickupCity, deliveryCity, priority, new TransitTimeSketch()))
+                    .sketch.record(minutes);
+            byPriority[priority.ordinal()].record(minutes);
+        }
+    }
+}
\ No newline at end of file
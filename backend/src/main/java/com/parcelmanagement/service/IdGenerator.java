@@ -0,0 +1,10 @@
+package com.parcelmanagement.service;
+
+/**
+ * Source of unique, roughly time-ordered 63-bit identifiers.
+ * Provide another bean of this type to change how reference numbers are generated.
+ */
+public interface IdGenerator {
+    
+    long nextId();
+}
\ No newline at end of file
@@ -0,0 +1,336 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.entity.Invoice;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Invoices every delivered parcel that has no invoice yet. A run splits the parcel id space into
+ * partitions stored in invoice_batch_partitions; workers on any node claim partitions and walk
+ * them in id order, inserting one chunk of invoices and moving the partition's checkpoint in the
+ * same transaction. A crashed worker's partition is picked up from its checkpoint once its
+ * heartbeat goes stale by the database clock, and an unfinished run resumes on startup. A
+ * partition that fails max-attempts times is abandoned, so it no longer holds back new runs.
+ * Parcels delivered after a partition passed them are left to the next run.
+ */
+@Service
+public class InvoiceBatchService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceBatchService.class);
+    
+    // Anti-join against the unique invoices.parcel_id key, keyset paged by parcel id from the checkpoint
+    private static final String UNINVOICED_PARCELS =
+            "SELECT p.id, p.shipping_cost, l.country, l.state, l.zip_code FROM parcels p " +
+            "JOIN locations l ON l.id = p.delivery_location_id LEFT JOIN invoices i ON i.parcel_id = p.id " +
+            "WHERE p.id >= ? AND p.id < ? AND p.status = 'DELIVERED' AND i.id IS NULL " +
+            "ORDER BY p.id LIMIT ?";
+    
+    // A parcel invoiced on demand in the meantime keeps that invoice
+    private static final String INSERT_INVOICE =
+            "INSERT INTO invoices (invoice_number, parcel_id, base_amount, tax_amount, discount_amount, total_amount, " +
+            "payment_status, issued_date, due_date) VALUES (?, ?, ?, ?, ?, ?, 'PENDING', ?, ?) " +
+            "ON DUPLICATE KEY UPDATE parcel_id = parcel_id";
+    
+    private static final String UNFINISHED_RUN =
+            "SELECT MIN(run_id) FROM invoice_batch_partitions WHERE status IN ('PENDING', 'RUNNING', 'FAILED')";
+    
+    // Partitions out of attempts: failed ones, and running ones whose last worker stopped heartbeating
+    private static final String ABANDON_EXHAUSTED =
+            "UPDATE invoice_batch_partitions SET status = 'ABANDONED' WHERE attempts >= ? AND " +
+            "(status = 'FAILED' OR (status = 'RUNNING' AND heartbeat_at < TIMESTAMPADD(MICROSECOND, ?, NOW(6))))";
+    
+    private static final String INSERT_PARTITION =
+            "INSERT INTO invoice_batch_partitions (run_id, range_start, range_end, next_parcel_id, status, invoices, attempts, " +
+            "created_at) VALUES (?, ?, ?, ?, 'PENDING', 0, 0, ?)";
+    
+    // Heartbeats are stamped and judged by the database clock, so skewed node clocks cannot steal a live partition
+    private static final String CLAIM =
+            "UPDATE invoice_batch_partitions SET status = 'RUNNING', owner = ?, heartbeat_at = NOW(6), " +
+            "attempts = attempts + 1, last_error = NULL WHERE id = ? AND attempts < ? AND " +
+            "(status IN ('PENDING', 'FAILED') OR (status = 'RUNNING' AND heartbeat_at < TIMESTAMPADD(MICROSECOND, ?, NOW(6))))";
+    
+    // 0 rows means another worker took the partition over after this one's heartbeat went stale
+    private static final String ADVANCE =
+            "UPDATE invoice_batch_partitions SET next_parcel_id = ?, invoices = invoices + ?, heartbeat_at = NOW(6), " +
+            "status = ?, completed_at = ? WHERE id = ? AND owner = ? AND status = 'RUNNING'";
+    
+    private static final String FAIL =
+            "UPDATE invoice_batch_partitions SET status = IF(attempts >= ?, 'ABANDONED', 'FAILED'), last_error = ? " +
+            "WHERE id = ? AND owner = ? AND status = 'RUNNING'";
+    
+    // Affected-row counts of the upsert cannot tell an insert from a skipped duplicate, the invoice numbers can
+    private static final String COUNT_INSERTED =
+            "SELECT COUNT(*) FROM invoices WHERE invoice_number IN (%s)";
+    
+    private static final String RUN_PROGRESS =
+            "SELECT COUNT(*) AS partitions, SUM(status = 'COMPLETED') AS completed, SUM(status = 'RUNNING') AS running, " +
+            "SUM(status = 'FAILED') AS failed, SUM(status = 'ABANDONED') AS abandoned, SUM(invoices) AS invoices, " +
+            "MIN(created_at) AS created_at " +
+            "FROM invoice_batch_partitions WHERE run_id = ?";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ReferenceNumberService referenceNumberService;
+    
+    @Autowired
+    private IdGenerator idGenerator;
+    
+    @Autowired
+    private TaxService taxService;
+    
+    @Value("${parcel.invoicing.batch.partitions:16}")
+    private int defaultPartitions;
+    
+    @Value("${parcel.invoicing.batch.workers:4}")
+    private int workers;
+    
+    @Value("${parcel.invoicing.batch.chunk-size:1000}")
+    private int chunkSize;
+    
+    @Value("${parcel.invoicing.batch.lease-timeout-ms:300000}")
+    private long leaseTimeoutMillis;
+    
+    @Value("${parcel.invoicing.batch.max-attempts:3}")
+    private int maxAttempts;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    
+    private final LongAdder invoicedParcels = new LongAdder();
+    private final LongAdder failedPartitions = new LongAdder();
+    
+    private ExecutorService executor;
+    
+    @PostConstruct
+    void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "invoice-batch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        if (jdbcTemplate.queryForObject(UNFINISHED_RUN, Long.class) != null) {
+            start(null);
+        }
+    }
+    
+    @Scheduled(cron = "${parcel.invoicing.batch.cron:0 0 2 1 * *}")
+    public void scheduledRun() {
+        if (!running.get()) {
+            start(null);
+        }
+    }
+    
+    /**
+     * Joins the oldest unfinished run, or starts a new one split into the given number of
+     * partitions, and returns its progress. The work continues in the background.
+     */
+    public Map<String, Object> start(Integer partitions) {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Batch invoicing is already running on this node");
+        }
+        
+        Long runId;
+        try {
+            jdbcTemplate.update(ABANDON_EXHAUSTED, maxAttempts, -leaseTimeoutMillis * 1000);
+            runId = jdbcTemplate.queryForObject(UNFINISHED_RUN, Long.class);
+            if (runId == null) {
+                runId = createRun(partitions != null ? partitions : defaultPartitions);
+            }
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        if (runId == null) {
+            running.set(false);
+            return progress(null);
+        }
+        
+        long id = runId;
+        activeWorkers.set(workers);
+        for (int i = 0; i < workers; i++) {
+            executor.execute(() -> work(id));
+        }
+        logger.info("Batch invoicing run {} started with {} workers", runId, workers);
+        return progress(runId);
+    }
+    
+    /**
+     * Progress of the latest run.
+     */
+    public Map<String, Object> progress() {
+        return progress(jdbcTemplate.queryForObject("SELECT MAX(run_id) FROM invoice_batch_partitions", Long.class));
+    }
+    
+    private Map<String, Object> progress(Long runId) {
+        Map<String, Object> progress = new HashMap<>();
+        progress.put("runId", runId);
+        progress.put("activeOnThisNode", running.get());
+        progress.put("invoicedOnThisNode", invoicedParcels.sum());
+        progress.put("failedPartitionsOnThisNode", failedPartitions.sum());
+        if (runId != null) {
+            jdbcTemplate.query(RUN_PROGRESS, rs -> {
+                progress.put("partitions", rs.getLong("partitions"));
+                progress.put("completedPartitions", rs.getLong("completed"));
+                progress.put("runningPartitions", rs.getLong("running"));
+                progress.put("failedPartitions", rs.getLong("failed"));
+                progress.put("abandonedPartitions", rs.getLong("abandoned"));
+                progress.put("invoices", rs.getLong("invoices"));
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                progress.put("createdAt", createdAt != null ? createdAt.toLocalDateTime() : null);
+            }, runId);
+        }
+        return progress;
+    }
+    
+    // Splits the current parcel id space into equal ranges; null when there are no parcels
+    private Long createRun(int partitions) {
+        if (partitions < 1) {
+            throw new RuntimeException("A run needs at least one partition");
+        }
+        long[] bounds = jdbcTemplate.queryForObject("SELECT MIN(id), MAX(id) FROM parcels",
+                (rs, rowNum) -> rs.getObject(1) == null ? null : new long[]{rs.getLong(1), rs.getLong(2) + 1});
+        if (bounds == null) {
+            return null;
+        }
+        
+        long runId = idGenerator.nextId();
+        long width = Math.max(1, (bounds[1] - bounds[0] + partitions - 1) / partitions);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(partitions);
+        for (long from = bounds[0]; from < bounds[1]; from += width) {
+            rows.add(new Object[]{runId, from, Math.min(from + width, bounds[1]), from, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_PARTITION, rows);
+        logger.info("Created batch invoicing run {} over parcel ids {} to {} in {} partitions",
+                runId, bounds[0], bounds[1] - 1, rows.size());
+        return runId;
+    }
+    
+    private void work(long runId) {
+        // Each worker owns its partitions alone, so a stale claim by one cannot be renewed by another
+        String owner = UUID.randomUUID().toString();
+        try {
+            List<Long> partitionIds = jdbcTemplate.queryForList("SELECT id FROM invoice_batch_partitions " +
+                    "WHERE run_id = ? AND status IN ('PENDING', 'RUNNING', 'FAILED') ORDER BY id", Long.class, runId);
+            for (Long partitionId : partitionIds) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                if (claim(partitionId, owner)) {
+                    process(partitionId, owner);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Batch invoicing worker stopped", e);
+        } finally {
+            if (activeWorkers.decrementAndGet() == 0) {
+                running.set(false);
+                logger.info("Batch invoicing run {} finished on this node: {}", runId, progress(runId));
+            }
+        }
+    }
+    
+    private boolean claim(long partitionId, String owner) {
+        return jdbcTemplate.update(CLAIM, owner, partitionId, maxAttempts, -leaseTimeoutMillis * 1000) == 1;
+    }
+    
+    private void process(long partitionId, String owner) {
+        long[] range = jdbcTemplate.queryForObject("SELECT next_parcel_id, range_end FROM invoice_batch_partitions WHERE id = ?",
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)}, partitionId);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        
+        try {
+            long next = range[0];
+            while (next < range[1]) {
+                long checkpoint = next;
+                long[] step = transactionTemplate.execute(status -> invoiceChunk(partitionId, owner, checkpoint, range[1]));
+                invoicedParcels.add(step[1]);
+                next = step[0];
+            }
+        } catch (RuntimeException e) {
+            failedPartitions.increment();
+            logger.warn("Batch invoicing partition {} failed", partitionId, e);
+            String message = String.valueOf(e.getMessage());
+            jdbcTemplate.update(FAIL, maxAttempts, message.length() > 1000 ? message.substring(0, 1000) : message, 
+                    partitionId, owner);
+        }
+    }
+    
+    // Returns the new checkpoint and the number of parcels invoiced
+    private long[] invoiceChunk(long partitionId, String owner, long next, long end) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp issued = Timestamp.valueOf(now);
+        Timestamp due = Timestamp.valueOf(now.plusDays(Invoice.PAYMENT_TERM_DAYS));
+        List<Object[]> invoices = new ArrayList<>(chunkSize);
+        long[] lastParcelId = {next - 1};
+        
+        // Same amounts as InvoiceService.generateInvoice
+        jdbcTemplate.query(UNINVOICED_PARCELS, rs -> {
+            long parcelId = rs.getLong("id");
+            BigDecimal baseAmount = rs.getBigDecimal("shipping_cost");
+            BigDecimal taxAmount = taxService.taxOn(baseAmount, rs.getString("country"), rs.getString("state"),
+                    rs.getString("zip_code"));
+            BigDecimal discountAmount = BigDecimal.ZERO;
+            invoices.add(new Object[]{referenceNumberService.nextInvoiceNumber(), parcelId, baseAmount, taxAmount,
+                    discountAmount, baseAmount.add(taxAmount).subtract(discountAmount), issued, due});
+            lastParcelId[0] = parcelId;
+        }, next, end, chunkSize);
+        long inserted = 0;
+        if (!invoices.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_INVOICE, invoices);
+            Object[] invoiceNumbers = invoices.stream().map(invoice -> invoice[0]).toArray();
+            inserted = jdbcTemplate.queryForObject(String.format(COUNT_INSERTED, 
+                    String.join(", ", Collections.nCopies(invoiceNumbers.length, "?"))), Long.class, invoiceNumbers);
+        }
+        
+        boolean done = invoices.size() < chunkSize;
+        long checkpoint = done ? end : lastParcelId[0] + 1;
+        int owned = jdbcTemplate.update(ADVANCE, checkpoint, inserted,
+                done ? "COMPLETED" : "RUNNING", done ? issued : null, partitionId, owner);
+        if (owned == 0) {
+            throw new RuntimeException("Batch invoicing partition " + partitionId + " was taken over by another worker");
+        }
+        return new long[]{checkpoint, inserted};
+    }
+}
\ No newline at end of file
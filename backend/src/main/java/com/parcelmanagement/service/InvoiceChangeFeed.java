@@ -0,0 +1,102 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.entity.Invoice;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Durable feed of bulk invoice status transitions in invoice_change_feed. Each entry lists the
+ * affected invoice ids as ascending varint-encoded deltas, which takes one or two bytes per id
+ * for the dense id ranges bulk jobs work on. Entries are written in the transaction that changed
+ * the invoices, so consumers polling by entry id never see a change that rolled back.
+ */
+@Service
+public class InvoiceChangeFeed {
+    
+    private static final String APPEND =
+            "INSERT INTO invoice_change_feed (from_status, to_status, invoice_count, invoice_ids, created_at) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    
+    private static final String READ =
+            "SELECT id, from_status, to_status, invoice_count, invoice_ids, created_at FROM invoice_change_feed " +
+            "WHERE id > ? ORDER BY id LIMIT ?";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Records a transition of the given invoices, whose ids must be ascending.
+     */
+    public void append(Invoice.PaymentStatus fromStatus, Invoice.PaymentStatus toStatus, List<Long> invoiceIds) {
+        jdbcTemplate.update(APPEND, fromStatus.name(), toStatus.name(), invoiceIds.size(), encode(invoiceIds),
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+    
+    /**
+     * Entries after the given entry id, oldest first.
+     */
+    public List<Map<String, Object>> read(long afterId, int limit) {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        jdbcTemplate.query(READ, rs -> {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("id", rs.getLong("id"));
+            entry.put("fromStatus", rs.getString("from_status"));
+            entry.put("toStatus", rs.getString("to_status"));
+            entry.put("invoiceCount", rs.getInt("invoice_count"));
+            entry.put("invoiceIds", decode(rs.getBytes("invoice_ids")));
+            entry.put("createdAt", rs.getTimestamp("created_at").toLocalDateTime());
+            entries.add(entry);
+        }, afterId, limit);
+        return entries;
+    }
+    
+    public int purgeBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM invoice_change_feed WHERE created_at < ?", Timestamp.valueOf(cutoff));
+    }
+    
+    static byte[] encode(List<Long> ascendingIds) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(ascendingIds.size() * 2);
+        long previous = 0;
+        for (long id : ascendingIds) {
+            long delta = id - previous;
+            previous = id;
+            // Seven bits per byte, high bit set on every byte but the last
+            while ((delta & ~0x7FL) != 0) {
+                out.write((int) ((delta & 0x7F) | 0x80));
+                delta >>>= 7;
+            }
+            out.write((int) delta);
+        }
+        return out.toByteArray();
+    }
+    
+    static long[] decode(byte[] encoded) {
+        long[] ids = new long[encoded.length];
+        int count = 0;
+        long previous = 0;
+        long delta = 0;
+        int shift = 0;
+        for (byte b : encoded) {
+            delta |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) != 0) {
+                shift += 7;
+                continue;
+            }
+            previous += delta;
+            ids[count++] = previous;
+            delta = 0;
+            shift = 0;
+        }
+        return Arrays.copyOf(ids, count);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,177 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.entity.Invoice;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves pending invoices past their due date to OVERDUE. The span of invoice ids that can be
+ * overdue is walked in fixed id ranges, one short transaction and one set-based UPDATE per range,
+ * so no statement holds row locks on more than one range at a time. Every range that changed
+ * appends its invoice ids to the invoice change feed in the same transaction. A job lease keeps
+ * the sweep on a single node of the cluster.
+ */
+@Service
+public class InvoiceOverdueSweeper {
+    
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceOverdueSweeper.class);
+    
+    private static final String LEASE_NAME = "invoice-overdue-sweeper";
+    
+    // Served by idx_invoices_status_due_date, which carries the id
+    private static final String OVERDUE_BOUNDS =
+            "SELECT MIN(id), MAX(id) FROM invoices WHERE payment_status = 'PENDING' AND due_date < ?";
+    
+    private static final String LOCK_OVERDUE =
+            "SELECT id FROM invoices WHERE id >= ? AND id < ? AND payment_status = 'PENDING' AND due_date < ? " +
+            "ORDER BY id FOR UPDATE";
+    
+    private static final String MARK_OVERDUE =
+            "UPDATE invoices SET payment_status = 'OVERDUE' " +
+            "WHERE id >= ? AND id < ? AND payment_status = 'PENDING' AND due_date < ?";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private JobLeaseService jobLeases;
+    
+    @Autowired
+    private InvoiceChangeFeed changeFeed;
+    
+    @Value("${parcel.invoicing.overdue.range-size:5000}")
+    private int rangeSize;
+    
+    @Value("${parcel.invoicing.overdue.lease-ttl-ms:120000}")
+    private long leaseTtlMillis;
+    
+    @Value("${parcel.invoicing.overdue.feed-retention-days:30}")
+    private int feedRetentionDays;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    private final LongAdder sweeps = new LongAdder();
+    private final LongAdder skippedSweeps = new LongAdder();
+    private final LongAdder markedOverdue = new LongAdder();
+    private volatile LocalDateTime lastSweepAt;
+    private volatile long lastSweepMillis;
+    private volatile long lastSweepInvoices;
+    
+    @Scheduled(fixedDelayString = "${parcel.invoicing.overdue.interval-ms:60000}",
+               initialDelayString = "${parcel.invoicing.overdue.interval-ms:60000}")
+    public void scheduledSweep() {
+        if (!running.get()) {
+            sweep();
+        }
+    }
+    
+    public Map<String, Object> sweep() {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Overdue invoice sweep is already running");
+        }
+        
+        try {
+            Map<String, Object> result = new HashMap<>();
+            if (!jobLeases.tryAcquire(LEASE_NAME, leaseTtlMillis)) {
+                skippedSweeps.increment();
+                result.put("swept", false);
+                result.put("reason", "Another node holds the sweeper lease");
+                return result;
+            }
+            
+            try {
+                long started = System.nanoTime();
+                long[] totals = sweepRanges(LocalDateTime.now());
+                changeFeed.purgeBefore(LocalDateTime.now().minusDays(feedRetentionDays));
+                
+                sweeps.increment();
+                markedOverdue.add(totals[0]);
+                lastSweepAt = LocalDateTime.now();
+                lastSweepMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                lastSweepInvoices = totals[0];
+                
+                result.put("swept", true);
+                result.put("invoices", totals[0]);
+                result.put("ranges", totals[1]);
+                result.put("millis", lastSweepMillis);
+                if (totals[0] > 0) {
+                    logger.info("Overdue invoice sweep finished: {}", result);
+                }
+                return result;
+            } finally {
+                jobLeases.release(LEASE_NAME);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sweeps", sweeps.sum());
+        stats.put("skippedSweeps", skippedSweeps.sum());
+        stats.put("markedOverdue", markedOverdue.sum());
+        stats.put("running", running.get());
+        stats.put("lastSweepAt", lastSweepAt);
+        stats.put("lastSweepMillis", lastSweepMillis);
+        stats.put("lastSweepInvoices", lastSweepInvoices);
+        stats.put("rangeSize", rangeSize);
+        return stats;
+    }
+    
+    // Returns the number of invoices marked overdue and of ranges that held any
+    private long[] sweepRanges(LocalDateTime now) {
+        Timestamp cutoff = Timestamp.valueOf(now);
+        long[] bounds = jdbcTemplate.queryForObject(OVERDUE_BOUNDS,
+                (rs, rowNum) -> rs.getObject(1) == null ? null : new long[]{rs.getLong(1), rs.getLong(2)}, cutoff);
+        long[] totals = new long[2];
+        if (bounds == null) {
+            return totals;
+        }
+        
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (long from = bounds[0]; from <= bounds[1]; from += rangeSize) {
+            if (!jobLeases.renew(LEASE_NAME, leaseTtlMillis)) {
+                logger.warn("Overdue invoice sweep lost its lease at invoice id {}", from);
+                break;
+            }
+            long rangeStart = from;
+            int marked = transactionTemplate.execute(status -> markRange(rangeStart, rangeStart + rangeSize, cutoff));
+            if (marked > 0) {
+                totals[0] += marked;
+                totals[1]++;
+            }
+        }
+        return totals;
+    }
+    
+    private int markRange(long from, long to, Timestamp cutoff) {
+        // Locks exactly the rows the update will change, so the feed lists the same ids
+        List<Long> invoiceIds = jdbcTemplate.queryForList(LOCK_OVERDUE, Long.class, from, to, cutoff);
+        if (invoiceIds.isEmpty()) {
+            return 0;
+        }
+        int marked = jdbcTemplate.update(MARK_OVERDUE, from, to, cutoff);
+        changeFeed.append(Invoice.PaymentStatus.PENDING, Invoice.PaymentStatus.OVERDUE, invoiceIds);
+        return marked;
+    }
+}
\ No newline at end of file
@@ -1,17 +1,26 @@
 package com.parcelmanagement.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parcelmanagement.dto.CursorPageDto;
+import com.parcelmanagement.dto.InvoiceResponseDto;
 import com.parcelmanagement.entity.Invoice;
 import com.parcelmanagement.entity.Parcel;
 import com.parcelmanagement.repository.InvoiceRepository;
+import com.parcelmanagement.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -20,6 +29,20 @@ public class InvoiceService {
     @Autowired
     private InvoiceRepository invoiceRepository;
     
+    @Autowired
+    private ReferenceNumberService referenceNumberService;
+    
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+    
+    @Autowired
+    private TaxService taxService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private static final int STREAM_FLUSH_INTERVAL = 1000;
+    
     public Invoice generateInvoice(Parcel parcel) {
         // Check if invoice already exists for this parcel
         Optional<Invoice> existingInvoice = invoiceRepository.findByParcel(parcel);
@@ -29,11 +52,11 @@ public class InvoiceService {
         
         // Calculate amounts
         BigDecimal baseAmount = parcel.getShippingCost();
-        BigDecimal taxAmount = baseAmount.multiply(BigDecimal.valueOf(0.10)); // 10% tax
+        BigDecimal taxAmount = taxService.taxOn(baseAmount, parcel.getDeliveryLocation());
         BigDecimal discountAmount = BigDecimal.ZERO;
         
         Invoice invoice = new Invoice(
-                generateInvoiceNumber(),
+                referenceNumberService.nextInvoiceNumber(),
                 parcel,
                 baseAmount,
                 taxAmount,
@@ -66,8 +89,11 @@ public class InvoiceService {
     }
     
     public Invoice updatePaymentStatus(Long invoiceId, Invoice.PaymentStatus paymentStatus, Invoice.PaymentMethod paymentMethod) {
-        Invoice invoice = invoiceRepository.findById(invoiceId)
+        Invoice invoice = invoiceRepository.findByIdForUpdate(invoiceId)
                 .orElseThrow(() -> new RuntimeException("Invoice not found with id: " + invoiceId));
+        Invoice.PaymentStatus previousStatus = invoice.getPaymentStatus();
+        LocalDateTime previousPaidDate = invoice.getPaidDate();
+        Invoice.PaymentMethod previousMethod = invoice.getPaymentMethod();
         
         invoice.setPaymentStatus(paymentStatus);
         invoice.setPaymentMethod(paymentMethod);
@@ -76,19 +102,104 @@ public class InvoiceService {
             invoice.setPaidDate(LocalDateTime.now());
         }
         
+        revenueRollupService.recordChange(previousStatus, previousPaidDate, previousMethod, invoice);
         return invoiceRepository.save(invoice);
     }
     
-    public Double getTotalRevenueByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        Double revenue = invoiceRepository.getTotalRevenueByDateRange(startDate, endDate);
-        return revenue != null ? revenue : 0.0;
+    public BigDecimal getTotalRevenueByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        return revenueRollupService.totalRevenue(startDate, endDate);
+    }
+    
+    public Map<String, Object> getRevenueByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        return revenueRollupService.revenue(startDate, endDate);
     }
     
     public List<Invoice> findAll() {
         return invoiceRepository.findAll();
     }
     
-    private String generateInvoiceNumber() {
-        return "INV" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 6).toUpperCase();
+    public Optional<InvoiceResponseDto> findDtoById(Long invoiceId) {
+        return invoiceRepository.findDtoById(invoiceId);
+    }
+    
+    public Optional<InvoiceResponseDto> findDtoByInvoiceNumber(String invoiceNumber) {
+        return invoiceRepository.findDtoByInvoiceNumber(invoiceNumber);
+    }
+    
+    public Optional<InvoiceResponseDto> findDtoByParcelId(Long parcelId) {
+        return invoiceRepository.findDtoByParcelId(parcelId);
+    }
+    
+    public CursorPageDto<InvoiceResponseDto> findPage(String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        return toPage(position.getTimestamp() == null ? invoiceRepository.findFirstPage(pageRequest)
+                : invoiceRepository.findPage(position.getTimestamp(), position.getId(), pageRequest), limit);
+    }
+    
+    public CursorPageDto<InvoiceResponseDto> findPageByPaymentStatus(Invoice.PaymentStatus paymentStatus, String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        return toPage(position.getTimestamp() == null ? invoiceRepository.findFirstPageByPaymentStatus(paymentStatus, pageRequest)
+                : invoiceRepository.findPageByPaymentStatus(paymentStatus, position.getTimestamp(), position.getId(), 
+                        pageRequest), limit);
+    }
+    
+    public CursorPageDto<InvoiceResponseDto> findPageBySenderId(Long senderId, String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        return toPage(position.getTimestamp() == null ? invoiceRepository.findFirstPageBySenderId(senderId, pageRequest)
+                : invoiceRepository.findPageBySenderId(senderId, position.getTimestamp(), position.getId(), pageRequest), limit);
+    }
+    
+    public CursorPageDto<InvoiceResponseDto> findOverduePage(String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        LocalDateTime now = LocalDateTime.now();
+        return toPage(position.getTimestamp() == null ? invoiceRepository.findFirstOverduePage(now, pageRequest)
+                : invoiceRepository.findOverduePage(now, position.getTimestamp(), position.getId(), pageRequest), limit);
+    }
+    
+    @Transactional(readOnly = true)
+    public void streamAll(OutputStream out) throws IOException {
+        try (Stream<InvoiceResponseDto> invoices = invoiceRepository.streamAll()) {
+            writeNdjson(invoices, out);
+        }
+    }
+    
+    @Transactional(readOnly = true)
+    public void streamByPaymentStatus(Invoice.PaymentStatus paymentStatus, OutputStream out) throws IOException {
+        try (Stream<InvoiceResponseDto> invoices = invoiceRepository.streamByPaymentStatus(paymentStatus)) {
+            writeNdjson(invoices, out);
+        }
+    }
+    
+    private CursorPageDto<InvoiceResponseDto> toPage(List<InvoiceResponseDto> rows, int limit) {
+        // One extra row was fetched to learn whether another page exists
+        boolean hasMore = rows.size() > limit;
+        List<InvoiceResponseDto> page = hasMore ? rows.subList(0, limit) : rows;
+        
+        String nextCursor = null;
+        if (hasMore) {
+            InvoiceResponseDto last = page.get(page.size() - 1);
+            nextCursor = KeysetCursor.encode(last.getIssuedDate(), last.getId());
+        }
+        
+        return new CursorPageDto<>(page, nextCursor, hasMore);
+    }
+    
+    private void writeNdjson(Stream<InvoiceResponseDto> invoices, OutputStream out) throws IOException {
+        Iterator<InvoiceResponseDto> iterator = invoices.iterator();
+        int written = 0;
+        
+        while (iterator.hasNext()) {
+            out.write(objectMapper.writeValueAsBytes(iterator.next()));
+            out.write('\n');
+            
+            if (++written % STREAM_FLUSH_INTERVAL == 0) {
+                out.flush();
+            }
+        }
+        out.flush();
     }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.parcelmanagement.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Lets one node at a time run a scheduled job through the rows of job_leases. A lease is held
+ * until it expires; the holder renews it while it works and releases it when done, and a lease
+ * left behind by a crashed node simply runs out. Expiry is judged by the database clock, so nodes
+ * with skewed clocks still agree on it. Call outside of transactions, so every change is visible
+ * to the other nodes at once.
+ */
+@Service
+public class JobLeaseService {
+    
+    private static final String ENSURE_ROW =
+            "INSERT INTO job_leases (name, expires_at) VALUES (?, NOW(6)) ON DUPLICATE KEY UPDATE name = name";
+    
+    private static final String ACQUIRE =
+            "UPDATE job_leases SET owner = ?, acquired_at = NOW(6), expires_at = TIMESTAMPADD(MICROSECOND, ?, NOW(6)) " +
+            "WHERE name = ? AND (owner IS NULL OR owner = ? OR expires_at < NOW(6))";
+    
+    private static final String RENEW =
+            "UPDATE job_leases SET expires_at = TIMESTAMPADD(MICROSECOND, ?, NOW(6)) " +
+            "WHERE name = ? AND owner = ? AND expires_at >= NOW(6)";
+    
+    private static final String RELEASE =
+            "UPDATE job_leases SET owner = NULL, expires_at = NOW(6) WHERE name = ? AND owner = ?";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private final String owner = UUID.randomUUID().toString();
+    
+    /**
+     * Takes the lease for the given time unless another node holds it; true when this node holds it now.
+     */
+    public boolean tryAcquire(String name, long ttlMillis) {
+        jdbcTemplate.update(ENSURE_ROW, name);
+        return jdbcTemplate.update(ACQUIRE, owner, ttlMillis * 1000, name, owner) == 1;
+    }
+    
+    /**
+     * Extends a lease this node still holds; false when it ran out and may belong to another node.
+     */
+    public boolean renew(String name, long ttlMillis) {
+        return jdbcTemplate.update(RENEW, ttlMillis * 1000, name, owner) == 1;
+    }
+    
+    public void release(String name) {
+        jdbcTemplate.update(RELEASE, name, owner);
+    }
+    
+    public String getOwner() {
+        return owner;
+    }
+}
\ No newline at end of file
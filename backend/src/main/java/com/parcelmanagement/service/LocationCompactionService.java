@@ -0,0 +1,142 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.repository.LocationRepository;
+import com.parcelmanagement.repository.ParcelRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Migration job for locations written before canonical addresses existed. Rows without an
+ * address hash are streamed in id order and handled in chunks: a row whose hash already
+ * exists is merged into that location (parcels repointed, row deleted), any other row
+ * just gets its hash and becomes the canonical location for that address. Bookings keep
+ * inserting canonical locations meanwhile, so a hash that turns out to be taken when it is
+ * set is merged the same way.
+ */
+@Service
+public class LocationCompactionService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LocationCompactionService.class);
+    
+    private static final int CHUNK_SIZE = 500;
+    
+    private static final String UNHASHED_LOCATIONS =
+            "SELECT id, address, city, state, country, zip_code FROM locations WHERE address_hash IS NULL ORDER BY id";
+    
+    private static final String SET_ADDRESS_HASH =
+            "UPDATE locations SET address_hash = ? WHERE id = ?";
+    
+    private static final String LOCK_CANONICAL_LOCATION =
+            "SELECT id FROM locations WHERE address_hash = ? FOR SHARE";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private LocationRepository locationRepository;
+    
+    @Autowired
+    private ParcelRepository parcelRepository;
+    
+    @Autowired
+    private CanonicalAddressService canonicalAddressService;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    public Map<String, Object> compact() {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Location compaction is already running");
+        }
+        
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            Map<Long, String> chunk = new LinkedHashMap<>();
+            long[] totals = new long[4]; // scanned, hashed, merged, parcels repointed
+            
+            JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+            streaming.setFetchSize(Integer.MIN_VALUE);
+            streaming.query(UNHASHED_LOCATIONS, rs -> {
+                chunk.put(rs.getLong("id"), CanonicalAddressService.addressHash(
+                        rs.getString("address"), rs.getString("city"), rs.getString("state"),
+                        rs.getString("country"), rs.getString("zip_code")));
+                totals[0]++;
+                if (chunk.size() >= CHUNK_SIZE) {
+                    transactionTemplate.executeWithoutResult(status -> compactChunk(chunk, totals));
+                    chunk.clear();
+                }
+            });
+            if (!chunk.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> compactChunk(chunk, totals));
+            }
+            
+            // Merged ids may still be cached
+            canonicalAddressService.clearCache();
+            
+            Map<String, Object> result = new HashMap<>();
+            result.put("locationsScanned", totals[0]);
+            result.put("locationsHashed", totals[1]);
+            result.put("locationsMerged", totals[2]);
+            result.put("parcelsRepointed", totals[3]);
+            logger.info("Location compaction finished: {}", result);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    private void compactChunk(Map<Long, String> chunk, long[] totals) {
+        Map<String, Long> canonicalIds = new HashMap<>();
+        for (Object[] row : locationRepository.findIdsByAddressHashIn(chunk.values())) {
+            canonicalIds.put((String) row[0], (Long) row[1]);
+        }
+        
+        Map<Long, List<Long>> duplicatesByCanonical = new HashMap<>();
+        for (Map.Entry<Long, String> entry : chunk.entrySet()) {
+            Long canonicalId = canonicalIds.putIfAbsent(entry.getValue(), entry.getKey());
+            if (canonicalId == null) {
+                canonicalId = claimAddressHash(entry.getKey(), entry.getValue());
+                if (canonicalId == null) {
+                    totals[1]++;
+                    continue;
+                }
+                canonicalIds.put(entry.getValue(), canonicalId);
+            }
+            duplicatesByCanonical.computeIfAbsent(canonicalId, id -> new ArrayList<>()).add(entry.getKey());
+        }
+        
+        for (Map.Entry<Long, List<Long>> entry : duplicatesByCanonical.entrySet()) {
+            totals[3] += parcelRepository.repointPickupLocation(entry.getKey(), entry.getValue());
+            totals[3] += parcelRepository.repointDeliveryLocation(entry.getKey(), entry.getValue());
+            locationRepository.deleteAllByIdInBatch(entry.getValue());
+            totals[2] += entry.getValue().size();
+        }
+    }
+    
+    // Gives the row its hash, or returns the id of the location a booking inserted with that hash
+    // since the chunk was read. Plain JDBC, so the duplicate key fails only this statement and
+    // does not mark the chunk's transaction rollback-only.
+    private Long claimAddressHash(Long id, String hash) {
+        try {
+            jdbcTemplate.update(SET_ADDRESS_HASH, hash, id);
+            return null;
+        } catch (DuplicateKeyException e) {
+            return jdbcTemplate.queryForObject(LOCK_CANONICAL_LOCATION, Long.class, hash);
+        }
+    }
+}
\ No newline at end of file
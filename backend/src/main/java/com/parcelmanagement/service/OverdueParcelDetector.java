@@ -0,0 +1,169 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.dto.OverdueParcelDto;
+import com.parcelmanagement.event.ParcelOverdueEvent;
+import com.parcelmanagement.util.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Watches the estimated delivery date of every active parcel in memory. Deadlines are kept in
+ * a skip list ordered by due time, so each tick only looks at the deadlines that have passed;
+ * parcels are moved to the overdue set and a ParcelOverdueEvent is published as they expire.
+ * The schedule is loaded from the database once on startup and then follows bookings and
+ * status changes.
+ */
+@Service
+public class OverdueParcelDetector {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OverdueParcelDetector.class);
+    
+    private static final String ACTIVE_PARCELS =
+            "SELECT id, tracking_number, estimated_delivery_date FROM parcels " +
+            "WHERE status NOT IN ('DELIVERED', 'CANCELLED') AND estimated_delivery_date IS NOT NULL";
+    
+    private static final Comparator<Deadline> BY_DUE_TIME = Comparator
+            .comparingLong((Deadline deadline) -> deadline.dueAt)
+            .thenComparingLong(deadline -> deadline.parcelId);
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    private final ConcurrentSkipListSet<Deadline> schedule = new ConcurrentSkipListSet<>(BY_DUE_TIME);
+    private final Map<Long, Deadline> deadlines = new ConcurrentHashMap<>();
+    private final Map<Long, OverdueParcelDto> overdue = new ConcurrentHashMap<>();
+    
+    /**
+     * Starts watching the parcel, or moves its deadline, once the current transaction commits.
+     */
+    public void track(Long parcelId, String trackingNumber, LocalDateTime estimatedDeliveryDate) {
+        AfterCommit.run(() -> schedule(parcelId, trackingNumber, estimatedDeliveryDate));
+    }
+    
+    /**
+     * Stops watching the parcel once the current transaction commits.
+     */
+    public void untrack(Long parcelId) {
+        AfterCommit.run(() -> schedule(parcelId, null, null));
+    }
+    
+    public List<OverdueParcelDto> getOverdueParcels() {
+        List<OverdueParcelDto> parcels = new ArrayList<>(overdue.values());
+        parcels.sort(Comparator.comparing(OverdueParcelDto::getEstimatedDeliveryDate));
+        return parcels;
+    }
+    
+    public int getScheduledCount() {
+        return deadlines.size();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(Integer.MIN_VALUE);
+        streaming.query(ACTIVE_PARCELS, rs -> {
+            String trackingNumber = rs.getString("tracking_number");
+            Timestamp estimatedDeliveryDate = rs.getTimestamp("estimated_delivery_date");
+            // Bookings made while loading already scheduled their own, newer deadline
+            deadlines.computeIfAbsent(rs.getLong("id"), parcelId -> {
+                Deadline deadline = new Deadline(parcelId, trackingNumber, estimatedDeliveryDate.toLocalDateTime());
+                schedule.add(deadline);
+                return deadline;
+            });
+        });
+        logger.info("Watching {} active parcels for overdue deliveries", deadlines.size());
+        tick();
+    }
+    
+    @Scheduled(fixedDelayString = "${parcel.overdue.tick-ms:1000}")
+    public void tick() {
+        long now = System.currentTimeMillis();
+        LocalDateTime detectedAt = LocalDateTime.now();
+        List<OverdueParcelDto> expired = new ArrayList<>();
+        
+        for (Deadline next = first(); next != null && next.dueAt <= now; next = first()) {
+            Deadline deadline = next;
+            // Only expire the deadline if it was not moved or removed in the meantime
+            deadlines.computeIfPresent(deadline.parcelId, (parcelId, current) -> {
+                if (current != deadline) {
+                    return current;
+                }
+                OverdueParcelDto parcel = new OverdueParcelDto(parcelId, deadline.trackingNumber, 
+                        deadline.estimatedDeliveryDate, detectedAt);
+                overdue.put(parcelId, parcel);
+                expired.add(parcel);
+                return null;
+            });
+            schedule.remove(deadline);
+        }
+        
+        for (OverdueParcelDto parcel : expired) {
+            logger.warn("Parcel {} is overdue, it was due {}", parcel.getTrackingNumber(), parcel.getEstimatedDeliveryDate());
+            eventPublisher.publishEvent(new ParcelOverdueEvent(parcel));
+        }
+    }
+    
+    private void schedule(Long parcelId, String trackingNumber, LocalDateTime estimatedDeliveryDate) {
+        deadlines.compute(parcelId, (id, previous) -> {
+            if (previous != null) {
+                schedule.remove(previous);
+            }
+            overdue.remove(id);
+            if (estimatedDeliveryDate == null) {
+                return null;
+            }
+            Deadline deadline = new Deadline(id, trackingNumber, estimatedDeliveryDate);
+            schedule.add(deadline);
+            return deadline;
+        });
+    }
+    
+    private Deadline first() {
+        // Unlike first(), ceiling() returns null instead of throwing when the set empties concurrently
+        return schedule.ceiling(Deadline.EARLIEST);
+    }
+    
+    private static final class Deadline {
+        
+        private static final Deadline EARLIEST = new Deadline(Long.MIN_VALUE, null, Long.MIN_VALUE);
+        
+        private final long parcelId;
+        private final String trackingNumber;
+        private final LocalDateTime estimatedDeliveryDate;
+        private final long dueAt;
+        
+        Deadline(long parcelId, String trackingNumber, LocalDateTime estimatedDeliveryDate) {
+            this.parcelId = parcelId;
+            this.trackingNumber = trackingNumber;
+            this.estimatedDeliveryDate = estimatedDeliveryDate;
+            this.dueAt = estimatedDeliveryDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        
+        private Deadline(long parcelId, String trackingNumber, long dueAt) {
+            this.parcelId = parcelId;
+            this.trackingNumber = trackingNumber;
+            this.estimatedDeliveryDate = null;
+            this.dueAt = dueAt;
+        }
+    }
+}
\ No newline at end of file
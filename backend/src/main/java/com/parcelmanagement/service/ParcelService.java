@@ -1,26 +1,48 @@
 package com.parcelmanagement.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parcelmanagement.dto.BatchBookingResultDto;
+import com.parcelmanagement.dto.CursorPageDto;
 import com.parcelmanagement.dto.ParcelBookingDto;
 import com.parcelmanagement.dto.ParcelResponseDto;
 import com.parcelmanagement.entity.*;
 import com.parcelmanagement.repository.LocationRepository;
 import com.parcelmanagement.repository.ParcelRepository;
 import com.parcelmanagement.repository.UserRepository;
+import com.parcelmanagement.util.KeysetCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class ParcelService {
     
+    private static final int STREAM_FLUSH_INTERVAL = 1000;
+    
     @Autowired
     private ParcelRepository parcelRepository;
     
@@ -33,6 +55,42 @@ public class ParcelService {
     @Autowired
     private TrackingService trackingService;
     
+    @Autowired
+    private ReferenceNumberService referenceNumberService;
+    
+    @Autowired
+    private ReceiverResolver receiverResolver;
+    
+    @Autowired
+    private CanonicalAddressService canonicalAddressService;
+    
+    @Autowired
+    private PricingService pricingService;
+    
+    @Autowired
+    private EtaService etaService;
+    
+    @Autowired
+    private ParcelStatusCounterService statusCounters;
+    
+    @Autowired
+    private OverdueParcelDetector overdueDetector;
+    
+    @Autowired
+    private Validator validator;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+    
     public Parcel bookParcel(ParcelBookingDto bookingDto, Long senderId) {
         User sender = userRepository.findById(senderId)
                 .orElseThrow(() -> new RuntimeException("Sender not found with id: " + senderId));
@@ -40,60 +98,96 @@ public class ParcelService {
         // Find or create receiver (for now, we'll create a simple customer account)
         User receiver = findOrCreateReceiver(bookingDto);
         
-        // Create pickup location
-        Location pickupLocation = new Location(
-                bookingDto.getPickupAddress(),
-                bookingDto.getPickupCity(),
-                bookingDto.getPickupState(),
-                bookingDto.getPickupCountry(),
-                bookingDto.getPickupZipCode()
-        );
-        
-        // Create delivery location
-        Location deliveryLocation = new Location(
-                bookingDto.getDeliveryAddress(),
-                bookingDto.getDeliveryCity(),
-                bookingDto.getDeliveryState(),
-                bookingDto.getDeliveryCountry(),
-                bookingDto.getDeliveryZipCode()
-        );
+        Parcel savedParcel = parcelRepository.save(buildParcel(bookingDto, sender, receiver));
         
-        // Calculate shipping cost based on weight and priority
-        BigDecimal shippingCost = calculateShippingCost(bookingDto.getWeight(), bookingDto.getPriority());
+        // Create initial tracking entry
+        trackingService.recordInitialTracking(savedParcel, sender);
+        statusCounters.recordCreated(savedParcel.getStatus(), 1);
+        overdueDetector.track(savedParcel.getId(), savedParcel.getTrackingNumber(), savedParcel.getEstimatedDeliveryDate());
         
-        // Create parcel
-        Parcel parcel = new Parcel(
-                generateTrackingNumber(),
-                bookingDto.getDescription(),
-                bookingDto.getWeight(),
-                bookingDto.getDeclaredValue(),
-                shippingCost,
-                sender,
-                receiver,
-                pickupLocation,
-                deliveryLocation
-        );
+        return savedParcel;
+    }
+    
+    /**
+     * Books every valid row. Rows are written in transactions of batch-size rows so their inserts
+     * go out as JDBC batches; when one of those transactions fails, its rows are booked again one
+     * per transaction, so a database error fails only the row that caused it.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BatchBookingResultDto> bookParcels(List<ParcelBookingDto> bookingDtos, Long senderId) {
+        User sender = userRepository.findById(senderId)
+                .orElseThrow(() -> new RuntimeException("Sender not found with id: " + senderId));
         
-        parcel.setPriority(bookingDto.getPriority());
-        parcel.setReceiverName(bookingDto.getReceiverName());
-        parcel.setReceiverPhone(bookingDto.getReceiverPhone());
-        parcel.setReceiverEmail(bookingDto.getReceiverEmail());
-        parcel.setSpecialInstructions(bookingDto.getSpecialInstructions());
-        parcel.setEstimatedDeliveryDate(calculateEstimatedDeliveryDate(bookingDto.getPriority()));
+        BatchBookingResultDto[] results = new BatchBookingResultDto[bookingDtos.size()];
+        List<Integer> chunk = new ArrayList<>(batchSize);
         
-        Parcel savedParcel = parcelRepository.save(parcel);
+        for (int i = 0; i < bookingDtos.size(); i++) {
+            String violations = validateBooking(bookingDtos.get(i));
+            if (violations != null) {
+                results[i] = BatchBookingResultDto.failure(i, violations);
+                continue;
+            }
+            
+            chunk.add(i);
+            if (chunk.size() == batchSize) {
+                bookChunk(bookingDtos, chunk, sender, results);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            bookChunk(bookingDtos, chunk, sender, results);
+        }
         
-        // Create initial tracking entry
-        trackingService.addTrackingUpdate(savedParcel.getId(), Parcel.ParcelStatus.PENDING, 
-                "Parcel Service Center", "Parcel booking confirmed", sender);
+        return Arrays.asList(results);
+    }
+    
+    private void bookChunk(List<ParcelBookingDto> bookingDtos, List<Integer> rows, User sender, 
+                           BatchBookingResultDto[] results) {
+        try {
+            List<BatchBookingResultDto> booked = new TransactionTemplate(transactionManager)
+                    .execute(status -> bookRows(bookingDtos, rows, sender));
+            for (BatchBookingResultDto result : booked) {
+                results[result.getIndex()] = result;
+            }
+        } catch (RuntimeException e) {
+            if (rows.size() == 1) {
+                Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+                results[rows.get(0)] = BatchBookingResultDto.failure(rows.get(0), String.valueOf(cause.getMessage()));
+                return;
+            }
+            // Isolate the failing rows; the others are booked on their own
+            for (int row : rows) {
+                bookChunk(bookingDtos, List.of(row), sender, results);
+            }
+        }
+    }
+    
+    private List<BatchBookingResultDto> bookRows(List<ParcelBookingDto> bookingDtos, List<Integer> rows, User sender) {
+        List<BatchBookingResultDto> booked = new ArrayList<>(rows.size());
+        for (int row : rows) {
+            ParcelBookingDto bookingDto = bookingDtos.get(row);
+            User receiver = findOrCreateReceiver(bookingDto);
+            Parcel parcel = buildParcel(bookingDto, sender, receiver);
+            parcelRepository.save(parcel);
+            trackingService.recordInitialTracking(parcel, sender);
+            overdueDetector.track(parcel.getId(), parcel.getTrackingNumber(), parcel.getEstimatedDeliveryDate());
+            booked.add(BatchBookingResultDto.success(row, parcel.getId(), parcel.getTrackingNumber()));
+        }
         
-        return savedParcel;
+        // Surfaces constraint violations here, inside the chunk's transaction
+        entityManager.flush();
+        statusCounters.recordCreated(Parcel.ParcelStatus.PENDING, rows.size());
+        return booked;
     }
     
     public Optional<Parcel> findByTrackingNumber(String trackingNumber) {
         return parcelRepository.findByTrackingNumber(trackingNumber);
     }
     
+    public boolean existsByTrackingNumber(String trackingNumber) {
+        return parcelRepository.existsByTrackingNumber(trackingNumber);
+    }
+    
     public Optional<Parcel> findById(Long id) {
         return parcelRepository.findById(id);
     }
@@ -122,23 +216,74 @@ public class ParcelService {
         return parcelRepository.findAll();
     }
     
-    public Parcel updateParcelStatus(Long parcelId, Parcel.ParcelStatus status, User updatedBy) {
-        Parcel parcel = parcelRepository.findById(parcelId)
-                .orElseThrow(() -> new RuntimeException("Parcel not found with id: " + parcelId));
-        
-        parcel.setStatus(status);
-        
-        if (status == Parcel.ParcelStatus.DELIVERED) {
-            parcel.setActualDeliveryDate(LocalDateTime.now());
+    public List<ParcelResponseDto> findDtosByUserId(Long userId) {
+        return parcelRepository.findDtosByUserId(userId);
+    }
+    
+    public List<ParcelResponseDto> findDtosBySenderId(Long senderId) {
+        return parcelRepository.findDtosBySenderId(senderId);
+    }
+    
+    public List<ParcelResponseDto> findDtosByReceiverId(Long receiverId) {
+        return parcelRepository.findDtosByReceiverId(receiverId);
+    }
+    
+    public CursorPageDto<ParcelResponseDto> findPage(String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        return toPage(position.getTimestamp() == null ? parcelRepository.findFirstPage(pageRequest)
+                : parcelRepository.findPage(position.getTimestamp(), position.getId(), pageRequest), limit);
+    }
+    
+    public CursorPageDto<ParcelResponseDto> findPageByStatus(Parcel.ParcelStatus status, String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        return toPage(position.getTimestamp() == null ? parcelRepository.findFirstPageByStatus(status, pageRequest)
+                : parcelRepository.findPageByStatus(status, position.getTimestamp(), position.getId(), pageRequest), limit);
+    }
+    
+    public CursorPageDto<ParcelResponseDto> findPageByUserId(Long userId, String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        return toPage(position.getTimestamp() == null ? parcelRepository.findFirstPageByUserId(userId, pageRequest)
+                : parcelRepository.findPageByUserId(userId, position.getTimestamp(), position.getId(), pageRequest), limit);
+    }
+    
+    public CursorPageDto<ParcelResponseDto> findPageBySenderId(Long senderId, String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        return toPage(position.getTimestamp() == null ? parcelRepository.findFirstPageBySenderId(senderId, pageRequest)
+                : parcelRepository.findPageBySenderId(senderId, position.getTimestamp(), position.getId(), pageRequest), limit);
+    }
+    
+    public CursorPageDto<ParcelResponseDto> findPageByReceiverId(Long receiverId, String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        return toPage(position.getTimestamp() == null ? parcelRepository.findFirstPageByReceiverId(receiverId, pageRequest)
+                : parcelRepository.findPageByReceiverId(receiverId, position.getTimestamp(), position.getId(), pageRequest), limit);
+    }
+    
+    @Transactional(readOnly = true)
+    public void streamAll(OutputStream out) throws IOException {
+        try (Stream<ParcelResponseDto> parcels = parcelRepository.streamAll()) {
+            writeNdjson(parcels, out);
         }
-        
-        Parcel updatedParcel = parcelRepository.save(parcel);
-        
-        // Add tracking update
+    }
+    
+    @Transactional(readOnly = true)
+    public void streamByStatus(Parcel.ParcelStatus status, OutputStream out) throws IOException {
+        try (Stream<ParcelResponseDto> parcels = parcelRepository.streamByStatus(status)) {
+            writeNdjson(parcels, out);
+        }
+    }
+    
+    public Parcel updateParcelStatus(Long parcelId, Parcel.ParcelStatus status, User updatedBy) {
+        // The transition checks the status, sets the delivery date and bumps the version in one update
         trackingService.addTrackingUpdate(parcelId, status, 
                 "System Update", "Status updated to " + status, updatedBy);
         
-        return updatedParcel;
+        return parcelRepository.findById(parcelId)
+                .orElseThrow(() -> new RuntimeException("Parcel not found with id: " + parcelId));
     }
     
     public ParcelResponseDto convertToDto(Parcel parcel) {
@@ -172,62 +317,114 @@ public class ParcelService {
                 .collect(Collectors.toList());
     }
     
-    private User findOrCreateReceiver(ParcelBookingDto bookingDto) {
-        // For simplicity, we'll create a basic customer user if email is provided
-        if (bookingDto.getReceiverEmail() != null && !bookingDto.getReceiverEmail().isEmpty()) {
-            Optional<User> existingUser = userRepository.findByEmail(bookingDto.getReceiverEmail());
-            if (existingUser.isPresent()) {
-                return existingUser.get();
-            }
+    private CursorPageDto<ParcelResponseDto> toPage(List<ParcelResponseDto> rows, int limit) {
+        // One extra row was fetched to learn whether another page exists
+        boolean hasMore = rows.size() > limit;
+        List<ParcelResponseDto> page = hasMore ? rows.subList(0, limit) : rows;
+        
+        String nextCursor = null;
+        if (hasMore) {
+            ParcelResponseDto last = page.get(page.size() - 1);
+            nextCursor = KeysetCursor.encode(last.getCreatedAt(), last.getId());
         }
         
-        // Create a basic receiver user
-        User receiver = new User();
-        receiver.setUsername("receiver_" + UUID.randomUUID().toString().substring(0, 8));
-        receiver.setEmail(bookingDto.getReceiverEmail() != null ? bookingDto.getReceiverEmail() : "noemail@example.com");
-        receiver.setPassword("defaultPassword123"); // This should be handled properly in production
-        receiver.setFirstName(bookingDto.getReceiverName().split(" ")[0]);
-        receiver.setLastName(bookingDto.getReceiverName().contains(" ") ? 
-                bookingDto.getReceiverName().substring(bookingDto.getReceiverName().indexOf(" ") + 1) : "");
-        receiver.setPhoneNumber(bookingDto.getReceiverPhone());
-        receiver.setRole(User.UserRole.CUSTOMER);
-        receiver.setEnabled(true);
-        
-        return userRepository.save(receiver);
-    }
-    
-    private String generateTrackingNumber() {
-        return "TRK" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
-    
-    private BigDecimal calculateShippingCost(Double weight, Parcel.Priority priority) {
-        BigDecimal baseCost = BigDecimal.valueOf(5.0); // Base cost
-        BigDecimal weightCost = BigDecimal.valueOf(weight * 2.0); // $2 per kg
-        
-        BigDecimal priorityMultiplier;
-        switch (priority) {
-            case EXPRESS:
-                priorityMultiplier = BigDecimal.valueOf(1.5);
-                break;
-            case OVERNIGHT:
-                priorityMultiplier = BigDecimal.valueOf(2.0);
-                break;
-            default:
-                priorityMultiplier = BigDecimal.valueOf(1.0);
+        return new CursorPageDto<>(page, nextCursor, hasMore);
+    }
+    
+    private void writeNdjson(Stream<ParcelResponseDto> parcels, OutputStream out) throws IOException {
+        Iterator<ParcelResponseDto> iterator = parcels.iterator();
+        int written = 0;
+        
+        while (iterator.hasNext()) {
+            out.write(objectMapper.writeValueAsBytes(iterator.next()));
+            out.write('\n');
+            
+            if (++written % STREAM_FLUSH_INTERVAL == 0) {
+                out.flush();
+            }
         }
+        out.flush();
+    }
+    
+    private Parcel buildParcel(ParcelBookingDto bookingDto, User sender, User receiver) {
+        // Reuse the canonical pickup location, creating it only for a new address
+        Location pickupLocation = canonicalAddressService.resolve(
+                bookingDto.getPickupAddress(),
+                bookingDto.getPickupCity(),
+                bookingDto.getPickupState(),
+                bookingDto.getPickupCountry(),
+                bookingDto.getPickupZipCode()
+        );
+        
+        // Reuse the canonical delivery location, creating it only for a new address
+        Location deliveryLocation = canonicalAddressService.resolve(
+                bookingDto.getDeliveryAddress(),
+                bookingDto.getDeliveryCity(),
+                bookingDto.getDeliveryState(),
+                bookingDto.getDeliveryCountry(),
+                bookingDto.getDeliveryZipCode()
+        );
+        
+        // Price the parcel from the rate card of its lane
+        BigDecimal shippingCost = pricingService.calculateShippingCost(
+                bookingDto.getPickupZipCode(),
+                bookingDto.getDeliveryZipCode(),
+                bookingDto.getWeight(),
+                bookingDto.getPriority()
+        );
         
-        return baseCost.add(weightCost).multiply(priorityMultiplier);
+        // Create parcel
+        Parcel parcel = new Parcel(
+                referenceNumberService.nextTrackingNumber(),
+                bookingDto.getDescription(),
+                bookingDto.getWeight(),
+                bookingDto.getDeclaredValue(),
+                shippingCost,
+                sender,
+                receiver,
+                pickupLocation,
+                deliveryLocation
+        );
+        
+        parcel.setPriority(bookingDto.getPriority());
+        parcel.setReceiverName(bookingDto.getReceiverName());
+        parcel.setReceiverPhone(bookingDto.getReceiverPhone());
+        parcel.setReceiverEmail(bookingDto.getReceiverEmail());
+        parcel.setSpecialInstructions(bookingDto.getSpecialInstructions());
+        parcel.setEstimatedDeliveryDate(etaService.estimate(
+                bookingDto.getPickupCity(),
+                bookingDto.getDeliveryCity(),
+                bookingDto.getPriority(),
+                LocalDateTime.now()
+        ));
+        
+        return parcel;
     }
     
-    private LocalDateTime calculateEstimatedDeliveryDate(Parcel.Priority priority) {
-        LocalDateTime now = LocalDateTime.now();
-        switch (priority) {
-            case OVERNIGHT:
-                return now.plusDays(1);
-            case EXPRESS:
-                return now.plusDays(2);
-            default:
-                return now.plusDays(5);
+    private String validateBooking(ParcelBookingDto bookingDto) {
+        if (bookingDto == null) {
+            return "Booking is empty";
+        }
+        
+        Set<ConstraintViolation<ParcelBookingDto>> violations = validator.validate(bookingDto);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        
+        // Pricing and ETA both switch on priority, so an explicit null cannot be booked
+        if (bookingDto.getPriority() == null) {
+            return "priority: Priority is required";
         }
+        
+        return null;
+    }
+    
+    private User findOrCreateReceiver(ParcelBookingDto bookingDto) {
+        // Receivers are deduplicated by normalized email, or by phone when no email is given
+        return receiverResolver.resolve(bookingDto.getReceiverName(), bookingDto.getReceiverPhone(), 
+                bookingDto.getReceiverEmail());
     }
 }
\ No newline at end of file
@@ -0,0 +1,190 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.entity.Parcel;
+import com.parcelmanagement.util.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of parcels per status, kept up to date as deltas instead of counted on every read.
+ * Each booking and status transition adds its delta to parcel_status_counts inside the
+ * writing transaction and to in-memory counters once it commits, so reads cost a handful of
+ * LongAdder sums. A periodic refresh picks up deltas written by other instances and a
+ * reconciliation job recounts the parcels table to correct any drift.
+ */
+@Service
+public class ParcelStatusCounterService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ParcelStatusCounterService.class);
+    
+    private static final int SLOTS = 16;
+    
+    private static final Parcel.ParcelStatus[] STATUSES = Parcel.ParcelStatus.values();
+    
+    private static final String ADD_DELTA =
+            "INSERT INTO parcel_status_counts (status, slot, parcel_count, updated_at) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE parcel_count = parcel_count + VALUES(parcel_count), updated_at = VALUES(updated_at)";
+    
+    private static final String COUNTER_TOTALS =
+            "SELECT status, SUM(parcel_count) AS total FROM parcel_status_counts GROUP BY status";
+    
+    private static final String LOCK_COUNTERS =
+            "SELECT id FROM parcel_status_counts FOR UPDATE";
+    
+    private static final String PARCEL_TOTALS =
+            "SELECT status, COUNT(*) AS total FROM parcels GROUP BY status";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final LongAdder[] counts = new LongAdder[STATUSES.length];
+    
+    private volatile LocalDateTime lastReconciledAt;
+    
+    public ParcelStatusCounterService() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+    
+    public void recordCreated(Parcel.ParcelStatus status, long parcels) {
+        if (parcels > 0) {
+            addDelta(status, parcels);
+        }
+    }
+    
+    public void recordTransition(Parcel.ParcelStatus previousStatus, Parcel.ParcelStatus status) {
+        if (previousStatus == status) {
+            return;
+        }
+        if (previousStatus == null) {
+            addDelta(status, 1);
+            return;
+        }
+        // Always touch the rows in status order so opposite transitions cannot deadlock
+        if (previousStatus.ordinal() < status.ordinal()) {
+            addDelta(previousStatus, -1);
+            addDelta(status, 1);
+        } else {
+            addDelta(status, 1);
+            addDelta(previousStatus, -1);
+        }
+    }
+    
+    /**
+     * Applies net per-status deltas (indexed by status ordinal) gathered over many transitions,
+     * one row update per status that changed.
+     */
+    public void recordDeltas(long[] deltas) {
+        for (Parcel.ParcelStatus status : STATUSES) {
+            if (deltas[status.ordinal()] != 0) {
+                addDelta(status, deltas[status.ordinal()]);
+            }
+        }
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        long total = 0;
+        for (Parcel.ParcelStatus status : STATUSES) {
+            long count = counts[status.ordinal()].sum();
+            byStatus.put(status.name(), count);
+            total += count;
+        }
+        
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("counts", byStatus);
+        stats.put("total", total);
+        stats.put("lastReconciledAt", lastReconciledAt);
+        return stats;
+    }
+    
+    /**
+     * Aligns the in-memory counters with the table, which also holds other instances' deltas.
+     */
+    @Scheduled(initialDelayString = "${parcel.stats.refresh-interval-ms:10000}", 
+               fixedDelayString = "${parcel.stats.refresh-interval-ms:10000}")
+    public void refresh() {
+        long[] totals = new long[STATUSES.length];
+        jdbcTemplate.query(COUNTER_TOTALS, rs -> {
+            totals[Parcel.ParcelStatus.valueOf(rs.getString("status")).ordinal()] = rs.getLong("total");
+        });
+        setCounts(totals);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${parcel.stats.reconcile-interval-ms:3600000}", 
+               fixedDelayString = "${parcel.stats.reconcile-interval-ms:3600000}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+    
+    /**
+     * Recounts the parcels table and writes the difference into the counters. The counter rows
+     * are locked first, so transitions committing meanwhile wait and land on top of the
+     * corrected values instead of being lost or counted twice.
+     */
+    public synchronized Map<String, Object> reconcile() {
+        long[] actual = new long[STATUSES.length];
+        long drift = new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.queryForList(LOCK_COUNTERS);
+            
+            long[] counted = new long[STATUSES.length];
+            jdbcTemplate.query(COUNTER_TOTALS, rs -> {
+                counted[Parcel.ParcelStatus.valueOf(rs.getString("status")).ordinal()] = rs.getLong("total");
+            });
+            jdbcTemplate.query(PARCEL_TOTALS, rs -> {
+                actual[Parcel.ParcelStatus.valueOf(rs.getString("status")).ordinal()] = rs.getLong("total");
+            });
+            
+            long totalDrift = 0;
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < STATUSES.length; i++) {
+                long delta = actual[i] - counted[i];
+                if (delta != 0) {
+                    jdbcTemplate.update(ADD_DELTA, STATUSES[i].name(), 0, delta, now);
+                    totalDrift += Math.abs(delta);
+                }
+            }
+            return totalDrift;
+        });
+        setCounts(actual);
+        lastReconciledAt = LocalDateTime.now();
+        
+        if (drift > 0) {
+            logger.warn("Parcel status counters drifted by {} and were corrected", drift);
+        }
+        Map<String, Object> result = stats();
+        result.put("corrected", drift);
+        return result;
+    }
+    
+    private void addDelta(Parcel.ParcelStatus status, long delta) {
+        jdbcTemplate.update(ADD_DELTA, status.name(), ThreadLocalRandom.current().nextInt(SLOTS), delta, LocalDateTime.now());
+        AfterCommit.run(() -> counts[status.ordinal()].add(delta));
+    }
+    
+    private void setCounts(long[] totals) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i].add(totals[i] - counts[i].sum());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.entity.Parcel.ParcelStatus;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Allowed parcel status transitions. A parcel may skip forward through its lifecycle, fall back
+ * from OUT_FOR_DELIVERY to IN_TRANSIT after a failed attempt, be cancelled before pickup and be
+ * returned after it. Repeating the current status is always allowed and only adds a tracking
+ * event; RETURNED and CANCELLED are final.
+ */
+public final class ParcelStatusTransitions {
+    
+    private static final Map<ParcelStatus, Set<ParcelStatus>> SOURCES = new EnumMap<>(ParcelStatus.class);
+    
+    static {
+        for (ParcelStatus status : ParcelStatus.values()) {
+            SOURCES.put(status, EnumSet.of(status));
+        }
+        allow(ParcelStatus.PENDING, ParcelStatus.CONFIRMED, ParcelStatus.PICKED_UP, ParcelStatus.IN_TRANSIT, 
+                ParcelStatus.OUT_FOR_DELIVERY, ParcelStatus.DELIVERED, ParcelStatus.CANCELLED);
+        allow(ParcelStatus.CONFIRMED, ParcelStatus.PICKED_UP, ParcelStatus.IN_TRANSIT, 
+                ParcelStatus.OUT_FOR_DELIVERY, ParcelStatus.DELIVERED, ParcelStatus.CANCELLED);
+        allow(ParcelStatus.PICKED_UP, ParcelStatus.IN_TRANSIT, ParcelStatus.OUT_FOR_DELIVERY, 
+                ParcelStatus.DELIVERED, ParcelStatus.RETURNED);
+        allow(ParcelStatus.IN_TRANSIT, ParcelStatus.OUT_FOR_DELIVERY, ParcelStatus.DELIVERED, ParcelStatus.RETURNED);
+        allow(ParcelStatus.OUT_FOR_DELIVERY, ParcelStatus.IN_TRANSIT, ParcelStatus.DELIVERED, ParcelStatus.RETURNED);
+        allow(ParcelStatus.DELIVERED, ParcelStatus.RETURNED);
+        SOURCES.replaceAll((status, sources) -> Collections.unmodifiableSet(sources));
+    }
+    
+    private ParcelStatusTransitions() {}
+    
+    public static boolean isAllowed(ParcelStatus from, ParcelStatus to) {
+        return SOURCES.get(to).contains(from);
+    }
+    
+    /**
+     * Statuses a parcel may be in to move to the given status.
+     */
+    public static Set<ParcelStatus> allowedSources(ParcelStatus to) {
+        return SOURCES.get(to);
+    }
+    
+    private static void allow(ParcelStatus from, ParcelStatus... targets) {
+        for (ParcelStatus to : targets) {
+            SOURCES.get(to).add(from);
+        }
+    }
+}
\ No newline at end of file
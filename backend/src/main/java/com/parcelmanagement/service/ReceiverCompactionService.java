@@ -0,0 +1,180 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.repository.ParcelRepository;
+import com.parcelmanagement.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One-off job that merges auto-created receivers sharing an identity (see ReceiverResolver)
+ * into the oldest row of each group and repoints parcels.receiver_id at it.
+ * Receivers are streamed ordered by identity, so duplicates arrive next to each other and the
+ * job holds one group at a time; merges are committed in small independent transactions.
+ * Each group's identity is evicted from ReceiverResolver's cache around its merge, and a
+ * duplicate that picked up a parcel in the meantime is kept rather than failing the delete.
+ */
+@Service
+public class ReceiverCompactionService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReceiverCompactionService.class);
+    
+    private static final int MERGES_PER_TRANSACTION = 500;
+    
+    // Identity of an auto-created receiver: its email, or a placeholder built from the phone digits
+    private static final String RECEIVER_IDENTITIES =
+            "SELECT id, CASE WHEN email = '" + ReceiverResolver.LEGACY_PLACEHOLDER_EMAIL + "' " +
+            "OR email LIKE '%" + ReceiverResolver.PLACEHOLDER_EMAIL_DOMAIN + "' " +
+            "THEN CONCAT('phone-', REGEXP_REPLACE(phone_number, '[^0-9]', ''), '" + ReceiverResolver.PLACEHOLDER_EMAIL_DOMAIN + "') " +
+            "ELSE LOWER(email) END AS identity " +
+            "FROM users WHERE username LIKE 'receiver\\_%' AND role = 'CUSTOMER' " +
+            "ORDER BY identity, id";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ParcelRepository parcelRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ReceiverResolver receiverResolver;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    public Map<String, Object> compact() {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Receiver compaction is already running");
+        }
+        
+        try {
+            CompactionRun run = new CompactionRun(new TransactionTemplate(transactionManager));
+            
+            // A dedicated streaming template; the merges run on other connections while it reads
+            JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+            streaming.setFetchSize(Integer.MIN_VALUE);
+            streaming.query(RECEIVER_IDENTITIES, rs -> {
+                String identity = rs.getString("identity");
+                if (identity != null && !identity.equals("phone-" + ReceiverResolver.PLACEHOLDER_EMAIL_DOMAIN)) {
+                    run.accept(identity, rs.getLong("id"));
+                }
+            });
+            run.finish();
+            
+            Map<String, Object> result = new HashMap<>();
+            result.put("receiversScanned", run.scanned);
+            result.put("duplicateGroups", run.groups);
+            result.put("receiversMerged", run.merged);
+            result.put("parcelsRepointed", run.parcelsRepointed);
+            logger.info("Receiver compaction finished: {}", result);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    private class CompactionRun {
+        
+        private final TransactionTemplate transactionTemplate;
+        
+        private final List<Long> survivors = new ArrayList<>();
+        private final List<String> survivorIdentities = new ArrayList<>();
+        private final List<List<Long>> duplicates = new ArrayList<>();
+        private int pendingMerges;
+        
+        private String currentIdentity;
+        private Long currentSurvivor;
+        private List<Long> currentDuplicates = new ArrayList<>();
+        private boolean currentGroupFlushed;
+        
+        private long scanned;
+        private long groups;
+        private long merged;
+        private long parcelsRepointed;
+        
+        CompactionRun(TransactionTemplate transactionTemplate) {
+            this.transactionTemplate = transactionTemplate;
+        }
+        
+        void accept(String identity, long id) {
+            scanned++;
+            if (identity.equals(currentIdentity)) {
+                if (currentDuplicates.isEmpty() && !currentGroupFlushed) {
+                    groups++;
+                }
+                currentDuplicates.add(id);
+                // Very large groups are merged in slices rather than held in memory
+                if (currentDuplicates.size() >= MERGES_PER_TRANSACTION) {
+                    closeGroup();
+                    currentGroupFlushed = true;
+                }
+                return;
+            }
+            closeGroup();
+            currentIdentity = identity;
+            currentSurvivor = id;
+            currentGroupFlushed = false;
+        }
+        
+        void finish() {
+            closeGroup();
+            flush();
+        }
+        
+        private void closeGroup() {
+            if (currentSurvivor == null || currentDuplicates.isEmpty()) {
+                currentDuplicates = new ArrayList<>();
+                return;
+            }
+            survivors.add(currentSurvivor);
+            survivorIdentities.add(currentIdentity);
+            duplicates.add(currentDuplicates);
+            pendingMerges += currentDuplicates.size();
+            currentDuplicates = new ArrayList<>();
+            
+            if (pendingMerges >= MERGES_PER_TRANSACTION) {
+                flush();
+            }
+        }
+        
+        private void flush() {
+            if (survivors.isEmpty()) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < survivors.size(); i++) {
+                    Long survivor = survivors.get(i);
+                    List<Long> duplicateIds = duplicates.get(i);
+                    
+                    // Bookings stop reusing a cached duplicate id before it is repointed and deleted
+                    receiverResolver.evict(survivorIdentities.get(i));
+                    parcelsRepointed += parcelRepository.repointReceiver(survivor, duplicateIds);
+                    merged += userRepository.deleteUnreferencedReceivers(duplicateIds);
+                    // Survivors keep working with ReceiverResolver's lookup once they carry the identity email
+                    userRepository.adoptIdentityEmail(survivor, survivorIdentities.get(i));
+                }
+            });
+            // A booking may have cached a duplicate id again while the merge was uncommitted
+            survivorIdentities.forEach(receiverResolver::evict);
+            survivors.clear();
+            survivorIdentities.clear();
+            duplicates.clear();
+            pendingMerges = 0;
+        }
+    }
+}
\ No newline at end of file
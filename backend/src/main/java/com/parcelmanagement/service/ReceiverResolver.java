@@ -0,0 +1,143 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.cache.LruCache;
+import com.parcelmanagement.entity.User;
+import com.parcelmanagement.repository.UserRepository;
+import com.parcelmanagement.util.AfterCommit;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps booking receiver details onto a single User per identity.
+ * Receivers are keyed by their normalized email; receivers without an email get a
+ * stable placeholder email derived from their normalized phone number, so the unique
+ * email index is the only lookup either case needs. New receivers are inserted in the caller's
+ * transaction, so they roll back with it and need no second pooled connection.
+ */
+@Service
+public class ReceiverResolver {
+    
+    public static final String PLACEHOLDER_EMAIL_DOMAIN = "@receivers.invalid";
+    public static final String LEGACY_PLACEHOLDER_EMAIL = "noemail@example.com";
+    
+    private static final String INSERT_RECEIVER =
+            "INSERT INTO users (username, email, password, first_name, last_name, phone_number, role, enabled, " +
+            "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE id = id";
+    
+    private static final String LOCK_RECEIVER =
+            "SELECT id FROM users WHERE email = ? FOR SHARE";
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ReferenceNumberService referenceNumberService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${parcel.receivers.cache-size:100000}")
+    private int cacheSize;
+    
+    private LruCache<String, Long> receiverIds;
+    
+    @PostConstruct
+    void init() {
+        receiverIds = new LruCache<>(cacheSize);
+    }
+    
+    public User resolve(String receiverName, String receiverPhone, String receiverEmail) {
+        String identityEmail = identityEmail(receiverEmail, receiverPhone);
+        if (identityEmail == null) {
+            throw new RuntimeException("Receiver needs an email or a phone number");
+        }
+        
+        Long cachedId = receiverIds.get(identityEmail);
+        if (cachedId != null) {
+            return userRepository.getReferenceById(cachedId);
+        }
+        
+        Long receiverId = userRepository.findByEmail(identityEmail)
+                .map(User::getId)
+                .orElseGet(() -> create(identityEmail, receiverName, receiverPhone));
+        // A receiver inserted by this transaction only exists once it commits
+        AfterCommit.run(() -> receiverIds.put(identityEmail, receiverId));
+        return userRepository.getReferenceById(receiverId);
+    }
+    
+    public Map<String, Object> cacheStats() {
+        return receiverIds.stats();
+    }
+    
+    public void clearCache() {
+        receiverIds.clear();
+    }
+    
+    public void evict(String identityEmail) {
+        receiverIds.invalidate(identityEmail);
+    }
+    
+    public static String normalizeEmail(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    public static String normalizePhone(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.length() == 0 ? null : digits.toString();
+    }
+    
+    public static String identityEmail(String email, String phone) {
+        String normalizedEmail = normalizeEmail(email);
+        if (normalizedEmail != null) {
+            return normalizedEmail;
+        }
+        String normalizedPhone = normalizePhone(phone);
+        return normalizedPhone != null ? "phone-" + normalizedPhone + PLACEHOLDER_EMAIL_DOMAIN : null;
+    }
+    
+    private Long create(String identityEmail, String receiverName, String receiverPhone) {
+        User receiver = newReceiver(identityEmail, receiverName, receiverPhone);
+        LocalDateTime now = LocalDateTime.now();
+        // A concurrent booking may insert the same receiver; the insert then waits for it and changes nothing
+        jdbcTemplate.update(INSERT_RECEIVER, receiver.getUsername(), receiver.getEmail(), receiver.getPassword(), 
+                receiver.getFirstName(), receiver.getLastName(), receiver.getPhoneNumber(), receiver.getRole().name(), 
+                receiver.isEnabled(), Timestamp.valueOf(now), Timestamp.valueOf(now));
+        // A locking read sees the committed row even when this transaction's snapshot predates it
+        return jdbcTemplate.queryForObject(LOCK_RECEIVER, Long.class, identityEmail);
+    }
+    
+    private User newReceiver(String identityEmail, String receiverName, String receiverPhone) {
+        String name = receiverName.trim();
+        
+        User receiver = new User();
+        receiver.setUsername(referenceNumberService.nextReference("receiver_"));
+        receiver.setEmail(identityEmail);
+        receiver.setPassword("defaultPassword123"); // This should be handled properly in production
+        receiver.setFirstName(name.split(" ")[0]);
+        receiver.setLastName(name.contains(" ") ? name.substring(name.indexOf(" ") + 1) : "");
+        receiver.setPhoneNumber(normalizePhone(receiverPhone));
+        receiver.setRole(User.UserRole.CUSTOMER);
+        receiver.setEnabled(true);
+        return receiver;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.parcelmanagement.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Formats generated ids as fixed-width reference numbers: a prefix, the id as 13
+ * Crockford base32 characters and a Luhn mod 32 check character. Fixed width keeps
+ * the strings in the same order as the ids, so unique-index inserts stay append-mostly.
+ */
+@Service
+public class ReferenceNumberService {
+    
+    public static final String TRACKING_PREFIX = "TRK";
+    public static final String INVOICE_PREFIX = "INV";
+    
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ID_LENGTH = 13;
+    
+    @Autowired
+    private IdGenerator idGenerator;
+    
+    public String nextTrackingNumber() {
+        return format(TRACKING_PREFIX, idGenerator.nextId());
+    }
+    
+    public String nextInvoiceNumber() {
+        return format(INVOICE_PREFIX, idGenerator.nextId());
+    }
+    
+    public String nextReference(String prefix) {
+        return format(prefix, idGenerator.nextId());
+    }
+    
+    // Only recognises numbers in the current format; older random-suffix numbers are not checkable
+    public boolean isValid(String prefix, String reference) {
+        if (reference == null || reference.length() != prefix.length() + ID_LENGTH + 1 || !reference.startsWith(prefix)) {
+            return false;
+        }
+        
+        int[] digits = new int[ID_LENGTH];
+        for (int i = 0; i < ID_LENGTH; i++) {
+            digits[i] = indexOf(reference.charAt(prefix.length() + i));
+            if (digits[i] < 0) {
+                return false;
+            }
+        }
+        
+        return ALPHABET[checkDigit(digits)] == reference.charAt(reference.length() - 1);
+    }
+    
+    static String format(String prefix, long id) {
+        int[] digits = new int[ID_LENGTH];
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            digits[i] = (int) (id & 31);
+            id >>>= 5;
+        }
+        
+        char[] chars = new char[prefix.length() + ID_LENGTH + 1];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        for (int i = 0; i < ID_LENGTH; i++) {
+            chars[prefix.length() + i] = ALPHABET[digits[i]];
+        }
+        chars[chars.length - 1] = ALPHABET[checkDigit(digits)];
+        return new String(chars);
+    }
+    
+    // Luhn mod N over the base32 digits, doubling every second digit from the right
+    private static int checkDigit(int[] digits) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = digits.length - 1; i >= 0; i--) {
+            int addend = digits[i];
+            if (doubled) {
+                addend *= 2;
+                addend = addend / 32 + addend % 32;
+            }
+            sum += addend;
+            doubled = !doubled;
+        }
+        return (32 - sum % 32) % 32;
+    }
+    
+    private static int indexOf(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,249 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.entity.Invoice;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paid revenue per day and payment method in revenue_daily. Every payment status change that
+ * moves an invoice into or out of PAID adds its delta to the day of its paid date inside the
+ * writing transaction, so a range query sums one row per day and method for the whole days it
+ * covers and reads only the invoices of its partial first and last day. Amounts stay BigDecimal
+ * end to end.
+ */
+@Service
+public class RevenueRollupService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RevenueRollupService.class);
+    
+    public static final String UNSPECIFIED_METHOD = "UNSPECIFIED";
+    
+    private static final String ADD_DELTA =
+            "INSERT INTO revenue_daily (revenue_date, payment_method, invoice_count, total_amount, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE invoice_count = invoice_count + VALUES(invoice_count), " +
+            "total_amount = total_amount + VALUES(total_amount), updated_at = VALUES(updated_at)";
+    
+    private static final String BUCKET_TOTALS =
+            "SELECT payment_method, SUM(invoice_count) AS invoices, SUM(total_amount) AS amount FROM revenue_daily " +
+            "WHERE revenue_date >= ? AND revenue_date < ? GROUP BY payment_method";
+    
+    // The partial first day [from, to) and partial last day [from, to] of a range, served by idx_invoices_status_paid_date
+    private static final String EDGE_TOTALS =
+            "SELECT COALESCE(payment_method, '" + UNSPECIFIED_METHOD + "') AS payment_method, COUNT(*) AS invoices, " +
+            "SUM(total_amount) AS amount FROM invoices WHERE payment_status = 'PAID' " +
+            "AND ((paid_date >= ? AND paid_date < ?) OR (paid_date >= ? AND paid_date <= ?)) " +
+            "GROUP BY COALESCE(payment_method, '" + UNSPECIFIED_METHOD + "')";
+    
+    private static final String LOCK_BUCKETS =
+            "SELECT id FROM revenue_daily FOR UPDATE";
+    
+    private static final String PAID_BY_DAY =
+            "SELECT DATE(paid_date) AS revenue_date, COALESCE(payment_method, '" + UNSPECIFIED_METHOD + "') AS payment_method, " +
+            "COUNT(*) AS invoices, SUM(total_amount) AS amount FROM invoices " +
+            "WHERE payment_status = 'PAID' AND paid_date IS NOT NULL " +
+            "GROUP BY DATE(paid_date), COALESCE(payment_method, '" + UNSPECIFIED_METHOD + "')";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private volatile LocalDateTime lastRebuiltAt;
+    
+    /**
+     * Takes an invoice out of the bucket it was counted in, if it was paid, and adds it to the
+     * bucket of its current paid date and method, if it is paid now. Call inside the transaction
+     * that changed the invoice.
+     */
+    public void recordChange(Invoice.PaymentStatus previousStatus, LocalDateTime previousPaidDate,
+                             Invoice.PaymentMethod previousMethod, Invoice invoice) {
+        BigDecimal amount = invoice.getTotalAmount().setScale(2, RoundingMode.HALF_UP);
+        
+        // Sorted like the unique key, so transactions moving money between the same buckets lock them in one order
+        Map<String, Object[]> deltas = new TreeMap<>();
+        if (previousStatus == Invoice.PaymentStatus.PAID && previousPaidDate != null) {
+            addTo(deltas, previousPaidDate.toLocalDate(), methodName(previousMethod), -1, amount.negate());
+        }
+        if (invoice.getPaymentStatus() == Invoice.PaymentStatus.PAID && invoice.getPaidDate() != null) {
+            addTo(deltas, invoice.getPaidDate().toLocalDate(), methodName(invoice.getPaymentMethod()), 1, amount);
+        }
+        
+        apply(deltas);
+    }
+    
+    /**
+     * Adds invoices that were just moved into PAID to the buckets of their paid date and method,
+     * one row update per bucket. Call inside the transaction that changed the invoices.
+     */
+    public void recordPaid(List<Invoice> paidInvoices) {
+        Map<String, Object[]> deltas = new TreeMap<>();
+        for (Invoice invoice : paidInvoices) {
+            addTo(deltas, invoice.getPaidDate().toLocalDate(), methodName(invoice.getPaymentMethod()), 1,
+                    invoice.getTotalAmount().setScale(2, RoundingMode.HALF_UP));
+        }
+        apply(deltas);
+    }
+    
+    /**
+     * Paid revenue with startDate <= paid date <= endDate.
+     */
+    public BigDecimal totalRevenue(LocalDateTime startDate, LocalDateTime endDate) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Object[] totals : totalsByMethod(startDate, endDate).values()) {
+            total = total.add((BigDecimal) totals[1]);
+        }
+        return total;
+    }
+    
+    /**
+     * Paid revenue with startDate <= paid date <= endDate, in total and per payment method.
+     */
+    public Map<String, Object> revenue(LocalDateTime startDate, LocalDateTime endDate) {
+        long invoices = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        Map<String, Object> byPaymentMethod = new TreeMap<>();
+        for (Map.Entry<String, Object[]> entry : totalsByMethod(startDate, endDate).entrySet()) {
+            long count = (long) entry.getValue()[0];
+            BigDecimal amount = (BigDecimal) entry.getValue()[1];
+            invoices += count;
+            total = total.add(amount);
+            
+            Map<String, Object> method = new HashMap<>();
+            method.put("invoices", count);
+            method.put("amount", amount);
+            byPaymentMethod.put(entry.getKey(), method);
+        }
+        
+        Map<String, Object> revenue = new HashMap<>();
+        revenue.put("startDate", startDate);
+        revenue.put("endDate", endDate);
+        revenue.put("invoices", invoices);
+        revenue.put("total", total);
+        revenue.put("byPaymentMethod", byPaymentMethod);
+        return revenue;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        Long buckets = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM revenue_daily", Long.class);
+        if (buckets != null && buckets == 0) {
+            rebuild();
+        }
+    }
+    
+    @Scheduled(cron = "${parcel.invoicing.revenue.rebuild-cron:0 30 3 * * *}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+    
+    /**
+     * Recomputes every bucket from the paid invoices. The buckets and the gaps between them are
+     * locked first, so payments committing meanwhile wait and add their deltas on top of the
+     * rebuilt rows instead of being lost or counted twice.
+     */
+    public synchronized Map<String, Object> rebuild() {
+        long started = System.nanoTime();
+        long[] totals = new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.queryForList(LOCK_BUCKETS);
+            
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> buckets = new ArrayList<>();
+            long[] invoices = new long[1];
+            jdbcTemplate.query(PAID_BY_DAY, rs -> {
+                buckets.add(new Object[]{rs.getDate("revenue_date"), rs.getString("payment_method"),
+                        rs.getLong("invoices"), rs.getBigDecimal("amount"), now});
+                invoices[0] += rs.getLong("invoices");
+            });
+            
+            jdbcTemplate.update("DELETE FROM revenue_daily");
+            jdbcTemplate.batchUpdate(ADD_DELTA, buckets);
+            return new long[]{buckets.size(), invoices[0]};
+        });
+        lastRebuiltAt = LocalDateTime.now();
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("buckets", totals[0]);
+        result.put("invoices", totals[1]);
+        result.put("millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        result.put("lastRebuiltAt", lastRebuiltAt);
+        logger.info("Revenue rollup rebuilt: {}", result);
+        return result;
+    }
+    
+    // payment method -> {invoice count, amount}
+    private Map<String, Object[]> totalsByMethod(LocalDateTime startDate, LocalDateTime endDate) {
+        Map<String, Object[]> totals = new TreeMap<>();
+        if (endDate.isBefore(startDate)) {
+            return totals;
+        }
+        
+        // Whole days [firstDay, lastDay) come from the buckets, the partial days around them from the invoices
+        LocalDate firstDay = startDate.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? startDate.toLocalDate() : startDate.toLocalDate().plusDays(1);
+        LocalDate lastDay = endDate.toLocalDate();
+        Timestamp start = Timestamp.valueOf(startDate);
+        Timestamp end = Timestamp.valueOf(endDate);
+        
+        if (firstDay.isBefore(lastDay)) {
+            jdbcTemplate.query(BUCKET_TOTALS, rs -> {
+                add(totals, rs.getString("payment_method"), rs.getLong("invoices"), rs.getBigDecimal("amount"));
+            }, Date.valueOf(firstDay), Date.valueOf(lastDay));
+            jdbcTemplate.query(EDGE_TOTALS, rs -> {
+                add(totals, rs.getString("payment_method"), rs.getLong("invoices"), rs.getBigDecimal("amount"));
+            }, start, Timestamp.valueOf(firstDay.atStartOfDay()), Timestamp.valueOf(lastDay.atStartOfDay()), end);
+        } else {
+            jdbcTemplate.query(EDGE_TOTALS, rs -> {
+                add(totals, rs.getString("payment_method"), rs.getLong("invoices"), rs.getBigDecimal("amount"));
+            }, start, start, start, end);
+        }
+        return totals;
+    }
+    
+    private void apply(Map<String, Object[]> deltas) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Object[] delta : deltas.values()) {
+            if ((long) delta[2] != 0 || ((BigDecimal) delta[3]).signum() != 0) {
+                jdbcTemplate.update(ADD_DELTA, delta[0], delta[1], delta[2], delta[3], now);
+            }
+        }
+    }
+    
+    private static void add(Map<String, Object[]> totals, String method, long invoices, BigDecimal amount) {
+        Object[] current = totals.computeIfAbsent(method, key -> new Object[]{0L, BigDecimal.ZERO});
+        current[0] = (long) current[0] + invoices;
+        current[1] = ((BigDecimal) current[1]).add(amount);
+    }
+    
+    private static void addTo(Map<String, Object[]> deltas, LocalDate day, String method, long invoices, BigDecimal amount) {
+        Object[] delta = deltas.computeIfAbsent(day + "|" + method, key -> new Object[]{Date.valueOf(day), method, 0L, BigDecimal.ZERO});
+        delta[2] = (long) delta[2] + invoices;
+        delta[3] = ((BigDecimal) delta[3]).add(amount);
+    }
+    
+    private static String methodName(Invoice.PaymentMethod method) {
+        return method != null ? method.name() : UNSPECIFIED_METHOD;
+    }
+}
\ No newline at end of file
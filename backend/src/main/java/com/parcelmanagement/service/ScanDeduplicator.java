@@ -0,0 +1,135 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.cache.LruCache;
+import com.parcelmanagement.dto.ScanDto;
+import com.parcelmanagement.entity.Parcel;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drops scanner retries before they reach the database. A scan is identified by its client scan
+ * id, or else by parcel, status, location and device timestamp; the first sighting of an identity
+ * is remembered for the dedup window and repeats within it are reported as duplicates. Identities
+ * are kept as 64-bit fingerprints in a segmented LRU cache with expiry, so memory stays bounded
+ * by the configured number of entries. Updates carrying neither a scan id nor a device timestamp
+ * cannot be told apart from deliberate repeats and are never deduplicated.
+ */
+@Service
+public class ScanDeduplicator {
+    
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    @Value("${parcel.scans.dedup-window-ms:300000}")
+    private long windowMillis;
+    
+    @Value("${parcel.scans.dedup-max-entries:1000000}")
+    private int maxEntries;
+    
+    private LruCache<Long, Boolean> seen;
+    
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    
+    @PostConstruct
+    void init() {
+        seen = new LruCache<>(maxEntries, windowMillis);
+    }
+    
+    /**
+     * Identity of a manual tracking update, or null when it carries nothing to deduplicate by.
+     */
+    public static String key(Long parcelId, String scanId, Parcel.ParcelStatus status, String location, 
+                             LocalDateTime scannedAt) {
+        if (scanId != null && !scanId.isBlank()) {
+            return "scan:" + scanId.trim();
+        }
+        if (scannedAt == null) {
+            return null;
+        }
+        return "parcel:" + parcelId + "|" + status + "|" + location.trim() + "|" + scannedAt;
+    }
+    
+    /**
+     * Identity of a hub scan, or null when it carries nothing to deduplicate by.
+     */
+    public static String key(ScanDto scan) {
+        if (scan.getScanId() != null && !scan.getScanId().isBlank()) {
+            return "scan:" + scan.getScanId().trim();
+        }
+        if (scan.getTimestamp() == null) {
+            return null;
+        }
+        return "tn:" + scan.getTrackingNumber().trim() + "|" + scan.getStatus() + "|" + scan.getLocation().trim() 
+                + "|" + scan.getTimestamp();
+    }
+    
+    /**
+     * Records the identity and reports whether it is new within the window; null keys are always new.
+     */
+    public boolean firstSeen(String key) {
+        if (key == null) {
+            return true;
+        }
+        checked.increment();
+        if (seen.putIfAbsent(fingerprint(key), Boolean.TRUE) != null) {
+            duplicates.increment();
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Forgets an identity whose write did not happen, so the client's retry is accepted.
+     */
+    public void forget(String key) {
+        if (key != null) {
+            seen.invalidate(fingerprint(key));
+        }
+    }
+    
+    /**
+     * Hub scans whose identity was not seen within the window, in their original order.
+     */
+    public List<ScanDto> filterScans(List<ScanDto> scans) {
+        List<ScanDto> fresh = new ArrayList<>(scans.size());
+        for (ScanDto scan : scans) {
+            if (firstSeen(key(scan))) {
+                fresh.add(scan);
+            }
+        }
+        return fresh;
+    }
+    
+    public void forgetScans(List<ScanDto> scans) {
+        for (ScanDto scan : scans) {
+            forget(key(scan));
+        }
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = seen.stats();
+        stats.put("checked", checked.sum());
+        stats.put("duplicatesDropped", duplicates.sum());
+        stats.put("windowMillis", windowMillis);
+        return stats;
+    }
+    
+    // 64-bit FNV-1a; at a million live entries the chance of any false duplicate stays below 1e-7
+    private static long fingerprint(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,525 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.dto.ScanDto;
+import com.parcelmanagement.dto.TrackingEventDto;
+import com.parcelmanagement.entity.Parcel;
+import com.parcelmanagement.entity.Tracking;
+import com.parcelmanagement.entity.User;
+import com.parcelmanagement.util.AfterCommit;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind ingestion of hub scans. Accepted scans wait in a bounded in-memory queue and a
+ * single writer drains them in batches: per batch the scanned parcels are locked in one query,
+ * the tracking rows are batch-inserted and every parcel gets one UPDATE with the status its scans
+ * lead to. Scans older than the parcel's last change only add history. Submissions that do not
+ * fit into the queue are refused as a whole so hubs can back off and resend. A batch that keeps
+ * failing is retried parcel by parcel, and scans that still cannot be written go to the
+ * scan_dead_letters table with their dedup keys forgotten, so the hub's resend is accepted.
+ */
+@Service
+public class ScanIngestionService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ScanIngestionService.class);
+    
+    private static final Parcel.ParcelStatus[] STATUSES = Parcel.ParcelStatus.values();
+    
+    private static final int LOCK_CHUNK_SIZE = 1000;
+    
+    private static final int WRITE_ATTEMPTS = 3;
+    
+    private static final int MAX_ERROR_LENGTH = 1000;
+    
+    private static final int RATE_WINDOW_SECONDS = 60;
+    
+    // The head is locked with the parcel, so its event time is the committed one; the batch upserts it anyway
+    private static final String LOCK_PARCELS =
+            "SELECT p.id, p.tracking_number, p.status, p.priority, p.created_at, h.event_time AS last_event_time, " +
+            "p.sender_id, p.receiver_id, p.estimated_delivery_date, pl.city AS pickup_city, dl.city AS delivery_city " +
+            "FROM parcels p " +
+            "JOIN locations pl ON pl.id = p.pickup_location_id " +
+            "JOIN locations dl ON dl.id = p.delivery_location_id " +
+            "LEFT JOIN parcel_tracking_head h ON h.parcel_id = p.id " +
+            "WHERE p.tracking_number IN (%s) ORDER BY p.id FOR UPDATE OF p, h";
+    
+    private static final String UPDATE_PARCEL =
+            "UPDATE parcels SET status = ?, version = version + 1, updated_at = ?, " +
+            "estimated_delivery_date = COALESCE(?, estimated_delivery_date), " +
+            "actual_delivery_date = COALESCE(actual_delivery_date, ?) WHERE id = ?";
+    
+    private static final String INSERT_DEAD_LETTER =
+            "INSERT INTO scan_dead_letters (tracking_number, status, location, description, scanned_at, scan_id, " +
+            "user_id, error, failed_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Autowired
+    private ParcelStatusCounterService statusCounters;
+    
+    @Autowired
+    private EtaService etaService;
+    
+    @Autowired
+    private OverdueParcelDetector overdueDetector;
+    
+    @Autowired
+    private TrackingHeadService trackingHeads;
+    
+    @Autowired
+    private TrackingResponseCache trackingResponseCache;
+    
+    @Autowired
+    private TrackingEventHub trackingEventHub;
+    
+    @Autowired
+    private ScanDeduplicator scanDeduplicator;
+    
+    @Value("${parcel.scans.queue-capacity:100000}")
+    private int queueCapacity;
+    
+    @Value("${parcel.scans.max-batch-size:2000}")
+    private int maxBatchSize;
+    
+    @Value("${parcel.scans.linger-ms:50}")
+    private long lingerMillis;
+    
+    private final LinkedBlockingQueue<PendingScan> queue = new LinkedBlockingQueue<>();
+    private Semaphore capacity;
+    
+    private TransactionTemplate transactionTemplate;
+    private Thread writer;
+    private volatile boolean running;
+    
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder unknownParcels = new LongAdder();
+    private final LongAdder rejectedTransitions = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private volatile int lastBatchSize;
+    private volatile long lastBatchMillis;
+    
+    // Scans written per second over the last minute, one slot per second
+    private final AtomicLongArray rateSlots = new AtomicLongArray(RATE_WINDOW_SECONDS);
+    private final AtomicLongArray rateSlotSeconds = new AtomicLongArray(RATE_WINDOW_SECONDS);
+    
+    @PostConstruct
+    void start() {
+        capacity = new Semaphore(queueCapacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        writer = new Thread(this::drainLoop, "scan-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // Let the writer empty the queue before the application shuts down
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (!queue.isEmpty()) {
+            logger.warn("Shutting down with {} scans not written", queue.size());
+        }
+    }
+    
+    /**
+     * Returns the first invalid scan as "index: violations", or null when all scans are valid.
+     */
+    public String validate(List<ScanDto> scans) {
+        for (int i = 0; i < scans.size(); i++) {
+            ScanDto scan = scans.get(i);
+            if (scan == null) {
+                return i + ": Scan is empty";
+            }
+            Set<ConstraintViolation<ScanDto>> violations = validator.validate(scan);
+            if (!violations.isEmpty()) {
+                return i + ": " + violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Queues all scans, or none of them when the queue has no room for the whole submission.
+     */
+    public boolean submit(List<ScanDto> scans, Long userId) {
+        if (!capacity.tryAcquire(scans.size())) {
+            refused.add(scans.size());
+            return false;
+        }
+        LocalDateTime receivedAt = LocalDateTime.now();
+        for (ScanDto scan : scans) {
+            queue.add(new PendingScan(scan, userId, receivedAt));
+        }
+        accepted.add(scans.size());
+        return true;
+    }
+    
+    public int getQueueDepth() {
+        return queue.size();
+    }
+    
+    public Map<String, Object> stats() {
+        long nowSecond = System.currentTimeMillis() / 1000;
+        long recent = 0;
+        for (int i = 0; i < RATE_WINDOW_SECONDS; i++) {
+            if (nowSecond - rateSlotSeconds.get(i) < RATE_WINDOW_SECONDS) {
+                recent += rateSlots.get(i);
+            }
+        }
+        
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("accepted", accepted.sum());
+        stats.put("refused", refused.sum());
+        stats.put("written", written.sum());
+        stats.put("unknownParcels", unknownParcels.sum());
+        stats.put("rejectedTransitions", rejectedTransitions.sum());
+        stats.put("failed", failed.sum());
+        stats.put("deadLettered", deadLettered.sum());
+        stats.put("batches", batches.sum());
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("lastBatchMillis", lastBatchMillis);
+        stats.put("scansPerSecond", (double) recent / RATE_WINDOW_SECONDS);
+        return stats;
+    }
+    
+    private void drainLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingScan first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                
+                // Linger briefly so a trickle of scans still shares transactions
+                List<PendingScan> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingScan next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                
+                writeWithRetry(batch);
+                capacity.release(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    private void writeWithRetry(List<PendingScan> batch) throws InterruptedException {
+        for (int attempt = 1; attempt < WRITE_ATTEMPTS; attempt++) {
+            long started = System.nanoTime();
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch));
+                
+                lastBatchSize = batch.size();
+                lastBatchMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                batches.increment();
+                recordRate(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("Writing {} scans failed, retrying: {}", batch.size(), e.getMessage());
+                Thread.sleep(100L * attempt);
+            }
+        }
+        writeByParcel(batch);
+    }
+    
+    // Last attempt: one transaction per parcel, so a scan that cannot be written only takes its own parcel's scans down
+    private void writeByParcel(List<PendingScan> batch) {
+        Map<String, List<PendingScan>> scansByParcel = new LinkedHashMap<>();
+        for (PendingScan scan : batch) {
+            scansByParcel.computeIfAbsent(scan.trackingNumber, key -> new ArrayList<>()).add(scan);
+        }
+        
+        long started = System.nanoTime();
+        int writtenScans = 0;
+        for (List<PendingScan> scans : scansByParcel.values()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(scans));
+                writtenScans += scans.size();
+            } catch (RuntimeException e) {
+                deadLetter(scans, e);
+            }
+        }
+        
+        lastBatchSize = batch.size();
+        lastBatchMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        batches.increment();
+        recordRate(writtenScans);
+    }
+    
+    private void deadLetter(List<PendingScan> scans, RuntimeException cause) {
+        failed.add(scans.size());
+        String error = NestedExceptionUtils.getMostSpecificCause(cause).toString();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(scans.size());
+        for (PendingScan scan : scans) {
+            rows.add(new Object[]{scan.trackingNumber, scan.status.name(), scan.location, scan.description, 
+                    Timestamp.valueOf(scan.timestamp), scan.scanId, scan.userId, error, Timestamp.valueOf(now)});
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_DEAD_LETTER, rows);
+            deadLettered.add(scans.size());
+            logger.error("Dead-lettered {} scans of parcel {}: {}", scans.size(), scans.get(0).trackingNumber, error);
+        } catch (RuntimeException e) {
+            logger.error("Dropping {} scans of parcel {}, dead-lettering failed too: {}", 
+                    scans.size(), scans.get(0).trackingNumber, error, e);
+        } finally {
+            // The scans were not written, so the hub's resend must not be dropped as a duplicate
+            for (PendingScan scan : scans) {
+                scanDeduplicator.forget(scan.dedupKey);
+            }
+        }
+    }
+    
+    private void write(List<PendingScan> batch) {
+        Map<String, List<PendingScan>> scansByParcel = new LinkedHashMap<>();
+        for (PendingScan scan : batch) {
+            scansByParcel.computeIfAbsent(scan.trackingNumber, key -> new ArrayList<>()).add(scan);
+        }
+        Map<String, ParcelRow> parcels = lockParcels(new ArrayList<>(scansByParcel.keySet()));
+        
+        LocalDateTime now = LocalDateTime.now();
+        long[] statusDeltas = new long[STATUSES.length];
+        List<Object[]> parcelUpdates = new ArrayList<>();
+        List<Object[]> events = new ArrayList<>(batch.size());
+        
+        for (Map.Entry<String, List<PendingScan>> entry : scansByParcel.entrySet()) {
+            ParcelRow parcel = parcels.get(entry.getKey());
+            if (parcel == null) {
+                unknownParcels.add(entry.getValue().size());
+                continue;
+            }
+            
+            List<PendingScan> scans = entry.getValue();
+            scans.sort(Comparator.comparing(scan -> scan.timestamp));
+            Parcel parcelReference = entityManager.getReference(Parcel.class, parcel.id);
+            for (PendingScan scan : scans) {
+                Tracking tracking = new Tracking(parcelReference, scan.status, scan.location, scan.description, 
+                        entityManager.getReference(User.class, scan.userId));
+                tracking.setTimestamp(scan.timestamp);
+                entityManager.persist(tracking);
+                trackingHeads.record(parcel.id, parcel.trackingNumber, tracking);
+                events.add(new Object[]{tracking, parcel});
+            }
+            
+            // Walk the scans no older than the parcel's latest event in time order; hubs upload late, so
+            // this compares scan times with each other, never with when the parcel row was written. A
+            // forbidden transition is skipped and the next scan is checked against the status reached so far
+            Parcel.ParcelStatus previousStatus = parcel.status;
+            LocalDateTime deliveredAt = null;
+            for (PendingScan scan : scans) {
+                if (scan.status != parcel.status 
+                        && (parcel.lastEventTime == null || !scan.timestamp.isBefore(parcel.lastEventTime))
+                        && countTransition(parcel.status, scan.status)) {
+                    if (scan.status == Parcel.ParcelStatus.DELIVERED) {
+                        deliveredAt = scan.timestamp;
+                    }
+                    parcel.status = scan.status;
+                }
+            }
+            if (parcel.status != previousStatus) {
+                LocalDateTime estimatedDeliveryDate = reestimate(parcel);
+                if (estimatedDeliveryDate != null) {
+                    parcel.estimatedDeliveryDate = estimatedDeliveryDate;
+                }
+                parcelUpdates.add(new Object[]{parcel.status.name(), Timestamp.valueOf(now), 
+                        estimatedDeliveryDate != null ? Timestamp.valueOf(estimatedDeliveryDate) : null, 
+                        deliveredAt != null ? Timestamp.valueOf(deliveredAt) : null, parcel.id});
+                statusDeltas[previousStatus.ordinal()]--;
+                statusDeltas[parcel.status.ordinal()]++;
+                onStatusChange(parcel, previousStatus, deliveredAt);
+            }
+            trackingResponseCache.invalidate(parcel.trackingNumber);
+        }
+        
+        // Inserts go out in JDBC batches; the parcel updates follow as one more batch
+        entityManager.flush();
+        if (!parcelUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_PARCEL, parcelUpdates);
+        }
+        statusCounters.recordDeltas(statusDeltas);
+        
+        for (Object[] event : events) {
+            Tracking tracking = (Tracking) event[0];
+            ParcelRow parcel = (ParcelRow) event[1];
+            trackingEventHub.publish(new TrackingEventDto(tracking.getId(), parcel.id, parcel.trackingNumber, 
+                    tracking.getStatus(), tracking.getLocation(), tracking.getDescription(), tracking.getTimestamp(), 
+                    parcel.estimatedDeliveryDate), parcel.senderId, parcel.receiverId);
+        }
+        written.add(events.size());
+        entityManager.clear();
+    }
+    
+    // Scans asking for a transition the state machine forbids still add history, but leave the status alone
+    private boolean countTransition(Parcel.ParcelStatus from, Parcel.ParcelStatus to) {
+        if (ParcelStatusTransitions.isAllowed(from, to)) {
+            return true;
+        }
+        rejectedTransitions.increment();
+        return false;
+    }
+    
+    // Same estimate TrackingService.addTrackingUpdate makes; none once the parcel has left the network
+    private LocalDateTime reestimate(ParcelRow parcel) {
+        if (parcel.status == Parcel.ParcelStatus.DELIVERED || parcel.status == Parcel.ParcelStatus.CANCELLED 
+                || parcel.status == Parcel.ParcelStatus.RETURNED) {
+            return null;
+        }
+        return etaService.estimate(parcel.pickupCity, parcel.deliveryCity, parcel.priority, parcel.createdAt);
+    }
+    
+    private void onStatusChange(ParcelRow parcel, Parcel.ParcelStatus previousStatus, LocalDateTime deliveredAt) {
+        if (deliveredAt != null) {
+            AfterCommit.run(() -> etaService.recordDelivery(parcel.pickupCity, parcel.deliveryCity, 
+                    parcel.priority, parcel.createdAt, deliveredAt));
+        }
+        // RETURNED keeps its estimate, so it is only tracked again when it reopens a closed parcel
+        if (parcel.status == Parcel.ParcelStatus.DELIVERED || parcel.status == Parcel.ParcelStatus.CANCELLED) {
+            overdueDetector.untrack(parcel.id);
+        } else if (parcel.status != Parcel.ParcelStatus.RETURNED 
+                || previousStatus == Parcel.ParcelStatus.DELIVERED || previousStatus == Parcel.ParcelStatus.CANCELLED) {
+            overdueDetector.track(parcel.id, parcel.trackingNumber, parcel.estimatedDeliveryDate);
+        }
+    }
+    
+    private Map<String, ParcelRow> lockParcels(List<String> trackingNumbers) {
+        Map<String, ParcelRow> parcels = new HashMap<>();
+        for (int from = 0; from < trackingNumbers.size(); from += LOCK_CHUNK_SIZE) {
+            List<String> chunk = trackingNumbers.subList(from, Math.min(from + LOCK_CHUNK_SIZE, trackingNumbers.size()));
+            String sql = String.format(LOCK_PARCELS, String.join(", ", Collections.nCopies(chunk.size(), "?")));
+            jdbcTemplate.query(sql, rs -> {
+                ParcelRow parcel = new ParcelRow();
+                parcel.id = rs.getLong("id");
+                parcel.trackingNumber = rs.getString("tracking_number");
+                parcel.status = Parcel.ParcelStatus.valueOf(rs.getString("status"));
+                String priority = rs.getString("priority");
+                parcel.priority = priority != null ? Parcel.Priority.valueOf(priority) : Parcel.Priority.STANDARD;
+                parcel.createdAt = rs.getTimestamp("created_at").toLocalDateTime();
+                Timestamp lastEventTime = rs.getTimestamp("last_event_time");
+                parcel.lastEventTime = lastEventTime != null ? lastEventTime.toLocalDateTime() : null;
+                parcel.senderId = rs.getLong("sender_id");
+                parcel.receiverId = rs.getLong("receiver_id");
+                Timestamp estimatedDeliveryDate = rs.getTimestamp("estimated_delivery_date");
+                parcel.estimatedDeliveryDate = estimatedDeliveryDate != null ? estimatedDeliveryDate.toLocalDateTime() : null;
+                parcel.pickupCity = rs.getString("pickup_city");
+                parcel.deliveryCity = rs.getString("delivery_city");
+                parcels.put(parcel.trackingNumber, parcel);
+            }, chunk.toArray());
+        }
+        return parcels;
+    }
+    
+    private void recordRate(int scans) {
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % RATE_WINDOW_SECONDS);
+        if (rateSlotSeconds.getAndSet(slot, second) != second) {
+            rateSlots.set(slot, 0);
+        }
+        rateSlots.addAndGet(slot, scans);
+    }
+    
+    private static final class PendingScan {
+        
+        private final String trackingNumber;
+        private final Parcel.ParcelStatus status;
+        private final String location;
+        private final String description;
+        private final LocalDateTime timestamp;
+        private final Long userId;
+        private final String scanId;
+        private final String dedupKey;
+        
+        PendingScan(ScanDto scan, Long userId, LocalDateTime receivedAt) {
+            this.trackingNumber = scan.getTrackingNumber().trim();
+            this.status = scan.getStatus();
+            this.location = scan.getLocation();
+            this.description = scan.getDescription() != null ? scan.getDescription() : "Hub scan";
+            this.timestamp = scan.getTimestamp() != null ? scan.getTimestamp() : receivedAt;
+            this.userId = userId;
+            this.scanId = scan.getScanId();
+            this.dedupKey = ScanDeduplicator.key(scan);
+        }
+    }
+    
+    private static final class ParcelRow {
+        
+        private long id;
+        private String trackingNumber;
+        private Parcel.ParcelStatus status;
+        private Parcel.Priority priority;
+        private LocalDateTime createdAt;
+        // Event time of the parcel's newest tracking event before this batch; null when it has none
+        private LocalDateTime lastEventTime;
+        private long senderId;
+        private long receiverId;
+        private LocalDateTime estimatedDeliveryDate;
+        private String pickupCity;
+        private String deliveryCity;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.parcelmanagement.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style generator: 41 bits of milliseconds since 2024-01-01, 10 bits of node id
+ * and a 12 bit per-millisecond sequence. Ids are strictly increasing per node; when the
+ * sequence overflows or the clock steps back the generator borrows from the next millisecond
+ * instead of blocking, so a single CAS is all a caller ever waits for.
+ */
+@Component
+public class SnowflakeIdGenerator implements IdGenerator {
+    
+    private static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    
+    // Packed (milliseconds since EPOCH << SEQUENCE_BITS | sequence) of the last id handed out
+    private final AtomicLong state = new AtomicLong();
+    
+    @Value("${parcel.id.node-id:0}")
+    private long nodeId;
+    
+    @PostConstruct
+    void validateNodeId() {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("parcel.id.node-id must be between 0 and " + MAX_NODE_ID + ", was " + nodeId);
+        }
+    }
+    
+    @Override
+    public long nextId() {
+        long next;
+        while (true) {
+            long previous = state.get();
+            long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+            next = now > previous ? now : previous + 1;
+            if (state.compareAndSet(previous, next)) {
+                break;
+            }
+        }
+        
+        long millis = next >>> SEQUENCE_BITS;
+        long sequence = next & SEQUENCE_MASK;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,420 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.entity.Invoice;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reconciles bank statements against open invoices. One streaming scan of the PENDING and
+ * OVERDUE invoices builds a hash index by invoice number; the statement is then read line by
+ * line, each line credits its amount to the invoice it names, and invoices whose credits reach
+ * their total are marked PAID in batched, conditional updates that add their revenue rollup
+ * deltas in the same transaction. Lines naming no open invoice and invoices paid only in part
+ * or overpaid are reported back.
+ * <p>
+ * Credits are only summed within one statement and are not stored, so an invoice paid in
+ * instalments across several statements is reported as partial each time and never settled
+ * here; it has to be marked paid through the invoice's payment endpoint instead.
+ */
+@Service
+public class StatementReconciliationService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StatementReconciliationService.class);
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private static final String INVOICE_NUMBER_COLUMN = "invoice_number";
+    private static final String AMOUNT_COLUMN = "amount";
+    private static final String VALUE_DATE_COLUMN = "value_date";
+    
+    private static final Pattern GROUPED_AMOUNT = Pattern.compile("^\\d{1,3}(,\\d{3})*(\\.\\d+)?$");
+    
+    private static final String OPEN_INVOICES =
+            "SELECT id, invoice_number, total_amount FROM invoices WHERE payment_status IN ('PENDING', 'OVERDUE')";
+    
+    // Skips invoices paid or cancelled since the index was built
+    private static final String MARK_PAID =
+            "UPDATE invoices SET payment_status = 'PAID', payment_method = ?, paid_date = ? " +
+            "WHERE id = ? AND payment_status IN ('PENDING', 'OVERDUE')";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+    
+    @Value("${parcel.invoicing.reconciliation.batch-size:1000}")
+    private int batchSize;
+    
+    @Value("${parcel.invoicing.reconciliation.report-limit:1000}")
+    private int reportLimit;
+    
+    private final LongAdder reconciliations = new LongAdder();
+    private final LongAdder statementLines = new LongAdder();
+    private final LongAdder paidInvoices = new LongAdder();
+    private volatile LocalDateTime lastReconciledAt;
+    private volatile long lastLines;
+    private volatile long lastMillis;
+    
+    /**
+     * Reads a CSV statement with a header line naming the invoice_number and amount columns and
+     * optionally a value_date column (yyyy-MM-dd, the paid date; today when missing).
+     */
+    public Map<String, Object> reconcile(InputStream statement, boolean gzip) throws IOException {
+        long started = System.nanoTime();
+        Map<String, OpenInvoice> index = loadOpenInvoices();
+        long indexMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        
+        LocalDateTime now = LocalDateTime.now();
+        Report report = new Report(reportLimit);
+        List<OpenInvoice> credited = new ArrayList<>();
+        List<OpenInvoice> settled = new ArrayList<>(batchSize);
+        
+        InputStream in = gzip ? new GZIPInputStream(statement, BUFFER_SIZE) : statement;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            int[] columns = null;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> fields = splitCsv(line);
+                if (columns == null) {
+                    columns = columns(fields);
+                    continue;
+                }
+                report.lines++;
+                
+                String invoiceNumber = field(fields, columns[0]);
+                long amountCents;
+                LocalDateTime paidDate;
+                try {
+                    amountCents = toCents(field(fields, columns[1]));
+                    String valueDate = field(fields, columns[2]);
+                    paidDate = valueDate.isEmpty() ? now : LocalDate.parse(valueDate).atStartOfDay();
+                } catch (NumberFormatException | ArithmeticException | DateTimeParseException e) {
+                    report.rejected(lineNumber, invoiceNumber, "Unreadable amount or value date");
+                    continue;
+                }
+                if (invoiceNumber.isEmpty() || amountCents <= 0) {
+                    report.rejected(lineNumber, invoiceNumber, "Not a credit to an invoice");
+                    continue;
+                }
+                
+                OpenInvoice invoice = index.get(invoiceNumber);
+                if (invoice == null) {
+                    report.unmatched(lineNumber, invoiceNumber, amountCents);
+                    continue;
+                }
+                report.matchedLines++;
+                if (invoice.receivedCents == 0) {
+                    credited.add(invoice);
+                }
+                boolean wasSettled = invoice.receivedCents >= invoice.totalCents;
+                invoice.receivedCents += amountCents;
+                if (!wasSettled && invoice.receivedCents >= invoice.totalCents) {
+                    invoice.paidDate = paidDate;
+                    settled.add(invoice);
+                    if (settled.size() >= batchSize) {
+                        markPaid(settled, report);
+                        settled.clear();
+                    }
+                }
+            }
+            if (columns == null) {
+                throw new RuntimeException("Statement has no header line");
+            }
+        }
+        if (!settled.isEmpty()) {
+            markPaid(settled, report);
+        }
+        
+        for (OpenInvoice invoice : credited) {
+            if (invoice.receivedCents < invoice.totalCents) {
+                report.partial(invoice);
+            } else if (invoice.receivedCents > invoice.totalCents) {
+                report.overpaid(invoice);
+            }
+        }
+        
+        reconciliations.increment();
+        statementLines.add(report.lines);
+        paidInvoices.add(report.paid);
+        lastReconciledAt = LocalDateTime.now();
+        lastLines = report.lines;
+        lastMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        
+        Map<String, Object> result = report.toMap();
+        result.put("openInvoices", index.size());
+        result.put("indexMillis", indexMillis);
+        result.put("millis", lastMillis);
+        logger.info("Reconciled {} statement lines in {} ms: {} invoices paid, {} unmatched lines, {} partial payments",
+                report.lines, lastMillis, report.paid, report.unmatchedCount, report.partialCount);
+        return result;
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("reconciliations", reconciliations.sum());
+        stats.put("statementLines", statementLines.sum());
+        stats.put("paidInvoices", paidInvoices.sum());
+        stats.put("lastReconciledAt", lastReconciledAt);
+        stats.put("lastLines", lastLines);
+        stats.put("lastMillis", lastMillis);
+        return stats;
+    }
+    
+    private Map<String, OpenInvoice> loadOpenInvoices() {
+        Map<String, OpenInvoice> index = new HashMap<>();
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(Integer.MIN_VALUE);
+        streaming.query(OPEN_INVOICES, rs -> {
+            OpenInvoice invoice = new OpenInvoice(rs.getLong("id"), rs.getString("invoice_number"),
+                    toCents(rs.getBigDecimal("total_amount")));
+            index.put(invoice.invoiceNumber, invoice);
+        });
+        return index;
+    }
+    
+    private void markPaid(List<OpenInvoice> settled, Report report) {
+        // In id order, so concurrent payment updates lock the same rows in the same order
+        List<OpenInvoice> batch = new ArrayList<>(settled);
+        batch.sort(Comparator.comparingLong(invoice -> invoice.id));
+        List<Object[]> updates = new ArrayList<>(batch.size());
+        for (OpenInvoice invoice : batch) {
+            updates.add(new Object[]{Invoice.PaymentMethod.BANK_TRANSFER.name(), Timestamp.valueOf(invoice.paidDate), invoice.id});
+        }
+        
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            int[] counts = jdbcTemplate.batchUpdate(MARK_PAID, updates);
+            List<Invoice> paid = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                OpenInvoice invoice = batch.get(i);
+                if (counts[i] == 0) {
+                    report.alreadySettled(invoice);
+                    continue;
+                }
+                Invoice rollup = new Invoice();
+                rollup.setPaidDate(invoice.paidDate);
+                rollup.setPaymentMethod(Invoice.PaymentMethod.BANK_TRANSFER);
+                rollup.setTotalAmount(BigDecimal.valueOf(invoice.totalCents, 2));
+                paid.add(rollup);
+            }
+            revenueRollupService.recordPaid(paid);
+            report.paid += paid.size();
+        });
+    }
+    
+    // Positions of the invoice number, amount and value date columns; -1 for a missing value date
+    private static int[] columns(List<String> header) {
+        int[] columns = {-1, -1, -1};
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).toLowerCase(Locale.ROOT);
+            if (name.equals(INVOICE_NUMBER_COLUMN)) {
+                columns[0] = i;
+            } else if (name.equals(AMOUNT_COLUMN)) {
+                columns[1] = i;
+            } else if (name.equals(VALUE_DATE_COLUMN)) {
+                columns[2] = i;
+            }
+        }
+        if (columns[0] < 0 || columns[1] < 0) {
+            throw new RuntimeException("Statement header must name the " + INVOICE_NUMBER_COLUMN + " and "
+                    + AMOUNT_COLUMN + " columns");
+        }
+        return columns;
+    }
+    
+    private static String field(List<String> fields, int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column) : "";
+    }
+    
+    /**
+     * Splits one CSV line on commas outside double quotes; a doubled quote inside quotes is a
+     * literal quote. Fields are trimmed.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+    
+    // Commas are only read as thousands separators, so "1,234.50" reads as 1234.50; any other
+    // comma, such as the decimal comma in "12,50", makes the amount unreadable
+    static long toCents(String amount) {
+        if (amount.indexOf(',') >= 0) {
+            if (!GROUPED_AMOUNT.matcher(amount).matches()) {
+                throw new NumberFormatException("Ambiguous amount: " + amount);
+            }
+            amount = amount.replace(",", "");
+        }
+        return toCents(new BigDecimal(amount));
+    }
+    
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+    
+    private static String amount(long cents) {
+        return BigDecimal.valueOf(cents, 2).toPlainString();
+    }
+    
+    private static class OpenInvoice {
+        
+        private final long id;
+        private final String invoiceNumber;
+        private final long totalCents;
+        private long receivedCents;
+        private LocalDateTime paidDate;
+        
+        OpenInvoice(long id, String invoiceNumber, long totalCents) {
+            this.id = id;
+            this.invoiceNumber = invoiceNumber;
+            this.totalCents = totalCents;
+        }
+    }
+    
+    // Counts everything, keeps the first limit entries of every list
+    private static class Report {
+        
+        private final int limit;
+        private long lines;
+        private long matchedLines;
+        private long paid;
+        private long rejectedCount;
+        private long unmatchedCount;
+        private long partialCount;
+        private long overpaidCount;
+        private long alreadySettledCount;
+        private final List<Map<String, Object>> rejected = new ArrayList<>();
+        private final List<Map<String, Object>> unmatched = new ArrayList<>();
+        private final List<Map<String, Object>> partial = new ArrayList<>();
+        private final List<Map<String, Object>> overpaid = new ArrayList<>();
+        private final List<Map<String, Object>> alreadySettled = new ArrayList<>();
+        
+        Report(int limit) {
+            this.limit = limit;
+        }
+        
+        void rejected(long lineNumber, String invoiceNumber, String reason) {
+            rejectedCount++;
+            if (rejected.size() < limit) {
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("line", lineNumber);
+                entry.put("invoiceNumber", invoiceNumber);
+                entry.put("reason", reason);
+                rejected.add(entry);
+            }
+        }
+        
+        void unmatched(long lineNumber, String invoiceNumber, long amountCents) {
+            unmatchedCount++;
+            if (unmatched.size() < limit) {
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("line", lineNumber);
+                entry.put("invoiceNumber", invoiceNumber);
+                entry.put("amount", amount(amountCents));
+                unmatched.add(entry);
+            }
+        }
+        
+        void partial(OpenInvoice invoice) {
+            partialCount++;
+            add(partial, invoice);
+        }
+        
+        void overpaid(OpenInvoice invoice) {
+            overpaidCount++;
+            add(overpaid, invoice);
+        }
+        
+        void alreadySettled(OpenInvoice invoice) {
+            alreadySettledCount++;
+            add(alreadySettled, invoice);
+        }
+        
+        private void add(List<Map<String, Object>> list, OpenInvoice invoice) {
+            if (list.size() < limit) {
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("invoiceId", invoice.id);
+                entry.put("invoiceNumber", invoice.invoiceNumber);
+                entry.put("amountDue", amount(invoice.totalCents));
+                entry.put("amountReceived", amount(invoice.receivedCents));
+                list.add(entry);
+            }
+        }
+        
+        Map<String, Object> toMap() {
+            Map<String, Object> result = new HashMap<>();
+            result.put("lines", lines);
+            result.put("matchedLines", matchedLines);
+            result.put("paidInvoices", paid);
+            result.put("rejectedLines", rejectedCount);
+            result.put("unmatchedLines", unmatchedCount);
+            result.put("partialPayments", partialCount);
+            result.put("overpayments", overpaidCount);
+            result.put("alreadySettledInvoices", alreadySettledCount);
+            result.put("rejected", rejected);
+            result.put("unmatched", unmatched);
+            result.put("partial", partial);
+            result.put("overpaid", overpaid);
+            result.put("alreadySettled", alreadySettled);
+            return result;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,142 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.entity.Location;
+import com.parcelmanagement.pricing.TaxTable;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Taxes invoices from the tax_rules table by the jurisdiction of the parcel's delivery location.
+ * The rules are compiled into a TaxTable that is swapped in atomically on reload, so invoicing
+ * never blocks and never sees a half-loaded table. Locations no rule covers are taxed at the
+ * original flat rate.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class TaxService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TaxService.class);
+    
+    private static final String ACTIVE_TAX_RULES =
+            "SELECT country, state, zip_prefix, rate, threshold_amount, exempt FROM tax_rules WHERE active = TRUE";
+    
+    private static final String TAX_RULE_VERSION =
+            "SELECT CONCAT(COUNT(*), '|', COALESCE(MAX(updated_at), '')) FROM tax_rules";
+    
+    // Original flat tax: 10% of the base amount
+    private static final long FALLBACK_RATE_PPM = 100_000;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private final AtomicReference<LoadedTable> current = new AtomicReference<>(new LoadedTable(TaxTable.EMPTY, null, 0, 0, null));
+    
+    public BigDecimal taxOn(BigDecimal baseAmount, Location deliveryLocation) {
+        return taxOn(baseAmount, deliveryLocation.getCountry(), deliveryLocation.getState(), deliveryLocation.getZipCode());
+    }
+    
+    public BigDecimal taxOn(BigDecimal baseAmount, String country, String state, String zipCode) {
+        return BigDecimal.valueOf(taxCents(toCents(baseAmount), country, state, zipCode), 2);
+    }
+    
+    public long taxCents(long baseCents, String country, String state, String zipCode) {
+        long cents = current.get().table.taxCents(country, state, zipCode, baseCents);
+        return cents != TaxTable.NO_RULE ? cents : (baseCents * FALLBACK_RATE_PPM + TaxTable.MAX_RATE_PPM / 2) / TaxTable.MAX_RATE_PPM;
+    }
+    
+    // Loaded before the application serves anything, so no invoice is taxed at the fallback rate by accident;
+    // the entity manager factory has created the table by then
+    @PostConstruct
+    void load() {
+        reload();
+    }
+    
+    @Scheduled(fixedDelayString = "${parcel.tax.reload-interval-ms:60000}",
+               initialDelayString = "${parcel.tax.reload-interval-ms:60000}")
+    public void reloadIfChanged() {
+        try {
+            String version = jdbcTemplate.queryForObject(TAX_RULE_VERSION, String.class);
+            if (!Objects.equals(version, current.get().version)) {
+                reload();
+            }
+        } catch (Exception e) {
+            // Keep taxing from the table we have
+            logger.warn("Tax rule reload failed: {}", e.getMessage());
+        }
+    }
+    
+    public synchronized Map<String, Object> reload() {
+        long started = System.nanoTime();
+        String version = jdbcTemplate.queryForObject(TAX_RULE_VERSION, String.class);
+        
+        TaxTable.Builder builder = new TaxTable.Builder();
+        int[] counts = new int[2]; // loaded, rejected
+        jdbcTemplate.query(ACTIVE_TAX_RULES, rs -> {
+            boolean exempt = rs.getBoolean("exempt");
+            BigDecimal threshold = rs.getBigDecimal("threshold_amount");
+            boolean added = builder.add(
+                    rs.getString("country"),
+                    rs.getString("state"),
+                    rs.getString("zip_prefix"),
+                    exempt ? 0 : toRatePpm(rs.getBigDecimal("rate")),
+                    threshold != null ? toCents(threshold) : 0);
+            counts[added ? 0 : 1]++;
+        });
+        TaxTable table = builder.build();
+        
+        current.set(new LoadedTable(table, version, counts[0], counts[1], LocalDateTime.now()));
+        logger.info("Loaded {} tax rules for {} jurisdictions in {} ms ({} rejected)",
+                counts[0], table.jurisdictions(), (System.nanoTime() - started) / 1_000_000, counts[1]);
+        return stats();
+    }
+    
+    public Map<String, Object> stats() {
+        LoadedTable loaded = current.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("taxRules", loaded.taxRules);
+        stats.put("rejectedTaxRules", loaded.rejected);
+        stats.put("jurisdictions", loaded.table.jurisdictions());
+        stats.put("loadedAt", loaded.loadedAt);
+        return stats;
+    }
+    
+    // Percent to parts per million; -1 (rejected by the table) when missing
+    private static long toRatePpm(BigDecimal percent) {
+        return percent == null ? -1 : percent.movePointRight(4).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+    
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+    
+    private static class LoadedTable {
+        
+        private final TaxTable table;
+        private final String version;
+        private final int taxRules;
+        private final int rejected;
+        private final LocalDateTime loadedAt;
+        
+        LoadedTable(TaxTable table, String version, int taxRules, int rejected, LocalDateTime loadedAt) {
+            this.table = table;
+            this.version = version;
+            this.taxRules = taxRules;
+            this.rejected = rejected;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,329 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.dto.TrackingResponseDto;
+import com.parcelmanagement.entity.Parcel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the tracking table small by moving the history of settled parcels into monthly archive
+ * tables. Once a parcel is delivered or cancelled and its last event is older than the configured
+ * age, all of its tracking rows move together into tracking_archive_yyyyMM of that last event's
+ * month, and tracking_archive_parcels records where they went. Archive tables are compressed and
+ * indexed by parcel like the hot table; history reads merge both tiers.
+ */
+@Service
+public class TrackingArchiveService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TrackingArchiveService.class);
+    
+    private static final String TABLE_PREFIX = "tracking_archive_";
+    
+    private static final String CREATE_ARCHIVE_TABLE =
+            "CREATE TABLE IF NOT EXISTS %s (" +
+            "id BIGINT NOT NULL PRIMARY KEY, " +
+            "parcel_id BIGINT NOT NULL, " +
+            "status VARCHAR(32) NOT NULL, " +
+            "location VARCHAR(255) NOT NULL, " +
+            "description VARCHAR(255), " +
+            "timestamp DATETIME(6) NOT NULL, " +
+            "updated_by BIGINT, " +
+            "KEY idx_%s_parcel_timestamp (parcel_id, timestamp, id), " +
+            "KEY idx_%s_timestamp (timestamp, id)" +
+            ") ROW_FORMAT=COMPRESSED";
+    
+    // Settled parcels that still have rows in the hot table, in parcel id order for keyset paging
+    private static final String CANDIDATES =
+            "SELECT h.parcel_id, h.event_time, a.archive_month FROM parcel_tracking_head h " +
+            "JOIN parcels p ON p.id = h.parcel_id " +
+            "LEFT JOIN tracking_archive_parcels a ON a.parcel_id = h.parcel_id " +
+            "WHERE h.parcel_id > ? AND h.event_time < ? AND p.status IN ('DELIVERED', 'CANCELLED') " +
+            "AND EXISTS (SELECT 1 FROM tracking t WHERE t.parcel_id = h.parcel_id) " +
+            "ORDER BY h.parcel_id LIMIT ?";
+    
+    // Candidates are read without locks, so whether they are still settled is checked again under the lock
+    private static final String LOCK_PARCELS =
+            "SELECT id FROM parcels WHERE id IN (%s) AND status IN ('DELIVERED', 'CANCELLED') ORDER BY id FOR UPDATE";
+    
+    private static final String STILL_QUIET =
+            "SELECT parcel_id FROM parcel_tracking_head WHERE parcel_id IN (%s) AND event_time < ? FOR SHARE";
+    
+    // Delivery samples for the ETA model survive archiving on the parcel itself
+    private static final String KEEP_DELIVERY_DATE =
+            "UPDATE parcels p SET p.actual_delivery_date = (" +
+            "SELECT MIN(t.timestamp) FROM tracking t WHERE t.parcel_id = p.id AND t.status = 'DELIVERED') " +
+            "WHERE p.id IN (%s) AND p.status = 'DELIVERED' AND p.actual_delivery_date IS NULL";
+    
+    private static final String COPY_ROWS =
+            "INSERT INTO %s (id, parcel_id, status, location, description, timestamp, updated_by) " +
+            "SELECT id, parcel_id, status, location, description, timestamp, updated_by FROM tracking " +
+            "WHERE parcel_id IN (%s)";
+    
+    private static final String DELETE_ROWS =
+            "DELETE FROM tracking WHERE parcel_id IN (%s)";
+    
+    private static final String RECORD_LOCATION =
+            "INSERT INTO tracking_archive_parcels (parcel_id, archive_month, archived_at) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE archived_at = VALUES(archived_at)";
+    
+    private static final String ARCHIVED_ROWS =
+            "SELECT a.parcel_id, a.id, a.status, a.location, a.description, a.timestamp, " +
+            "CASE WHEN u.id IS NULL THEN 'System' ELSE CONCAT(u.first_name, ' ', u.last_name) END AS updated_by_name " +
+            "FROM %s a LEFT JOIN users u ON u.id = a.updated_by " +
+            "WHERE a.parcel_id IN (%s) ORDER BY a.parcel_id, a.timestamp DESC, a.id DESC";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${parcel.tracking.archive.min-age-days:90}")
+    private int minAgeDays;
+    
+    @Value("${parcel.tracking.archive.chunk-size:500}")
+    private int chunkSize;
+    
+    private final Set<Integer> knownTables = ConcurrentHashMap.newKeySet();
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    private final LongAdder archivedParcels = new LongAdder();
+    private final LongAdder archivedRows = new LongAdder();
+    private volatile LocalDateTime lastRunAt;
+    private volatile long lastRunMillis;
+    
+    @Scheduled(fixedDelayString = "${parcel.tracking.archive.interval-ms:3600000}",
+               initialDelayString = "${parcel.tracking.archive.interval-ms:3600000}")
+    public void scheduledArchive() {
+        if (!running.get()) {
+            archive();
+        }
+    }
+    
+    /**
+     * Moves the tracking rows of every archivable parcel in chunks, one transaction per chunk.
+     */
+    public Map<String, Object> archive() {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Tracking archiving is already running");
+        }
+        
+        try {
+            long started = System.nanoTime();
+            Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(minAgeDays));
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            long[] totals = new long[2];
+            
+            long afterParcelId = 0;
+            while (true) {
+                // parcel id -> archive month; a parcel archived before keeps its month
+                Map<Long, Integer> chunk = new LinkedHashMap<>();
+                jdbcTemplate.query(CANDIDATES, rs -> {
+                    int month = rs.getInt("archive_month");
+                    if (rs.wasNull()) {
+                        month = monthOf(rs.getTimestamp("event_time").toLocalDateTime());
+                    }
+                    chunk.put(rs.getLong("parcel_id"), month);
+                }, afterParcelId, cutoff, chunkSize);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                
+                // DDL commits implicitly in MySQL, so tables are created outside the move transaction
+                chunk.values().forEach(this::ensureTable);
+                transactionTemplate.executeWithoutResult(status -> moveChunk(chunk, cutoff, totals));
+                afterParcelId = Collections.max(chunk.keySet());
+            }
+            
+            archivedParcels.add(totals[0]);
+            archivedRows.add(totals[1]);
+            lastRunAt = LocalDateTime.now();
+            lastRunMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            
+            Map<String, Object> result = new HashMap<>();
+            result.put("parcels", totals[0]);
+            result.put("rows", totals[1]);
+            result.put("millis", lastRunMillis);
+            logger.info("Tracking archiving finished: {}", result);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    /**
+     * Archived history of a parcel, newest first; empty when nothing of it was archived.
+     */
+    public List<TrackingResponseDto> findHistory(Long parcelId) {
+        List<Integer> months = jdbcTemplate.queryForList(
+                "SELECT archive_month FROM tracking_archive_parcels WHERE parcel_id = ?", Integer.class, parcelId);
+        if (months.isEmpty()) {
+            return List.of();
+        }
+        return readArchive(months.get(0), List.of(parcelId)).getOrDefault(parcelId, List.of());
+    }
+    
+    /**
+     * Archived histories of all parcels the user sends or receives, keyed by tracking number.
+     */
+    public Map<String, List<TrackingResponseDto>> findHistoriesByUserId(Long userId) {
+        Map<Long, String> trackingNumbers = new HashMap<>();
+        Map<Integer, List<Long>> parcelsByMonth = new TreeMap<>();
+        jdbcTemplate.query("SELECT a.parcel_id, a.archive_month, p.tracking_number FROM tracking_archive_parcels a " +
+                "JOIN parcels p ON p.id = a.parcel_id WHERE p.sender_id = ? OR p.receiver_id = ?", rs -> {
+            long parcelId = rs.getLong("parcel_id");
+            trackingNumbers.put(parcelId, rs.getString("tracking_number"));
+            parcelsByMonth.computeIfAbsent(rs.getInt("archive_month"), month -> new ArrayList<>()).add(parcelId);
+        }, userId, userId);
+        
+        Map<String, List<TrackingResponseDto>> histories = new HashMap<>();
+        parcelsByMonth.forEach((month, parcelIds) -> readArchive(month, parcelIds)
+                .forEach((parcelId, history) -> histories.put(trackingNumbers.get(parcelId), history)));
+        return histories;
+    }
+    
+    /**
+     * Archive tables that can hold events at or after the given time. Rows move to the table of
+     * their parcel's last event, so no earlier month can contain them.
+     */
+    public List<String> tablesSince(LocalDateTime from) {
+        List<Integer> months = jdbcTemplate.queryForList("SELECT DISTINCT archive_month FROM tracking_archive_parcels " +
+                "WHERE archive_month >= ? ORDER BY archive_month", Integer.class, monthOf(from));
+        List<String> tables = new ArrayList<>(months.size());
+        for (Integer month : months) {
+            tables.add(tableName(month));
+        }
+        return tables;
+    }
+    
+    /**
+     * Merges hot and archived history, newest first.
+     */
+    public static List<TrackingResponseDto> merge(List<TrackingResponseDto> hot, List<TrackingResponseDto> archived) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        List<TrackingResponseDto> merged = new ArrayList<>(hot.size() + archived.size());
+        merged.addAll(hot);
+        merged.addAll(archived);
+        merged.sort(Comparator.comparing(TrackingResponseDto::getTimestamp)
+                .thenComparing(TrackingResponseDto::getId).reversed());
+        return merged;
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("archivedParcels", archivedParcels.sum());
+        stats.put("archivedRows", archivedRows.sum());
+        stats.put("minAgeDays", minAgeDays);
+        stats.put("running", running.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunMillis", lastRunMillis);
+        return stats;
+    }
+    
+    private void moveChunk(Map<Long, Integer> candidates, Timestamp cutoff, long[] totals) {
+        // Row locks on the parcels keep tracking writers out until the rows have moved; a parcel
+        // that was reopened or tracked again since it was selected stays in the hot table
+        List<Long> candidateIds = new ArrayList<>(candidates.keySet());
+        String candidatePlaceholders = placeholders(candidateIds.size());
+        Set<Long> lockedIds = new HashSet<>(jdbcTemplate.queryForList(
+                String.format(LOCK_PARCELS, candidatePlaceholders), Long.class, candidateIds.toArray()));
+        if (lockedIds.isEmpty()) {
+            return;
+        }
+        List<Object> quietArgs = new ArrayList<>(lockedIds);
+        quietArgs.add(cutoff);
+        List<Long> quietIds = jdbcTemplate.queryForList(
+                String.format(STILL_QUIET, placeholders(lockedIds.size())), Long.class, quietArgs.toArray());
+        
+        Map<Long, Integer> chunk = new LinkedHashMap<>();
+        for (Long parcelId : quietIds) {
+            chunk.put(parcelId, candidates.get(parcelId));
+        }
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Long> parcelIds = new ArrayList<>(chunk.keySet());
+        Object[] idArgs = parcelIds.toArray();
+        String ids = placeholders(parcelIds.size());
+        
+        jdbcTemplate.update(String.format(KEEP_DELIVERY_DATE, ids), idArgs);
+        
+        Map<Integer, List<Long>> parcelsByMonth = new TreeMap<>();
+        chunk.forEach((parcelId, month) -> parcelsByMonth.computeIfAbsent(month, key -> new ArrayList<>()).add(parcelId));
+        for (Map.Entry<Integer, List<Long>> entry : parcelsByMonth.entrySet()) {
+            totals[1] += jdbcTemplate.update(String.format(COPY_ROWS, tableName(entry.getKey()),
+                    placeholders(entry.getValue().size())), entry.getValue().toArray());
+        }
+        
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> locations = new ArrayList<>(chunk.size());
+        chunk.forEach((parcelId, month) -> locations.add(new Object[]{parcelId, month, now}));
+        jdbcTemplate.batchUpdate(RECORD_LOCATION, locations);
+        
+        jdbcTemplate.update(String.format(DELETE_ROWS, ids), idArgs);
+        totals[0] += chunk.size();
+    }
+    
+    private Map<Long, List<TrackingResponseDto>> readArchive(int month, Collection<Long> parcelIds) {
+        Map<Long, List<TrackingResponseDto>> histories = new HashMap<>();
+        jdbcTemplate.query(String.format(ARCHIVED_ROWS, tableName(month), placeholders(parcelIds.size())), rs -> {
+            histories.computeIfAbsent(rs.getLong("parcel_id"), key -> new ArrayList<>()).add(new TrackingResponseDto(
+                    rs.getLong("id"),
+                    Parcel.ParcelStatus.valueOf(rs.getString("status")),
+                    rs.getString("location"),
+                    rs.getString("description"),
+                    rs.getTimestamp("timestamp").toLocalDateTime(),
+                    rs.getString("updated_by_name")));
+        }, parcelIds.toArray());
+        return histories;
+    }
+    
+    private void ensureTable(int month) {
+        if (knownTables.contains(month)) {
+            return;
+        }
+        String table = tableName(month);
+        jdbcTemplate.execute(String.format(CREATE_ARCHIVE_TABLE, table, table, table));
+        knownTables.add(month);
+    }
+    
+    private static int monthOf(LocalDateTime time) {
+        return time.getYear() * 100 + time.getMonthValue();
+    }
+    
+    private static String tableName(int month) {
+        return TABLE_PREFIX + month;
+    }
+    
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
\ No newline at end of file
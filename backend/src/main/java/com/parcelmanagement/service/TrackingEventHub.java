@@ -0,0 +1,271 @@
+package com.parcelmanagement.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parcelmanagement.dto.TrackingEventDto;
+import com.parcelmanagement.util.AfterCommit;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process fan-out of tracking updates to Server-Sent Event subscribers, either of one
+ * tracking number or of all parcels a user sends or receives. Open streams are async requests
+ * and hold no thread while idle. Publishers only enqueue: every subscriber has a small bounded
+ * queue drained by a shared dispatcher pool, and a client whose queue overflows is disconnected.
+ * Servlet writes block, so a client that stops reading holds the dispatcher thread draining it;
+ * the pool grows to dispatch-threads so other subscribers keep being served, and heartbeats
+ * evict any subscriber whose send has been stuck longer than the write timeout. Heartbeats also
+ * keep proxies from closing idle streams and detect dead clients.
+ */
+@Service
+public class TrackingEventHub {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TrackingEventHub.class);
+    
+    private static final String EVENT_NAME = "tracking";
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${parcel.tracking.stream.max-subscribers:25000}")
+    private int maxSubscribers;
+    
+    @Value("${parcel.tracking.stream.timeout-ms:1800000}")
+    private long timeoutMillis;
+    
+    @Value("${parcel.tracking.stream.queue-size:32}")
+    private int queueSize;
+    
+    @Value("${parcel.tracking.stream.dispatch-threads:64}")
+    private int dispatchThreads;
+    
+    @Value("${parcel.tracking.stream.write-timeout-ms:10000}")
+    private long writeTimeoutMillis;
+    
+    private final Map<String, Set<Subscriber>> byTrackingNumber = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscriber>> byUser = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    
+    private ExecutorService dispatcher;
+    
+    @PostConstruct
+    void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Threads are only kept while there is something to send
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 60, TimeUnit.SECONDS, 
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "tracking-sse-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        dispatcher = pool;
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+    }
+    
+    public SseEmitter subscribeToParcel(String trackingNumber) {
+        return subscribe(byTrackingNumber, trackingNumber);
+    }
+    
+    public SseEmitter subscribeToUser(Long userId) {
+        return subscribe(byUser, userId);
+    }
+    
+    /**
+     * Sends the event to the parcel's and both parties' subscribers once the current transaction commits.
+     */
+    public void publish(TrackingEventDto event, Long senderId, Long receiverId) {
+        AfterCommit.run(() -> {
+            String data;
+            try {
+                data = objectMapper.writeValueAsString(event);
+            } catch (JsonProcessingException e) {
+                logger.warn("Could not serialize tracking event for {}: {}", event.getTrackingNumber(), e.getMessage());
+                return;
+            }
+            published.increment();
+            
+            Object[] message = {event.getTrackingId(), data};
+            enqueueAll(byTrackingNumber.get(event.getTrackingNumber()), message);
+            enqueueAll(byUser.get(senderId), message);
+            if (!senderId.equals(receiverId)) {
+                enqueueAll(byUser.get(receiverId), message);
+            }
+        });
+    }
+    
+    @Scheduled(fixedDelayString = "${parcel.tracking.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        long stuckSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+        for (Set<Subscriber> group : byTrackingNumber.values()) {
+            heartbeat(group, stuckSince);
+        }
+        for (Set<Subscriber> group : byUser.values()) {
+            heartbeat(group, stuckSince);
+        }
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("subscribers", subscribers.get());
+        stats.put("maxSubscribers", maxSubscribers);
+        stats.put("parcelsWatched", byTrackingNumber.size());
+        stats.put("usersWatching", byUser.size());
+        stats.put("published", published.sum());
+        stats.put("delivered", delivered.sum());
+        stats.put("evicted", evicted.sum());
+        return stats;
+    }
+    
+    private <K> SseEmitter subscribe(Map<K, Set<Subscriber>> index, K key) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new RuntimeException("Too many open tracking streams, try again later");
+        }
+        
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, queueSize);
+        
+        Runnable remove = () -> {
+            if (subscriber.closed.compareAndSet(false, true)) {
+                subscribers.decrementAndGet();
+                index.computeIfPresent(key, (k, group) -> {
+                    group.remove(subscriber);
+                    return group.isEmpty() ? null : group;
+                });
+            }
+        };
+        subscriber.onClose = remove;
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        return emitter;
+    }
+    
+    private void heartbeat(Set<Subscriber> group, long stuckSince) {
+        for (Subscriber subscriber : group) {
+            long sendingSince = subscriber.sendingSince;
+            if (sendingSince != 0 && sendingSince - stuckSince < 0) {
+                evicted.increment();
+                subscriber.abandon();
+                continue;
+            }
+            enqueue(subscriber, Subscriber.HEARTBEAT);
+        }
+    }
+    
+    private void enqueueAll(Set<Subscriber> group, Object message) {
+        if (group == null) {
+            return;
+        }
+        for (Subscriber subscriber : group) {
+            enqueue(subscriber, message);
+        }
+    }
+    
+    private void enqueue(Subscriber subscriber, Object message) {
+        if (!subscriber.pending.offer(message)) {
+            // The client stopped reading; dropping it is cheaper than buffering for it
+            evicted.increment();
+            subscriber.abandon();
+            return;
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+    
+    private void drain(Subscriber subscriber) {
+        do {
+            Object message;
+            while (!subscriber.closed.get() && (message = subscriber.pending.poll()) != null) {
+                send(subscriber, message);
+            }
+            if (subscriber.closed.get()) {
+                subscriber.pending.clear();
+                // Completes a subscriber that was abandoned while a send was in progress
+                subscriber.emitter.complete();
+            }
+            subscriber.draining.set(false);
+            // An event enqueued after the last poll but before the flag was cleared is picked up here
+        } while (!subscriber.closed.get() && !subscriber.pending.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+    
+    private void send(Subscriber subscriber, Object message) {
+        subscriber.sendingSince = System.nanoTime();
+        try {
+            if (message == Subscriber.HEARTBEAT) {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+            } else {
+                Object[] event = (Object[]) message;
+                subscriber.emitter.send(SseEmitter.event().name(EVENT_NAME).id(String.valueOf(event[0])).data(event[1]));
+                delivered.increment();
+            }
+        } catch (Exception e) {
+            subscriber.close();
+        } finally {
+            subscriber.sendingSince = 0;
+        }
+    }
+    
+    private static final class Subscriber {
+        
+        private static final Object HEARTBEAT = new Object();
+        
+        private final SseEmitter emitter;
+        private final Queue<Object> pending;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private Runnable onClose;
+        // System.nanoTime() when the send in progress started, 0 when none is
+        private volatile long sendingSince;
+        
+        Subscriber(SseEmitter emitter, int queueSize) {
+            this.emitter = emitter;
+            this.pending = new ArrayBlockingQueue<>(queueSize);
+        }
+        
+        void close() {
+            if (!closed.get()) {
+                onClose.run();
+                emitter.complete();
+            }
+        }
+        
+        // Stops delivery without touching the emitter, whose send may be stuck; the drain completes it
+        void abandon() {
+            onClose.run();
+        }
+    }
+}
\ No newline at end of file
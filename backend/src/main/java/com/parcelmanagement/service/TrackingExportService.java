@@ -0,0 +1,228 @@
+package com.parcelmanagement.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Dumps tracking events of a time range as CSV or NDJSON. Rows come from a forward-only
+ * streaming cursor and go straight to the output through fixed-size buffers, so memory use does
+ * not depend on the size of the range. Hot rows come first in time order, followed by rows of
+ * the monthly archive tables that can hold events of the range.
+ */
+@Service
+public class TrackingExportService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TrackingExportService.class);
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private static final int FLUSH_INTERVAL = 1000;
+    
+    private static final String CSV_HEADER = "id,tracking_number,status,location,description,timestamp,updated_by\n";
+    
+    private static final String EVENTS =
+            "SELECT t.id, p.tracking_number, t.status, t.location, t.description, t.timestamp, " +
+            "CASE WHEN u.id IS NULL THEN 'System' ELSE CONCAT(u.first_name, ' ', u.last_name) END AS updated_by_name " +
+            "FROM %s t JOIN parcels p ON p.id = t.parcel_id LEFT JOIN users u ON u.id = t.updated_by " +
+            "WHERE t.timestamp >= ? AND t.timestamp < ? ORDER BY t.timestamp, t.id";
+    
+    public enum Format {
+        CSV, NDJSON
+    }
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private TrackingArchiveService trackingArchive;
+    
+    private final LongAdder exports = new LongAdder();
+    private final LongAdder exportedRows = new LongAdder();
+    private volatile long lastRows;
+    private volatile long lastMillis;
+    
+    /**
+     * Writes events with from <= timestamp < to and returns the number of rows written.
+     */
+    public long export(LocalDateTime from, LocalDateTime to, Format format, boolean gzip, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(compressed != null ? compressed : out,
+                StandardCharsets.UTF_8), BUFFER_SIZE);
+        
+        RowWriter rows = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+        List<String> tables = new ArrayList<>();
+        tables.add("tracking");
+        tables.addAll(trackingArchive.tablesSince(from));
+        
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(Integer.MIN_VALUE);
+        long[] written = new long[1];
+        try {
+            for (String table : tables) {
+                streaming.query(String.format(EVENTS, table), rs -> {
+                    try {
+                        rows.write(rs);
+                        if (++written[0] % FLUSH_INTERVAL == 0) {
+                            rows.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, Timestamp.valueOf(from), Timestamp.valueOf(to));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        rows.flush();
+        if (compressed != null) {
+            compressed.finish();
+        }
+        out.flush();
+        
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        exports.increment();
+        exportedRows.add(written[0]);
+        lastRows = written[0];
+        lastMillis = millis;
+        logger.info("Exported {} tracking events from {} to {} as {} in {} ms ({} rows/s)",
+                written[0], from, to, format, millis, rowsPerSecond(written[0], millis));
+        return written[0];
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("exports", exports.sum());
+        stats.put("rows", exportedRows.sum());
+        stats.put("lastRows", lastRows);
+        stats.put("lastMillis", lastMillis);
+        stats.put("lastRowsPerSecond", rowsPerSecond(lastRows, lastMillis));
+        return stats;
+    }
+    
+    private static long rowsPerSecond(long rows, long millis) {
+        return millis == 0 ? rows : rows * 1000 / millis;
+    }
+    
+    private static String timestamp(ResultSet rs) throws SQLException {
+        return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(rs.getTimestamp("timestamp").toLocalDateTime());
+    }
+    
+    private interface RowWriter {
+        
+        void write(ResultSet rs) throws SQLException, IOException;
+        
+        void flush() throws IOException;
+    }
+    
+    private static final class CsvRowWriter implements RowWriter {
+        
+        private final Writer writer;
+        
+        CsvRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write(CSV_HEADER);
+        }
+        
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            writer.write(Long.toString(rs.getLong("id")));
+            writer.write(',');
+            writeField(rs.getString("tracking_number"));
+            writer.write(',');
+            writeField(rs.getString("status"));
+            writer.write(',');
+            writeField(rs.getString("location"));
+            writer.write(',');
+            writeField(rs.getString("description"));
+            writer.write(',');
+            writer.write(timestamp(rs));
+            writer.write(',');
+            writeField(rs.getString("updated_by_name"));
+            writer.write('\n');
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+        
+        // RFC 4180: quote fields holding a separator, quote or line break and double inner quotes
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+    
+    private final class NdjsonRowWriter implements RowWriter {
+        
+        private final JsonGenerator generator;
+        
+        NdjsonRowWriter(Writer writer) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Rows are separated by the newline written after each of them, not Jackson's default space
+            generator.setRootValueSeparator(null);
+        }
+        
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", rs.getLong("id"));
+            generator.writeStringField("trackingNumber", rs.getString("tracking_number"));
+            generator.writeStringField("status", rs.getString("status"));
+            generator.writeStringField("location", rs.getString("location"));
+            generator.writeStringField("description", rs.getString("description"));
+            generator.writeStringField("timestamp", timestamp(rs));
+            generator.writeStringField("updatedBy", rs.getString("updated_by_name"));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,209 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.entity.Tracking;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maintains parcel_tracking_head, the latest tracking event of every parcel. Events recorded
+ * in a transaction are collapsed to the newest per parcel and upserted in one batch just before
+ * that transaction commits, so the head commits or rolls back together with the tracking rows.
+ * An upsert never replaces a head with an older event.
+ */
+@Service
+public class TrackingHeadService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TrackingHeadService.class);
+    
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+    
+    // event_time is assigned last, so every other column still compares against the stored time
+    private static final String UPSERT =
+            "INSERT INTO parcel_tracking_head (parcel_id, tracking_number, tracking_id, status, location, description, " +
+            "updated_by, event_time, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "tracking_id = IF(VALUES(event_time) >= event_time, VALUES(tracking_id), tracking_id), " +
+            "status = IF(VALUES(event_time) >= event_time, VALUES(status), status), " +
+            "location = IF(VALUES(event_time) >= event_time, VALUES(location), location), " +
+            "description = IF(VALUES(event_time) >= event_time, VALUES(description), description), " +
+            "updated_by = IF(VALUES(event_time) >= event_time, VALUES(updated_by), updated_by), " +
+            "updated_at = IF(VALUES(event_time) >= event_time, VALUES(updated_at), updated_at), " +
+            "event_time = GREATEST(event_time, VALUES(event_time))";
+    
+    // Walks the (parcel_id, timestamp, id) index backwards, so each parcel's newest event comes first
+    private static final String LATEST_EVENTS =
+            "SELECT t.parcel_id, p.tracking_number, t.id, t.status, t.location, t.description, t.updated_by, t.timestamp " +
+            "FROM tracking t JOIN parcels p ON p.id = t.parcel_id " +
+            "ORDER BY t.parcel_id DESC, t.timestamp DESC, t.id DESC";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    
+    /**
+     * Records a new tracking event of the parcel; written when the surrounding transaction commits.
+     */
+    public void record(Long parcelId, String trackingNumber, Tracking tracking) {
+        Head head = new Head(parcelId, trackingNumber, tracking.getId(), tracking.getStatus().name(),
+                tracking.getLocation(), tracking.getDescription(),
+                tracking.getUpdatedBy() != null ? tracking.getUpdatedBy().getId() : null, tracking.getTimestamp());
+        
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(List.of(head));
+            return;
+        }
+        pendingHeads().merge(parcelId, head, (current, next) -> next.isNewerThan(current) ? next : current);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        Long heads = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM parcel_tracking_head", Long.class);
+        if (heads != null && heads == 0) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * Reconstructs every head from the tracking log in a single streamed pass. Safe to run while
+     * tracking updates continue, since upserts keep whichever event is newer.
+     */
+    public Map<String, Object> rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new RuntimeException("Tracking head rebuild is already running");
+        }
+        
+        try {
+            long started = System.nanoTime();
+            List<Head> chunk = new ArrayList<>(REBUILD_CHUNK_SIZE);
+            long[] written = new long[1];
+            long[] previousParcelId = {-1};
+            
+            JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+            streaming.setFetchSize(Integer.MIN_VALUE);
+            streaming.query(LATEST_EVENTS, rs -> {
+                long parcelId = rs.getLong("parcel_id");
+                if (parcelId == previousParcelId[0]) {
+                    return;
+                }
+                previousParcelId[0] = parcelId;
+                
+                chunk.add(new Head(parcelId, rs.getString("tracking_number"), rs.getLong("id"), rs.getString("status"),
+                        rs.getString("location"), rs.getString("description"), rs.getObject("updated_by", Long.class),
+                        rs.getTimestamp("timestamp").toLocalDateTime()));
+                if (chunk.size() == REBUILD_CHUNK_SIZE) {
+                    write(chunk);
+                    written[0] += chunk.size();
+                    chunk.clear();
+                }
+            });
+            write(chunk);
+            written[0] += chunk.size();
+            
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            logger.info("Rebuilt {} tracking heads in {} ms", written[0], millis);
+            
+            Map<String, Object> result = new HashMap<>();
+            result.put("parcels", written[0]);
+            result.put("millis", millis);
+            return result;
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+    
+    private void write(List<Head> heads) {
+        if (heads.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(heads.size());
+        for (Head head : heads) {
+            rows.add(new Object[]{head.parcelId, head.trackingNumber, head.trackingId, head.status, head.location,
+                    head.description, head.updatedBy, Timestamp.valueOf(head.eventTime), now});
+        }
+        jdbcTemplate.batchUpdate(UPSERT, rows);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<Long, Head> pendingHeads() {
+        Map<Long, Head> pending = (Map<Long, Head>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        
+        Map<Long, Head> heads = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(this, heads);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(TrackingHeadService.this);
+            }
+            
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(TrackingHeadService.this, heads);
+            }
+            
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // Parcel id order keeps concurrent transactions from locking head rows in opposite orders
+                List<Head> ordered = new ArrayList<>(heads.values());
+                ordered.sort(Comparator.comparingLong(head -> head.parcelId));
+                write(ordered);
+            }
+            
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TrackingHeadService.this);
+            }
+        });
+        return heads;
+    }
+    
+    private static final class Head {
+        
+        private final long parcelId;
+        private final String trackingNumber;
+        private final long trackingId;
+        private final String status;
+        private final String location;
+        private final String description;
+        private final Long updatedBy;
+        private final LocalDateTime eventTime;
+        
+        Head(long parcelId, String trackingNumber, long trackingId, String status, String location,
+             String description, Long updatedBy, LocalDateTime eventTime) {
+            this.parcelId = parcelId;
+            this.trackingNumber = trackingNumber;
+            this.trackingId = trackingId;
+            this.status = status;
+            this.location = location;
+            this.description = description;
+            this.updatedBy = updatedBy;
+            this.eventTime = eventTime;
+        }
+        
+        boolean isNewerThan(Head other) {
+            int byTime = eventTime.compareTo(other.eventTime);
+            return byTime > 0 || (byTime == 0 && trackingId > other.trackingId);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.parcelmanagement.service;
+
+import com.parcelmanagement.cache.LruCache;
+import com.parcelmanagement.util.AfterCommit;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of rendered public tracking responses, keyed by tracking number.
+ * Writers invalidate a tracking number after their transaction commits. Each invalidation also
+ * bumps a version for the tracking number's stripe, and a load only stores its result if that
+ * version did not move while it was reading, so a load racing a write can never cache the
+ * pre-write response.
+ */
+@Service
+public class TrackingResponseCache {
+    
+    private static final int VERSION_STRIPES = 1024;
+    
+    @Value("${parcel.tracking.cache-size:50000}")
+    private int cacheSize;
+    
+    @Value("${parcel.tracking.cache-ttl-ms:30000}")
+    private long ttlMillis;
+    
+    private LruCache<String, byte[]> responses;
+    
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    
+    @PostConstruct
+    void init() {
+        responses = new LruCache<>(cacheSize, ttlMillis);
+    }
+    
+    /**
+     * The cached response, or the loader's result; a null result (unknown tracking number) is not cached.
+     */
+    public byte[] get(String trackingNumber, Function<String, byte[]> loader) {
+        byte[] response = responses.get(trackingNumber);
+        if (response != null) {
+            return response;
+        }
+        
+        int stripe = stripeOf(trackingNumber);
+        long version = versions.get(stripe);
+        long started = System.nanoTime();
+        response = loader.apply(trackingNumber);
+        loadNanos.add(System.nanoTime() - started);
+        loads.increment();
+        
+        if (response != null && versions.get(stripe) == version) {
+            responses.put(trackingNumber, response);
+        }
+        return response;
+    }
+    
+    public void invalidate(String trackingNumber) {
+        AfterCommit.run(() -> {
+            versions.incrementAndGet(stripeOf(trackingNumber));
+            responses.invalidate(trackingNumber);
+        });
+    }
+    
+    public void clear() {
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        responses.clear();
+    }
+    
+    public Map<String, Object> stats() {
+        long loadCount = loads.sum();
+        Map<String, Object> stats = responses.stats();
+        stats.put("loads", loadCount);
+        stats.put("averageLoadMillis", loadCount == 0 ? 0.0 : loadNanos.sum() / 1_000_000.0 / loadCount);
+        return stats;
+    }
+    
+    private static int stripeOf(String trackingNumber) {
+        int hash = trackingNumber.hashCode();
+        return (hash ^ (hash >>> 16)) & (VERSION_STRIPES - 1);
+    }
+}
\ No newline at end of file
@@ -1,51 +1,279 @@
 package com.parcelmanagement.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parcelmanagement.dto.ParcelResponseDto;
+import com.parcelmanagement.dto.ParcelStatusSnapshot;
+import com.parcelmanagement.dto.ParcelTrackingSummaryDto;
+import com.parcelmanagement.dto.TrackingEventDto;
 import com.parcelmanagement.dto.TrackingResponseDto;
 import com.parcelmanagement.entity.Parcel;
 import com.parcelmanagement.entity.Tracking;
 import com.parcelmanagement.entity.User;
 import com.parcelmanagement.repository.ParcelRepository;
+import com.parcelmanagement.repository.ParcelTrackingHeadRepository;
 import com.parcelmanagement.repository.TrackingRepository;
+import com.parcelmanagement.util.AfterCommit;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class TrackingService {
     
+    private static final int TRANSITION_ATTEMPTS = 3;
+    
     @Autowired
     private TrackingRepository trackingRepository;
     
+    @PersistenceContext
+    private EntityManager entityManager;
+    
     @Autowired
     private ParcelRepository parcelRepository;
     
+    @Autowired
+    private EtaService etaService;
+    
+    @Autowired
+    private ParcelStatusCounterService statusCounters;
+    
+    @Autowired
+    private OverdueParcelDetector overdueDetector;
+    
+    @Autowired
+    private TrackingHeadService trackingHeads;
+    
+    @Autowired
+    private ParcelTrackingHeadRepository trackingHeadRepository;
+    
+    @Autowired
+    private TrackingArchiveService trackingArchive;
+    
+    @Autowired
+    private TrackingResponseCache trackingResponseCache;
+    
+    @Autowired
+    private TrackingEventHub trackingEventHub;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    /**
+     * Applies a status change and records it as a tracking event. The parcel is changed by one
+     * conditional UPDATE on its version and allowed previous statuses instead of under a row lock
+     * taken up front; when a concurrent update wins, the committed state is re-read and the
+     * transition is checked and applied again.
+     */
     public Tracking addTrackingUpdate(Long parcelId, Parcel.ParcelStatus status, String location, String description, User updatedBy) {
-        Parcel parcel = parcelRepository.findById(parcelId)
+        ParcelStatusSnapshot parcel = parcelRepository.findStatusSnapshot(parcelId)
                 .orElseThrow(() -> new RuntimeException("Parcel not found with id: " + parcelId));
         
-        // Update parcel status
-        parcel.setStatus(status);
-        parcelRepository.save(parcel);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime estimatedDeliveryDate = reestimate(parcel, status);
+        Parcel.ParcelStatus previousStatus;
+        for (int attempt = 1; ; attempt++) {
+            previousStatus = parcel.getStatus();
+            if (!ParcelStatusTransitions.isAllowed(previousStatus, status)) {
+                throw new RuntimeException("Parcel status cannot change from " + previousStatus + " to " + status);
+            }
+            
+            int updated = parcelRepository.applyStatusTransition(parcelId, parcel.getVersion(), 
+                    ParcelStatusTransitions.allowedSources(status), status, estimatedDeliveryDate, 
+                    status == Parcel.ParcelStatus.DELIVERED ? now : null, now);
+            if (updated == 1) {
+                break;
+            }
+            if (attempt == TRANSITION_ATTEMPTS) {
+                throw new RuntimeException("Parcel " + parcelId + " is being updated concurrently, please retry");
+            }
+            
+            // A plain read would see this transaction's snapshot again; the locking read sees the committed row
+            List<Object[]> current = parcelRepository.lockStatusAndVersion(parcelId);
+            if (current.isEmpty()) {
+                throw new RuntimeException("Parcel not found with id: " + parcelId);
+            }
+            parcel.setStatus(Parcel.ParcelStatus.valueOf((String) current.get(0)[0]));
+            parcel.setVersion(((Number) current.get(0)[1]).longValue());
+        }
+        if (estimatedDeliveryDate != null) {
+            parcel.setEstimatedDeliveryDate(estimatedDeliveryDate);
+        }
+        refreshIfLoaded(parcelId);
+        onStatusChange(parcel, previousStatus, status, now);
         
         // Create tracking entry
-        Tracking tracking = new Tracking(parcel, status, location, description, updatedBy);
-        return trackingRepository.save(tracking);
+        Tracking tracking = new Tracking(parcelRepository.getReferenceById(parcelId), status, location, description, updatedBy);
+        Tracking savedTracking = trackingRepository.save(tracking);
+        trackingHeads.record(parcelId, parcel.getTrackingNumber(), savedTracking);
+        
+        trackingResponseCache.invalidate(parcel.getTrackingNumber());
+        trackingEventHub.publish(new TrackingEventDto(savedTracking.getId(), parcelId, parcel.getTrackingNumber(), 
+                status, location, description, savedTracking.getTimestamp(), parcel.getEstimatedDeliveryDate()),
+                parcel.getSenderId(), parcel.getReceiverId());
+        return savedTracking;
+    }
+    
+    public Tracking recordInitialTracking(Parcel parcel, User bookedBy) {
+        // The parcel is already PENDING when it is booked, so there is nothing to reload or update
+        Tracking tracking = new Tracking(parcel, Parcel.ParcelStatus.PENDING, 
+                "Parcel Service Center", "Parcel booking confirmed", bookedBy);
+        Tracking savedTracking = trackingRepository.save(tracking);
+        trackingHeads.record(parcel.getId(), parcel.getTrackingNumber(), savedTracking);
+        return savedTracking;
+    }
+    
+    // The bulk update bypasses the persistence context; only a parcel this transaction already loaded is stale
+    private void refreshIfLoaded(Long parcelId) {
+        Parcel loaded = entityManager.getReference(Parcel.class, parcelId);
+        if (Hibernate.isInitialized(loaded)) {
+            entityManager.refresh(loaded);
+        }
+    }
+    
+    // Re-estimates from the time the parcel has already spent in transit; null keeps the current estimate
+    private LocalDateTime reestimate(ParcelStatusSnapshot parcel, Parcel.ParcelStatus status) {
+        if (status == Parcel.ParcelStatus.DELIVERED || status == Parcel.ParcelStatus.CANCELLED 
+                || status == Parcel.ParcelStatus.RETURNED) {
+            return null;
+        }
+        return etaService.estimate(parcel.getPickupCity(), parcel.getDeliveryCity(), 
+                parcel.getPriority(), parcel.getCreatedAt());
+    }
+    
+    private void onStatusChange(ParcelStatusSnapshot parcel, Parcel.ParcelStatus previousStatus, 
+                                Parcel.ParcelStatus status, LocalDateTime changedAt) {
+        statusCounters.recordTransition(previousStatus, status);
+        
+        if (status == Parcel.ParcelStatus.DELIVERED && previousStatus != Parcel.ParcelStatus.DELIVERED) {
+            AfterCommit.run(() -> etaService.recordDelivery(parcel.getPickupCity(), parcel.getDeliveryCity(), 
+                    parcel.getPriority(), parcel.getCreatedAt(), changedAt));
+        }
+        
+        if (status == Parcel.ParcelStatus.DELIVERED || status == Parcel.ParcelStatus.CANCELLED) {
+            overdueDetector.untrack(parcel.getId());
+        } else {
+            overdueDetector.track(parcel.getId(), parcel.getTrackingNumber(), parcel.getEstimatedDeliveryDate());
+        }
+    }
+    
+    /**
+     * Public tracking response (parcel plus hot and archived history, newest first) rendered as
+     * JSON, or null for an unknown tracking number. Served through TrackingResponseCache.
+     */
+    @Transactional(readOnly = true)
+    public byte[] renderPublicTracking(String trackingNumber) {
+        Optional<ParcelResponseDto> parcel = parcelRepository.findDtoByTrackingNumber(trackingNumber);
+        if (parcel.isEmpty()) {
+            return null;
+        }
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("parcel", parcel.get());
+        result.put("trackingHistory", getTrackingHistoryByParcelId(parcel.get().getId()));
+        try {
+            return objectMapper.writeValueAsBytes(result);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not render tracking for " + trackingNumber, e);
+        }
+    }
+    
+    // History reads merge the hot tracking table with rows moved to the monthly archives
+    @Transactional(readOnly = true)
+    public List<TrackingResponseDto> getTrackingHistory(String trackingNumber) {
+        return parcelRepository.findByTrackingNumber(trackingNumber)
+                .map(parcel -> getTrackingHistoryByParcelId(parcel.getId()))
+                .orElse(List.of());
+    }
+    
+    @Transactional(readOnly = true)
+    public List<TrackingResponseDto> getTrackingHistoryByParcelId(Long parcelId) {
+        return TrackingArchiveService.merge(trackingRepository.findDtosByParcelId(parcelId), 
+                trackingArchive.findHistory(parcelId));
+    }
+    
+    @Transactional(readOnly = true)
+    public List<TrackingResponseDto> getTrackingHistoryByParcel(Parcel parcel) {
+        return getTrackingHistoryByParcelId(parcel.getId());
+    }
+    
+    /**
+     * Tracking history of all the user's parcels keyed by tracking number, read in one query
+     * plus one per archive month the user's settled parcels were moved to.
+     * With latest set, only that many of the newest updates are returned per parcel; a single
+     * update per parcel comes straight from the tracking heads, with an empty history for parcels
+     * that have none yet, as on the full path.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, List<TrackingResponseDto>> getUserTrackingOverview(Long userId, Integer latest) {
+        Map<String, List<TrackingResponseDto>> overview = new LinkedHashMap<>();
+        if (latest != null && latest == 1) {
+            for (ParcelTrackingSummaryDto summary : trackingHeadRepository.findLatestByUserId(userId)) {
+                List<TrackingResponseDto> history = new ArrayList<>(1);
+                if (summary.getTrackingId() != null) {
+                    history.add(new TrackingResponseDto(summary.getTrackingId(), summary.getStatus(), summary.getLocation(), 
+                            summary.getDescription(), summary.getTimestamp(), summary.getUpdatedBy()));
+                }
+                overview.put(summary.getTrackingNumber(), history);
+            }
+            return overview;
+        }
+        
+        List<Object[]> rows = trackingRepository.findOverviewRowsByUserId(userId, latest != null ? latest : Integer.MAX_VALUE);
+        for (Object[] row : rows) {
+            List<TrackingResponseDto> history = overview.computeIfAbsent((String) row[0], key -> new ArrayList<>());
+            if (row[1] == null) {
+                continue;
+            }
+            history.add(new TrackingResponseDto(
+                    ((Number) row[1]).longValue(),
+                    Parcel.ParcelStatus.valueOf((String) row[2]),
+                    (String) row[3],
+                    (String) row[4],
+                    toLocalDateTime(row[5]),
+                    (String) row[6]));
+        }
+        
+        trackingArchive.findHistoriesByUserId(userId).forEach((trackingNumber, archived) -> {
+            List<TrackingResponseDto> history = TrackingArchiveService.merge(
+                    overview.getOrDefault(trackingNumber, List.of()), archived);
+            overview.put(trackingNumber, latest != null && history.size() > latest ? history.subList(0, latest) : history);
+        });
+        return overview;
     }
     
-    public List<Tracking> getTrackingHistory(String trackingNumber) {
-        return trackingRepository.findByTrackingNumberOrderByTimestampDesc(trackingNumber);
+    /**
+     * Current status, location and time of each of the user's parcels, most recently updated first.
+     */
+    @Transactional(readOnly = true)
+    public List<ParcelTrackingSummaryDto> getUserTrackingSummaries(Long userId) {
+        return trackingHeadRepository.findSummariesByUserId(userId);
     }
     
-    public List<Tracking> getTrackingHistoryByParcelId(Long parcelId) {
-        return trackingRepository.findByParcelIdOrderByTimestampDesc(parcelId);
+    @Transactional(readOnly = true)
+    public Optional<ParcelTrackingSummaryDto> getTrackingSummary(String trackingNumber) {
+        return trackingHeadRepository.findSummaryByTrackingNumber(trackingNumber);
     }
     
-    public List<Tracking> getTrackingHistoryByParcel(Parcel parcel) {
-        return trackingRepository.findByParcelOrderByTimestampDesc(parcel);
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
     }
     
     public TrackingResponseDto convertToDto(Tracking tracking) {
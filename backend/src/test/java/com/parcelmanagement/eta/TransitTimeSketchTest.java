@@ -0,0 +1,93 @@
+package com.parcelmanagement.eta;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransitTimeSketchTest {
+    
+    private static final double[] QUANTILES = {0.01, 0.1, 0.5, 0.75, 0.9, 0.95, 0.99, 1.0};
+    
+    @Test
+    void quantilesStayWithinOneBucketAboveTheExactValue() {
+        Random random = new Random(42);
+        long[] samples = new long[50_000];
+        TransitTimeSketch sketch = new TransitTimeSketch();
+        for (int i = 0; i < samples.length; i++) {
+            // Log-normal around two days, the shape of real transit times
+            samples[i] = Math.max(1, Math.round(Math.exp(7.9 + 0.6 * random.nextGaussian())));
+            sketch.record(samples[i]);
+        }
+        Arrays.sort(samples);
+        
+        for (double q : QUANTILES) {
+            long exact = samples[(int) Math.max(1, Math.ceil(q * samples.length)) - 1];
+            long estimate = sketch.quantile(q, 0);
+            // Bucket upper bounds are rounded up, so the estimate never undershoots and overshoots by under 5% plus a minute
+            assertTrue(estimate >= exact);
+            assertTrue(estimate <= Math.ceil(exact * 1.05) + 1);
+        }
+        assertEquals(samples.length, sketch.count());
+    }
+    
+    @Test
+    void conditionsOnTheTimeAlreadyElapsed() {
+        TransitTimeSketch sketch = new TransitTimeSketch();
+        for (long minutes = 1; minutes <= 10_000; minutes++) {
+            sketch.record(minutes);
+        }
+        
+        long median = sketch.quantile(0.5, 0);
+        long medianAfterADay = sketch.quantile(0.5, 1_440);
+        assertTrue(median >= 5_000 && median <= 5_251);
+        // Among samples above one day the median is about 5,720 minutes
+        assertTrue(medianAfterADay >= 5_720 && medianAfterADay <= 6_007);
+        // Never earlier than the time already spent
+        assertTrue(sketch.quantile(0.01, 9_000) >= 9_000);
+        assertEquals(-1, sketch.quantile(0.5, 400_000));
+    }
+    
+    @Test
+    void emptySketchHasNoQuantile() {
+        TransitTimeSketch sketch = new TransitTimeSketch();
+        
+        assertEquals(-1, sketch.quantile(0.5, 0));
+        assertEquals(0, sketch.count());
+        assertFalse(sketch.markClean());
+    }
+    
+    @Test
+    void clampsSamplesBeyondTheLastBucket() {
+        TransitTimeSketch sketch = new TransitTimeSketch();
+        sketch.record(0);
+        sketch.record(10_000_000);
+        
+        assertEquals(1, sketch.quantile(0.5, 0));
+        assertTrue(sketch.quantile(1.0, 0) >= 180L * 24 * 60);
+    }
+    
+    @Test
+    void encodeDecodeAndMergeKeepEveryCount() {
+        TransitTimeSketch first = new TransitTimeSketch();
+        TransitTimeSketch second = new TransitTimeSketch();
+        for (long minutes = 1; minutes <= 3_000; minutes += 7) {
+            first.record(minutes);
+            second.record(minutes * 3);
+        }
+        
+        TransitTimeSketch decoded = TransitTimeSketch.decode(first.encode());
+        assertEquals(first.encode(), decoded.encode());
+        assertEquals(first.count(), decoded.count());
+        
+        decoded.merge(second);
+        assertEquals(first.count() + second.count(), decoded.count());
+        assertTrue(decoded.markClean());
+        assertFalse(decoded.markClean());
+        assertEquals(0, TransitTimeSketch.decode("").count());
+    }
+}
\ No newline at end of file
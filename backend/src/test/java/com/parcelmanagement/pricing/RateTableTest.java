@@ -0,0 +1,98 @@
+package com.parcelmanagement.pricing;
+
+import com.parcelmanagement.entity.Parcel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateTableTest {
+    
+    private static final Parcel.Priority STANDARD = Parcel.Priority.STANDARD;
+    private static final Parcel.Priority EXPRESS = Parcel.Priority.EXPRESS;
+    
+    @Test
+    void longestOriginPrefixWinsThenLongestDestinationPrefix() {
+        RateTable.Builder builder = new RateTable.Builder();
+        builder.add("", "", STANDARD, 100_000, 1_000, 0);
+        builder.add("100", "", STANDARD, 100_000, 700, 0);
+        builder.add("100", "9", STANDARD, 100_000, 800, 0);
+        builder.add("100", "941", STANDARD, 100_000, 900, 0);
+        builder.add("1", "94105", STANDARD, 100_000, 500, 0);
+        builder.add("", "94105", STANDARD, 100_000, 600, 0);
+        RateTable table = builder.build();
+        
+        assertEquals(900, table.quote("10001", "94105", 1_000, STANDARD));
+        assertEquals(800, table.quote("10001", "90210", 1_000, STANDARD));
+        assertEquals(700, table.quote("10001", "60601", 1_000, STANDARD));
+        assertEquals(600, table.quote("30301", "94105", 1_000, STANDARD));
+        // A longer origin prefix beats a longer destination prefix
+        assertEquals(500, table.quote("14201", "94105", 1_000, STANDARD));
+        assertEquals(1_000, table.quote("30301", "60601", 1_000, STANDARD));
+    }
+    
+    @Test
+    void fallsBackWhenTheSpecificLaneHasNoBandForTheWeight() {
+        RateTable.Builder builder = new RateTable.Builder();
+        builder.add("100", "941", STANDARD, 5_000, 900, 0);
+        builder.add("", "", STANDARD, 50_000, 1_000, 0);
+        RateTable table = builder.build();
+        
+        assertEquals(900, table.quote("10001", "94105", 5_000, STANDARD));
+        assertEquals(1_000, table.quote("10001", "94105", 5_001, STANDARD));
+        assertEquals(RateTable.NO_RATE, table.quote("10001", "94105", 50_001, STANDARD));
+    }
+    
+    @Test
+    void picksTheLightestBandCoveringTheWeightPerPriority() {
+        RateTable.Builder builder = new RateTable.Builder();
+        builder.add("", "", STANDARD, 10_000, 1_500, 100);
+        builder.add("", "", STANDARD, 1_000, 500, 0);
+        builder.add("", "", EXPRESS, 10_000, 3_000, 200);
+        RateTable table = builder.build();
+        
+        assertEquals(500, table.quote("10001", "94105", 1_000, STANDARD));
+        // 1,001 g at 100 cents per kg rounds 100.1 cents up
+        assertEquals(1_500 + 101, table.quote("10001", "94105", 1_001, STANDARD));
+        assertEquals(3_000 + 2_000, table.quote("10001", "94105", 10_000, EXPRESS));
+        assertEquals(RateTable.NO_RATE, table.quote("10001", "94105", 1_000, Parcel.Priority.OVERNIGHT));
+    }
+    
+    @Test
+    void matchesZipsIgnoringCaseSpacesAndDashes() {
+        RateTable.Builder builder = new RateTable.Builder();
+        builder.add("SW1A", "k1a-0", STANDARD, 10_000, 1_200, 0);
+        RateTable table = builder.build();
+        
+        assertEquals(1_200, table.quote("sw1a 1aa", "K1A 0B1", 1_000, STANDARD));
+        assertEquals(RateTable.NO_RATE, table.quote("SW1", "K1A 0B1", 1_000, STANDARD));
+        assertEquals(RateTable.NO_RATE, table.quote(null, "K1A 0B1", 1_000, STANDARD));
+    }
+    
+    @Test
+    void prefixesOfDifferentLengthNeverCollide() {
+        assertTrue(RateTable.prefixCode("0", 1) != RateTable.prefixCode("00", 2));
+        assertTrue(RateTable.prefixCode("1", 1) != RateTable.prefixCode("01", 2));
+        assertEquals(0, RateTable.prefixCode("", 0));
+        assertEquals(-1, RateTable.prefixCode("12", 3));
+        assertEquals(RateTable.prefixCode("AB", 2), RateTable.prefixCode("a-b", 2));
+    }
+    
+    @Test
+    void rejectsInvalidBands() {
+        RateTable.Builder builder = new RateTable.Builder();
+        
+        assertTrue(builder.add("100", "941", STANDARD, 1_000, 500, 0));
+        assertFalse(builder.add("123456", "", STANDARD, 1_000, 500, 0));
+        assertFalse(builder.add("", "", null, 1_000, 500, 0));
+        assertFalse(builder.add("", "", STANDARD, 0, 500, 0));
+        assertFalse(builder.add("", "", STANDARD, 1_000, -1, 0));
+        assertFalse(builder.add("", "", STANDARD, 1_000, 500, -1));
+        
+        RateTable table = builder.build();
+        assertEquals(1, table.lanes());
+        assertEquals(1, table.bands());
+        assertEquals(RateTable.NO_RATE, RateTable.EMPTY.quote("10001", "94105", 1_000, STANDARD));
+    }
+}
\ No newline at end of file
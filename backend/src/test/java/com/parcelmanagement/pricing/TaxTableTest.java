@@ -0,0 +1,117 @@
+package com.parcelmanagement.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaxTableTest {
+    
+    // Rates in parts per million: 1% is 10,000
+    private static final long FOUR_PERCENT = 40_000;
+    private static final long FIVE_PERCENT = 50_000;
+    private static final long EIGHT_PERCENT = 80_000;
+    private static final long NEW_YORK_CITY = 88_750;
+    private static final long NINE_PERCENT = 90_000;
+    private static final long TEN_PERCENT = 100_000;
+    
+    @Test
+    void longestZipPrefixWins() {
+        TaxTable.Builder builder = new TaxTable.Builder();
+        builder.add("US", "NY", "", FOUR_PERCENT, 0);
+        builder.add("US", "NY", "100", NEW_YORK_CITY, 0);
+        builder.add("US", "NY", "1000", NINE_PERCENT, 0);
+        TaxTable table = builder.build();
+        
+        assertEquals(900, table.taxCents("US", "NY", "10001", 10_000));
+        assertEquals(888, table.taxCents("US", "NY", "10050", 10_000));
+        assertEquals(400, table.taxCents("US", "NY", "14201", 10_000));
+    }
+    
+    @Test
+    void fallsBackFromStateToCountryToCatchAll() {
+        TaxTable.Builder builder = new TaxTable.Builder();
+        builder.add("US", "NY", "100", EIGHT_PERCENT, 0);
+        builder.add("US", "", "", FIVE_PERCENT, 0);
+        builder.add("", "", "", TEN_PERCENT, 0);
+        TaxTable table = builder.build();
+        
+        assertEquals(800, table.taxCents("US", "NY", "10001", 10_000));
+        // A state rule whose zip prefix does not match leaves the parcel to the country rule
+        assertEquals(500, table.taxCents("US", "NY", "14201", 10_000));
+        assertEquals(500, table.taxCents("US", "CA", "94105", 10_000));
+        assertEquals(1000, table.taxCents("DE", "BY", "80331", 10_000));
+    }
+    
+    @Test
+    void reportsNoRuleWhenNothingMatches() {
+        TaxTable.Builder builder = new TaxTable.Builder();
+        builder.add("US", "", "", FIVE_PERCENT, 0);
+        TaxTable table = builder.build();
+        
+        assertEquals(TaxTable.NO_RULE, table.taxCents("FR", "", "75001", 10_000));
+        assertEquals(TaxTable.NO_RULE, TaxTable.EMPTY.taxCents("US", "NY", "10001", 10_000));
+    }
+    
+    @Test
+    void matchesCountryAndStateIgnoringCaseAndSpaces() {
+        TaxTable.Builder builder = new TaxTable.Builder();
+        builder.add("us", " ny ", "", EIGHT_PERCENT, 0);
+        TaxTable table = builder.build();
+        
+        assertEquals(800, table.taxCents(" US", "Ny", "10001", 10_000));
+    }
+    
+    @Test
+    void doesNotTaxAmountsBelowTheThreshold() {
+        TaxTable.Builder builder = new TaxTable.Builder();
+        builder.add("US", "", "", FIVE_PERCENT, 1_000);
+        TaxTable table = builder.build();
+        
+        assertEquals(0, table.taxCents("US", "CA", "94105", 999));
+        assertEquals(50, table.taxCents("US", "CA", "94105", 1_000));
+    }
+    
+    @Test
+    void exemptJurisdictionOverridesTheCountryRate() {
+        // TaxService compiles exempt rules to a zero rate
+        TaxTable.Builder builder = new TaxTable.Builder();
+        builder.add("US", "", "", FIVE_PERCENT, 0);
+        builder.add("US", "OR", "", 0, 0);
+        TaxTable table = builder.build();
+        
+        assertEquals(0, table.taxCents("US", "OR", "97201", 10_000));
+        assertEquals(500, table.taxCents("US", "WA", "98101", 10_000));
+    }
+    
+    @Test
+    void roundsHalfCentsUp() {
+        TaxTable.Builder builder = new TaxTable.Builder();
+        builder.add("US", "", "", FIVE_PERCENT, 0);
+        TaxTable table = builder.build();
+        
+        assertEquals(0, table.taxCents("US", "", "", 9));
+        assertEquals(1, table.taxCents("US", "", "", 10));
+        assertEquals(1, table.taxCents("US", "", "", 29));
+        assertEquals(2, table.taxCents("US", "", "", 30));
+    }
+    
+    @Test
+    void rejectsInvalidAndDuplicateRules() {
+        TaxTable.Builder builder = new TaxTable.Builder();
+        
+        assertTrue(builder.add("US", "NY", "100", EIGHT_PERCENT, 0));
+        assertFalse(builder.add("us", "ny", "100", NINE_PERCENT, 0));
+        assertFalse(builder.add("", "NY", "", EIGHT_PERCENT, 0));
+        assertFalse(builder.add("US", "", "", TaxTable.MAX_RATE_PPM + 1, 0));
+        assertFalse(builder.add("US", "", "", -1, 0));
+        assertFalse(builder.add("US", "", "", FIVE_PERCENT, -1));
+        assertFalse(builder.add("US", "", "123456", FIVE_PERCENT, 0));
+        
+        TaxTable table = builder.build();
+        assertEquals(1, table.rules());
+        assertEquals(1, table.jurisdictions());
+        assertEquals(800, table.taxCents("US", "NY", "10001", 10_000));
+    }
+}
\ No newline at end of file
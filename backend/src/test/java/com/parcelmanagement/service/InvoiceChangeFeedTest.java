@@ -0,0 +1,63 @@
+package com.parcelmanagement.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InvoiceChangeFeedTest {
+    
+    @Test
+    void roundTripsAscendingIds() {
+        List<Long> ids = List.of(1L, 2L, 3L, 130L, 131L, 20_000L, 5_000_000L, 5_000_001L);
+        
+        assertArrayEquals(toArray(ids), InvoiceChangeFeed.decode(InvoiceChangeFeed.encode(ids)));
+    }
+    
+    @Test
+    void roundTripsDeltasAcrossVarintByteBoundaries() {
+        // Deltas of 127/128 and 16383/16384 switch between one, two and three bytes
+        List<Long> ids = new ArrayList<>();
+        long id = 0;
+        for (long delta : new long[]{127, 128, 16_383, 16_384, 1, 2_097_152}) {
+            id += delta;
+            ids.add(id);
+        }
+        
+        assertArrayEquals(toArray(ids), InvoiceChangeFeed.decode(InvoiceChangeFeed.encode(ids)));
+    }
+    
+    @Test
+    void roundTripsLargeIds() {
+        List<Long> ids = List.of(Long.MAX_VALUE / 2, Long.MAX_VALUE - 1, Long.MAX_VALUE);
+        
+        assertArrayEquals(toArray(ids), InvoiceChangeFeed.decode(InvoiceChangeFeed.encode(ids)));
+    }
+    
+    @Test
+    void encodesDenseIdsInOneBytePerId() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1_000_000; id < 1_000_500; id++) {
+            ids.add(id);
+        }
+        
+        byte[] encoded = InvoiceChangeFeed.encode(ids);
+        
+        // Only the first delta is large; every following one is 1
+        assertEquals(3 + ids.size() - 1, encoded.length);
+        assertArrayEquals(toArray(ids), InvoiceChangeFeed.decode(encoded));
+    }
+    
+    @Test
+    void roundTripsEmptyList() {
+        assertEquals(0, InvoiceChangeFeed.encode(List.of()).length);
+        assertEquals(0, InvoiceChangeFeed.decode(new byte[0]).length);
+    }
+    
+    private static long[] toArray(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.parcelmanagement.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReferenceNumberServiceTest {
+    
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    
+    private final ReferenceNumberService service = new ReferenceNumberService();
+    
+    @Test
+    void formatsFixedWidthCrockfordWithCheckCharacter() {
+        assertEquals("TRK00000000000000", ReferenceNumberService.format("TRK", 0));
+        assertEquals("TRK0000000000001Y", ReferenceNumberService.format("TRK", 1));
+        assertEquals("TRK7ZZZZZZZZZZZZ", ReferenceNumberService.format("TRK", Long.MAX_VALUE).substring(0, 16));
+        assertEquals(3 + 13 + 1, ReferenceNumberService.format("TRK", Long.MAX_VALUE).length());
+    }
+    
+    @Test
+    void acceptsEveryFormattedNumber() {
+        for (long id : new long[]{0, 1, 31, 32, 1_000_000, 123_456_789_012_345L, Long.MAX_VALUE}) {
+            assertTrue(service.isValid("TRK", ReferenceNumberService.format("TRK", id)));
+            assertTrue(service.isValid("INV", ReferenceNumberService.format("INV", id)));
+        }
+    }
+    
+    @Test
+    void detectsEverySingleCharacterSubstitution() {
+        String reference = ReferenceNumberService.format("TRK", 123_456_789_012_345L);
+        for (int position = 3; position < reference.length(); position++) {
+            for (char c : ALPHABET.toCharArray()) {
+                if (c != reference.charAt(position)) {
+                    char[] chars = reference.toCharArray();
+                    chars[position] = c;
+                    assertFalse(service.isValid("TRK", new String(chars)));
+                }
+            }
+        }
+    }
+    
+    @Test
+    void detectsAdjacentTranspositions() {
+        String reference = ReferenceNumberService.format("TRK", 0x1234_5678_9ABC_DEFL);
+        for (int position = 3; position < reference.length() - 2; position++) {
+            char[] chars = reference.toCharArray();
+            if (chars[position] != chars[position + 1]) {
+                char swapped = chars[position];
+                chars[position] = chars[position + 1];
+                chars[position + 1] = swapped;
+                assertFalse(service.isValid("TRK", new String(chars)));
+            }
+        }
+    }
+    
+    @Test
+    void rejectsMalformedReferences() {
+        String reference = ReferenceNumberService.format("TRK", 42);
+        
+        assertFalse(service.isValid("TRK", null));
+        assertFalse(service.isValid("INV", reference));
+        assertFalse(service.isValid("TRK", reference.substring(0, reference.length() - 1)));
+        assertFalse(service.isValid("TRK", reference + "0"));
+        // I, L, O and U are not in the Crockford alphabet
+        assertFalse(service.isValid("TRK", reference.substring(0, 5) + "I" + reference.substring(6)));
+    }
+    
+    @Test
+    void keepsReferencesInIdOrder() {
+        long[] ids = {0, 31, 32, 1_023, 1_024, 1L << 40, (1L << 40) + 1, Long.MAX_VALUE};
+        for (int i = 1; i < ids.length; i++) {
+            String previous = ReferenceNumberService.format("TRK", ids[i - 1]);
+            String next = ReferenceNumberService.format("TRK", ids[i]);
+            assertTrue(previous.compareTo(next) < 0);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.parcelmanagement.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdGeneratorTest {
+    
+    @Test
+    void idsStrictlyIncreaseThroughSequenceOverflow() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator();
+        // Far more than the 4096 ids one millisecond holds, so the sequence overflows into borrowed milliseconds
+        long previous = generator.nextId();
+        for (int i = 0; i < 200_000; i++) {
+            long next = generator.nextId();
+            assertTrue(next > previous);
+            previous = next;
+        }
+    }
+    
+    @Test
+    void idsArePositiveAndCloseToTheClock() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator();
+        long before = System.currentTimeMillis();
+        long id = generator.nextId();
+        
+        assertTrue(id > 0);
+        long millis = (id >>> 22) + 1704067200000L;
+        assertTrue(millis >= before && millis <= System.currentTimeMillis() + 1);
+    }
+    
+    @Test
+    void concurrentCallersNeverShareAnId() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[20_000];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            
+            Set<Long> seen = new HashSet<>();
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get();
+                for (int i = 0; i < ids.length; i++) {
+                    // Each caller also sees its own ids in increasing order
+                    assertTrue(i == 0 || ids[i] > ids[i - 1]);
+                    seen.add(ids[i]);
+                }
+            }
+            assertEquals(8 * 20_000, seen.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
\ No newline at end of file
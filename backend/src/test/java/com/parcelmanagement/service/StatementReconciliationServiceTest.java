@@ -0,0 +1,31 @@
+package com.parcelmanagement.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StatementReconciliationServiceTest {
+    
+    @Test
+    void readsPlainAndGroupedAmounts() {
+        assertEquals(1250L, StatementReconciliationService.toCents("12.50"));
+        assertEquals(123450L, StatementReconciliationService.toCents("1,234.50"));
+        assertEquals(123456700L, StatementReconciliationService.toCents("1,234,567"));
+    }
+    
+    @Test
+    void rejectsCommasThatAreNotThousandsSeparators() {
+        for (String amount : new String[]{"12,50", "1,23", "1234,567", ",123", "1,234,", "1,,234", "1,234.5,0"}) {
+            assertThrows(NumberFormatException.class, () -> StatementReconciliationService.toCents(amount));
+        }
+    }
+    
+    @Test
+    void keepsQuotedCommasInOneField() {
+        assertEquals(List.of("INV-1", "1,234.50", "2024-01-31"),
+                StatementReconciliationService.splitCsv("INV-1,\"1,234.50\",2024-01-31"));
+    }
+}
\ No newline at end of file
@@ -72,4 +72,21 @@ export interface TrackingHistory {
   description?: string;
   timestamp: Date;
   updatedBy: string;
+}
+
+export interface TrackingEvent {
+  trackingId: number;
+  parcelId: number;
+  trackingNumber: string;
+  status: ParcelStatus;
+  location: string;
+  description?: string;
+  timestamp: Date;
+  estimatedDeliveryDate?: Date;
+}
+
+export interface CursorPage<T> {
+  items: T[];
+  nextCursor?: string;
+  hasMore: boolean;
 }
\ No newline at end of file
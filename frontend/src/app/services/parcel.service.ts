@@ -1,7 +1,7 @@
-import { Injectable } from '@angular/core';
+import { Injectable, NgZone } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
-import { Observable } from 'rxjs';
-import { Parcel, ParcelBooking, ParcelStatus, TrackingHistory, TrackingUpdate } from '../models/parcel.model';
+import { Observable, Subscriber } from 'rxjs';
+import { CursorPage, Parcel, ParcelBooking, ParcelStatus, TrackingEvent, TrackingHistory, TrackingUpdate } from '../models/parcel.model';
 import { environment } from '../../environments/environment';
 
 @Injectable({
@@ -10,8 +10,9 @@ import { environment } from '../../environments/environment';
 export class ParcelService {
   private readonly API_URL = `${environment.apiUrl}/parcels`;
   private readonly TRACKING_URL = `${environment.apiUrl}/tracking`;
+  private readonly STREAM_RECONNECT_MS = 3000;
 
-  constructor(private http: HttpClient) {}
+  constructor(private http: HttpClient, private zone: NgZone) {}
 
   // Parcel operations
   bookParcel(parcelData: ParcelBooking): Observable<Parcel> {
@@ -41,12 +42,16 @@ export class ParcelService {
   }
 
   // Admin/Staff operations
-  getAllParcels(): Observable<Parcel[]> {
-    return this.http.get<Parcel[]>(`${this.API_URL}/all`);
+  getAllParcels(cursor?: string): Observable<CursorPage<Parcel>> {
+    return this.http.get<CursorPage<Parcel>>(`${this.API_URL}/all`, {
+      params: cursor ? { cursor } : {}
+    });
   }
 
-  getParcelsByStatus(status: ParcelStatus): Observable<Parcel[]> {
-    return this.http.get<Parcel[]>(`${this.API_URL}/status/${status}`);
+  getParcelsByStatus(status: ParcelStatus, cursor?: string): Observable<CursorPage<Parcel>> {
+    return this.http.get<CursorPage<Parcel>>(`${this.API_URL}/status/${status}`, {
+      params: cursor ? { cursor } : {}
+    });
   }
 
   // Tracking operations
@@ -62,8 +67,64 @@ export class ParcelService {
     return this.http.post<TrackingHistory>(`${this.TRACKING_URL}/parcel/${parcelId}/update`, update);
   }
 
-  getUserParcelTracking(): Observable<{ [trackingNumber: string]: TrackingHistory[] }> {
-    return this.http.get<{ [trackingNumber: string]: TrackingHistory[] }>(`${this.TRACKING_URL}/user/parcels`);
+  getUserParcelTracking(latest?: number): Observable<{ [trackingNumber: string]: TrackingHistory[] }> {
+    return this.http.get<{ [trackingNumber: string]: TrackingHistory[] }>(`${this.TRACKING_URL}/user/parcels`, {
+      params: latest ? { latest } : {}
+    });
+  }
+
+  // Live tracking updates pushed by the server instead of re-fetching
+  watchParcel(trackingNumber: string): Observable<TrackingEvent> {
+    return this.streamTrackingEvents(`${this.TRACKING_URL}/stream/${encodeURIComponent(trackingNumber)}`);
+  }
+
+  // EventSource cannot send the JWT header, so every connection redeems a fresh single-use ticket
+  watchUserParcels(): Observable<TrackingEvent> {
+    return new Observable<TrackingEvent>(subscriber => {
+      let source: EventSource | undefined;
+      let reconnect: ReturnType<typeof setTimeout> | undefined;
+      let closed = false;
+      const connect = () => {
+        this.http.post<{ ticket: string }>(`${this.TRACKING_URL}/stream/ticket`, null).subscribe({
+          next: ({ ticket }) => {
+            if (closed) {
+              return;
+            }
+            source = new EventSource(`${this.TRACKING_URL}/stream/user?ticket=${encodeURIComponent(ticket)}`);
+            this.forwardTrackingEvents(source, subscriber);
+            // The ticket is spent, so reconnect with a new one instead of letting EventSource retry
+            source.onerror = () => {
+              source?.close();
+              if (!closed) {
+                reconnect = setTimeout(connect, this.STREAM_RECONNECT_MS);
+              }
+            };
+          },
+          error: error => subscriber.error(error)
+        });
+      };
+      connect();
+      return () => {
+        closed = true;
+        clearTimeout(reconnect);
+        source?.close();
+      };
+    });
+  }
+
+  private streamTrackingEvents(url: string): Observable<TrackingEvent> {
+    return new Observable<TrackingEvent>(subscriber => {
+      // EventSource reconnects on its own after network errors
+      const source = new EventSource(url);
+      this.forwardTrackingEvents(source, subscriber);
+      return () => source.close();
+    });
+  }
+
+  private forwardTrackingEvents(source: EventSource, subscriber: Subscriber<TrackingEvent>): void {
+    source.addEventListener('tracking', (event: MessageEvent) => {
+      this.zone.run(() => subscriber.next(JSON.parse(event.data)));
+    });
   }
 
   // Utility methods
@@ -1,8 +1,10 @@
-import { Component } from '@angular/core';
+import { Component, OnDestroy } from '@angular/core';
 import { CommonModule } from '@angular/common';
 import { ReactiveFormsModule, FormBuilder, FormGroup, Validators } from '@angular/forms';
 import { RouterLink } from '@angular/router';
+import { Subscription } from 'rxjs';
 import { ParcelService } from '../../../services/parcel.service';
+import { TrackingEvent } from '../../../models/parcel.model';
 
 @Component({
   selector: 'app-public-tracking',
@@ -230,11 +232,12 @@ import { ParcelService } from '../../../services/parcel.service';
     }
   `]
 })
-export class PublicTrackingComponent {
+export class PublicTrackingComponent implements OnDestroy {
   trackingForm: FormGroup;
   isLoading = false;
   errorMessage = '';
   trackingResult: any = null;
+  private liveUpdates?: Subscription;
 
   constructor(
     private formBuilder: FormBuilder,
@@ -254,6 +257,7 @@ export class PublicTrackingComponent {
     this.isLoading = true;
     this.errorMessage = '';
     this.trackingResult = null;
+    this.liveUpdates?.unsubscribe();
 
     const trackingNumber = this.trackingForm.value.trackingNumber;
 
@@ -261,6 +265,8 @@ export class PublicTrackingComponent {
       next: (result) => {
         this.isLoading = false;
         this.trackingResult = result;
+        this.liveUpdates = this.parcelService.watchParcel(trackingNumber)
+          .subscribe(event => this.applyTrackingEvent(event));
       },
       error: (error) => {
         this.isLoading = false;
@@ -268,4 +274,27 @@ export class PublicTrackingComponent {
       }
     });
   }
+
+  ngOnDestroy(): void {
+    this.liveUpdates?.unsubscribe();
+  }
+
+  private applyTrackingEvent(event: TrackingEvent): void {
+    if (!this.trackingResult || this.trackingResult.trackingHistory.some((track: any) => track.id === event.trackingId)) {
+      return;
+    }
+    this.trackingResult.parcel.status = event.status;
+    this.trackingResult.parcel.estimatedDeliveryDate = event.estimatedDeliveryDate;
+    this.trackingResult.trackingHistory = [
+      {
+        id: event.trackingId,
+        status: event.status,
+        location: event.location,
+        description: event.description,
+        timestamp: event.timestamp,
+        updatedBy: ''
+      },
+      ...this.trackingResult.trackingHistory
+    ];
+  }
 }
\ No newline at end of file